@@ -0,0 +1,60 @@
+package org.monarchinitiative.phenotefx.benchmark;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Input data shared by the benchmarks. By default the small HPO file of the test resources is used; a full hp.obo
+ * can be benchmarked with {@code -p hpoObo=/path/to/hp.obo}.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /** @return the given hp.obo, or the hp_small.obo of the test resources if the path is empty. */
+    static File hpoFile(String hpoObo) throws URISyntaxException {
+        if (hpoObo == null || hpoObo.isEmpty()) {
+            return new File(BenchmarkData.class.getResource("/hp_small.obo").toURI());
+        }
+        return new File(hpoObo);
+    }
+
+    static Ontology ontology(String hpoObo) throws URISyntaxException {
+        return OntologyLoader.loadOntology(hpoFile(hpoObo), "HP");
+    }
+
+    static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
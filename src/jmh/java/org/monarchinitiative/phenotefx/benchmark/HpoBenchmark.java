@@ -0,0 +1,81 @@
+package org.monarchinitiative.phenotefx.benchmark;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.io.HPOParser;
+import org.monarchinitiative.phenotefx.search.TermSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the construction of the {@link HPOParser} and of the lookups behind the autocompletion of HPO
+ * term labels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HpoBenchmark {
+
+    @Param({""})
+    public String hpoObo;
+
+    @Param({"sei", "abnormality of", "hypotnia"})
+    public String query;
+
+    private String hpoPath;
+
+    private TermSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws URISyntaxException, PhenoteFxException {
+        hpoPath = BenchmarkData.hpoFile(hpoObo).getAbsolutePath();
+        index = new TermSearchIndex(new HPOParser(hpoPath).getHpoSynonym2PreferredLabelMap());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public HPOParser hpoParser() throws PhenoteFxException {
+        return new HPOParser(hpoPath);
+    }
+
+    @Benchmark
+    public TermSearchIndex buildSearchIndex() throws PhenoteFxException {
+        return new TermSearchIndex(new HPOParser(hpoPath).getHpoSynonym2PreferredLabelMap());
+    }
+
+    /** The lookup done by the autocompletion for every keystroke. */
+    @Benchmark
+    public List<String> autocomplete() {
+        return index.suggest(query, 100);
+    }
+
+    @Benchmark
+    public List<String> search() {
+        return index.search(query, 20);
+    }
+}
@@ -0,0 +1,93 @@
+package org.monarchinitiative.phenotefx.benchmark;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenotefx.smallfile.SmallFile;
+import org.monarchinitiative.phenotefx.smallfile.SmallFileIngestor;
+import org.monarchinitiative.phenotefx.smallfile.SyntheticCorpus;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the time needed to ingest a synthetic small file corpus with synchronous logging (every event is written
+ * and flushed by the thread that logs it) and with the asynchronous, batched logging of the shipped log4j2.xml.
+ * Both configurations (src/test/resources/log4j2-benchmark-*.xml) only differ in the appenders and write to a
+ * temporary file, so that console output does not distort the comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestLoggingBenchmark {
+
+    @Param({""})
+    public String hpoObo;
+
+    /** Selects src/test/resources/log4j2-benchmark-{logging}.xml. */
+    @Param({"sync", "async"})
+    public String logging;
+
+    @Param({"5000"})
+    public int files;
+
+    private Ontology ontology;
+
+    private Path corpus;
+
+    private Path logFile;
+
+    private LoggerContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, URISyntaxException {
+        ontology = BenchmarkData.ontology(hpoObo);
+        corpus = Files.createTempDirectory("phenotefx-benchmark");
+        SyntheticCorpus.write(corpus, ontology, files, 20, files / 10);
+        logFile = Files.createTempFile("phenotefx-benchmark", ".log");
+        System.setProperty("benchmark.log", logFile.toString());
+        context = (LoggerContext) LogManager.getContext(false);
+        context.setConfigLocation(IngestLoggingBenchmark.class.getResource("/log4j2-benchmark-" + logging + ".xml").toURI());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        // closes the log file, so that it can be deleted
+        context.stop();
+        Files.deleteIfExists(logFile);
+        BenchmarkData.delete(corpus);
+    }
+
+    @Benchmark
+    public List<SmallFile> ingestCorpus() {
+        return new SmallFileIngestor(corpus.toString(), ontology, 1).getSmallFileEntries();
+    }
+}
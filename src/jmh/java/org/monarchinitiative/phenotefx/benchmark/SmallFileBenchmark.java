@@ -0,0 +1,125 @@
+package org.monarchinitiative.phenotefx.benchmark;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.io.SmallfileParser;
+import org.monarchinitiative.phenotefx.smallfile.SmallFile;
+import org.monarchinitiative.phenotefx.smallfile.SmallFileEntry;
+import org.monarchinitiative.phenotefx.smallfile.SmallFileIngestor;
+import org.monarchinitiative.phenotefx.smallfile.SyntheticCorpus;
+import org.monarchinitiative.phenotefx.validation.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the parsing, ingestion, validation and serialization of small files, using a synthetic corpus
+ * (see {@link SyntheticCorpus}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SmallFileBenchmark {
+
+    @Param({""})
+    public String hpoObo;
+
+    @Param({"1000"})
+    public int files;
+
+    @Param({"40"})
+    public int annotationsPerFile;
+
+    private Ontology ontology;
+
+    private Path corpus;
+
+    private File smallFile;
+
+    private SmallFile parsed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, URISyntaxException, PhenoteFxException {
+        ontology = BenchmarkData.ontology(hpoObo);
+        corpus = Files.createTempDirectory("phenotefx-benchmark");
+        SyntheticCorpus.write(corpus, ontology, files, annotationsPerFile, files / 10);
+        smallFile = corpus.resolve("OMIM-100000.tab").toFile();
+        parsed = new SmallfileParser(smallFile, ontology).parseV2SmallFile()
+                .orElseThrow(() -> new IllegalStateException("Could not parse " + smallFile));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(corpus);
+    }
+
+    @Benchmark
+    public Object parseV2SmallFile() throws PhenoteFxException {
+        return new SmallfileParser(smallFile, ontology).parseV2SmallFile();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<SmallFile> ingestCorpusSequential() {
+        return new SmallFileIngestor(corpus.toString(), ontology, 1).getSmallFileEntries();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<SmallFile> ingestCorpusParallel() {
+        return new SmallFileIngestor(corpus.toString(), ontology).getSmallFileEntries();
+    }
+
+    @Benchmark
+    public void getRow(Blackhole bh) {
+        for (SmallFileEntry entry : parsed.getOriginalEntryList()) {
+            bh.consume(entry.getRow());
+        }
+    }
+
+    @Benchmark
+    public boolean validateSmallFile() {
+        return new SmallFileEntryValidator(parsed, ontology).isValid();
+    }
+
+    @Benchmark
+    public void validateFields(Blackhole bh) {
+        for (SmallFileEntry entry : parsed.getOriginalEntryList()) {
+            bh.consume(EvidenceValidator.isValid(entry.getEvidenceCode()));
+            bh.consume(BiocurationValidator.isValid(entry.getBiocuration()));
+            bh.consume(HPOValidator.isValid(entry.getPhenotypeId().getValue()));
+        }
+        bh.consume(FrequencyValidator.isValid("7/13"));
+        bh.consume(FrequencyValidator.isValid("HP:0040283"));
+    }
+}
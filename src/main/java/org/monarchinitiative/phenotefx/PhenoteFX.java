@@ -32,6 +32,7 @@ import org.monarchinitiative.phenotefx.gui.main.PhenoteView;
 
 import javax.swing.*;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.Properties;
 
 /**
@@ -85,7 +86,14 @@ public class PhenoteFX extends Application {
         Injector.forgetAll();
     }
 
+    /**
+     * Start the GUI, or run the headless {@link PhenoteFXBatch} if the first argument is "batch".
+     */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("batch")) {
+            PhenoteFXBatch.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         launch(args);
     }
 
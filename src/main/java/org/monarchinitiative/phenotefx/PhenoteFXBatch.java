@@ -0,0 +1,282 @@
+package org.monarchinitiative.phenotefx;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.io.HPOParser;
+import org.monarchinitiative.phenotefx.smallfile.CorpusIndex;
+import org.monarchinitiative.phenotefx.smallfile.CorpusStore;
+import org.monarchinitiative.phenotefx.smallfile.SmallFile;
+import org.monarchinitiative.phenotefx.smallfile.SmallFileIngestor;
+import org.monarchinitiative.phenotefx.validation.SmallFileEntryValidator;
+import org.monarchinitiative.phenotefx.worker.TermLabelUpdater;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Headless entry point for the corpus-wide operations that are otherwise only reachable from the PhenoteFX menu.
+ * The batch mode ingests all small files in an annotation directory, validates them, checks for outdated
+ * TermIds and labels (and optionally rewrites them), and prints a JSON report. It is started with
+ * <pre>
+ * java -jar PhenoteFX.jar batch --dir &lt;annotation directory&gt; [--hpo &lt;hp.obo&gt;] [--threads &lt;n&gt;]
+ *      [--update-labels] [--out &lt;report.json&gt;] [--index &lt;file&gt; | --no-index]
+ * </pre>
+ * By default, a {@link CorpusIndex} in the PhenoteFX directory is used so that only the small files that changed
+ * since the last run are parsed.
+ * The exit status is {@link #EXIT_OK} if no problems were found, {@link #EXIT_INVALID} if some small files could
+ * not be parsed or are not valid, {@link #EXIT_OUTDATED} if some labels are outdated and were not rewritten,
+ * and {@link #EXIT_USAGE} if the command line was wrong or the HPO could not be loaded.
+ * @author Peter Robinson
+ */
+public class PhenoteFXBatch {
+    private static final Logger logger = LogManager.getLogger();
+
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_INVALID = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_OUTDATED = 3;
+
+    private static final String USAGE = "Usage: java -jar PhenoteFX.jar batch --dir <annotation directory> " +
+            "[--hpo <hp.obo>] [--threads <n>] [--update-labels] [--out <report.json>] [--index <file> | --no-index]";
+
+    /** Directory with the small files. */
+    private String annotationDir = null;
+    /** Path to hp.obo; if null, the file in the default PhenoteFX directory is used. */
+    private String hpoPath = null;
+    private int threads = SmallFileIngestor.defaultParallelism();
+    /** If true, small files with outdated TermIds or labels are rewritten. */
+    private boolean updateLabels = false;
+    /** Path of the JSON report; if null, the report is written to standard output. */
+    private String reportPath = null;
+    /** If false, all small files are parsed without using a {@link CorpusIndex}. */
+    private boolean useIndex = true;
+    /** Path of the corpus index; if null, the default location in the PhenoteFX directory is used. */
+    private String indexPath = null;
+
+
+    public static void main(String[] args) {
+        // The console appender follows System.out, so we move the log messages to stderr to keep the report clean.
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+        System.exit(run(args, stdout));
+    }
+
+    /**
+     * Run the batch mode.
+     * @param args command line arguments (without the leading "batch")
+     * @param out stream to which the report is written unless --out was given
+     * @return the exit status
+     */
+    public static int run(String[] args, PrintStream out) {
+        PhenoteFXBatch batch = new PhenoteFXBatch();
+        try {
+            batch.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        try {
+            return batch.execute(out);
+        } catch (PhenoteFxException | IOException e) {
+            logger.error("Batch run failed: {}", e.getMessage());
+            System.err.println(e.getMessage());
+            return EXIT_USAGE;
+        }
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-d":
+                case "--dir":
+                    annotationDir = value(args, ++i);
+                    break;
+                case "--hpo":
+                    hpoPath = value(args, ++i);
+                    break;
+                case "-t":
+                case "--threads":
+                    try {
+                        threads = Integer.parseInt(value(args, ++i));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("--threads must be an integer");
+                    }
+                    if (threads < 1) {
+                        throw new IllegalArgumentException("--threads must be at least 1");
+                    }
+                    break;
+                case "--update-labels":
+                    updateLabels = true;
+                    break;
+                case "--index":
+                    indexPath = value(args, ++i);
+                    break;
+                case "--no-index":
+                    useIndex = false;
+                    break;
+                case "-o":
+                case "--out":
+                    reportPath = value(args, ++i);
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format("Unknown argument: %s", args[i]));
+            }
+        }
+        if (annotationDir == null) {
+            throw new IllegalArgumentException("--dir is required");
+        }
+        if (!new File(annotationDir).isDirectory()) {
+            throw new IllegalArgumentException(String.format("Not a directory: %s", annotationDir));
+        }
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(String.format("Missing value for %s", args[i - 1]));
+        }
+        return args[i];
+    }
+
+    private int execute(PrintStream out) throws PhenoteFxException, IOException {
+        long start = System.currentTimeMillis();
+        HPOParser hpoParser = hpoPath == null ? new HPOParser() : new HPOParser(hpoPath);
+        Ontology ontology = hpoParser.getHpoOntology();
+        if (ontology == null) {
+            throw new PhenoteFxException("Could not load the HPO ontology");
+        }
+        long hpoMillis = System.currentTimeMillis() - start;
+
+        long t0 = System.currentTimeMillis();
+        CorpusIndex index = null;
+        if (useIndex) {
+            File dir = new File(annotationDir);
+            index = indexPath == null ? new CorpusIndex(dir, ontology) : new CorpusIndex(dir, ontology, new File(indexPath));
+        }
+        SmallFileIngestor ingestor = new SmallFileIngestor(annotationDir, ontology, threads, index);
+        List<SmallFile> smallFiles = ingestor.getSmallFileEntries();
+        long ingestMillis = System.currentTimeMillis() - t0;
+
+        t0 = System.currentTimeMillis();
+        Map<String, List<String>> validationErrors = new TreeMap<>();
+        for (SmallFile smallFile : smallFiles) {
+            SmallFileEntryValidator validator = new SmallFileEntryValidator(smallFile, ontology);
+            if (!validator.isValid()) {
+                validationErrors.put(smallFile.getBasename(), validator.getErrors());
+            }
+        }
+        long validateMillis = System.currentTimeMillis() - t0;
+
+        t0 = System.currentTimeMillis();
+        TermLabelUpdater updater = new TermLabelUpdater(annotationDir, ontology, smallFiles, threads);
+        Set<String> outdated;
+        try {
+            outdated = updater.updateLabels(updateLabels);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PhenoteFxException("Label update was interrupted");
+        }
+        Map<String, Long> outdatedMessages = updater.getMessages().stream()
+                .collect(Collectors.groupingBy(Function.identity(), TreeMap::new, Collectors.counting()));
+        long labelMillis = System.currentTimeMillis() - t0;
+
+        int status = EXIT_OK;
+        if (!ingestor.getErrors().isEmpty() || !validationErrors.isEmpty()) {
+            status = EXIT_INVALID;
+        } else if (!outdated.isEmpty() && !updateLabels) {
+            status = EXIT_OUTDATED;
+        }
+
+        Map<String, Object> timings = new LinkedHashMap<>();
+        timings.put("hpo", hpoMillis);
+        timings.put("ingestion", ingestMillis);
+        timings.put("validation", validateMillis);
+        timings.put("labels", labelMillis);
+        timings.put("total", System.currentTimeMillis() - start);
+
+        Map<String, Object> labels = new LinkedHashMap<>();
+        labels.put("files", outdated);
+        labels.put("messages", outdatedMessages);
+        labels.put("rewritten", updateLabels);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("directory", new File(annotationDir).getAbsolutePath());
+        report.put("threads", threads);
+        report.put("status", status);
+        Map<String, Object> statistics = statistics(smallFiles);
+        statistics.put("reusedFromIndex", ingestor.getReusedFileCount());
+        report.put("statistics", statistics);
+        report.put("ingestionErrors", ingestor.getErrors());
+        report.put("validationErrors", validationErrors);
+        report.put("outdatedLabels", labels);
+        report.put("timings", timings);
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        if (reportPath == null) {
+            out.println(mapper.writeValueAsString(report));
+            out.flush();
+        } else {
+            mapper.writeValue(new File(reportPath), report);
+        }
+        logger.info("Batch run on {} finished with status {} in {} ms", annotationDir, status, timings.get("total"));
+        return status;
+    }
+
+    private static Map<String, Object> statistics(List<SmallFile> smallFiles) {
+        CorpusStore store = CorpusStore.of(smallFiles);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("smallFiles", store.getFileCount());
+        stats.put("annotations", store.size());
+        stats.put("distinctTerms", store.getTermCount());
+        Map<String, Integer> negation = countBy(store, CorpusStore.Column.NEGATION);
+        stats.put("negated", negation.getOrDefault("NOT", 0));
+        stats.put("evidence", countBy(store, CorpusStore.Column.EVIDENCE));
+        int max = 0;
+        for (int f = 0; f < store.getFileCount(); f++) {
+            max = Math.max(max, store.getRowCount(f));
+        }
+        stats.put("maxAnnotationsPerFile", max);
+        return stats;
+    }
+
+    /** @return number of rows for each (non-null) value of the given column, sorted by value. */
+    private static Map<String, Integer> countBy(CorpusStore store, CorpusStore.Column column) {
+        int[] counts = store.countRowsBy(column);
+        Map<String, Integer> map = new TreeMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            String value = store.getValue(column, code);
+            if (value != null) {
+                map.put(value, counts[code]);
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,123 @@
+package org.monarchinitiative.phenotefx.gui;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.CheckBoxTableCell;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.stage.Stage;
+import org.monarchinitiative.phenotefx.tally.HpoTermTally;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Shows the HPO terms of a tally (see {@link HpoTermTally}) with their n/m frequencies. Exactly mapped terms are
+ * selected by default; approximate mappings, and terms to which several items of a spreadsheet were mapped, have to
+ * be checked and selected by the curator. At most one entry per term can be added. The selected terms
+ * are passed to a callback (usually one that adds them to the current table) with a single click.
+ */
+public class HpoTallyDialog {
+
+    private final HpoTermTally tally;
+
+    private final Consumer<List<HpoTermTally.Entry>> addToTable;
+
+    /**
+     * @param tally the HPO terms to show
+     * @param addToTable called with the selected terms when the user clicks "Add to table"
+     */
+    public HpoTallyDialog(HpoTermTally tally, Consumer<List<HpoTermTally.Entry>> addToTable) {
+        this.tally = tally;
+        this.addToTable = addToTable;
+    }
+
+    public void show() {
+        Map<HpoTermTally.Entry, BooleanProperty> selected = new HashMap<>();
+        for (HpoTermTally.Entry entry : tally.getEntries()) {
+            selected.put(entry, new SimpleBooleanProperty(entry.isExact() && !entry.isConflicting()));
+        }
+        TableView<HpoTermTally.Entry> table = new TableView<>();
+        table.setEditable(true);
+        TableColumn<HpoTermTally.Entry, Boolean> addColumn = new TableColumn<>("add");
+        addColumn.setCellValueFactory(param -> selected.get(param.getValue()));
+        addColumn.setCellFactory(CheckBoxTableCell.forTableColumn(addColumn));
+        addColumn.setEditable(true);
+        table.getColumns().add(addColumn);
+        table.getColumns().add(column("HPO id", HpoTermTally.Entry::getTermId));
+        table.getColumns().add(column("HPO term", HpoTermTally.Entry::getLabel));
+        table.getColumns().add(column("frequency", HpoTermTally.Entry::getFrequency));
+        table.getColumns().add(column("match", e -> (e.isExact() ? "exact" : "approximate") +
+                (e.isConflicting() ? " (other items map to this term)" : "")));
+        table.getColumns().add(column("items", e -> String.join("; ", e.getTokens())));
+        table.getItems().addAll(tally.getEntries());
+
+        Label unmapped = new Label(String.format("%d items could not be mapped to HPO terms", tally.getUnmapped().size()));
+        unmapped.setTooltip(new Tooltip(tally.getUnmapped().keySet().stream().limit(50)
+                .collect(Collectors.joining("\n"))));
+        Stage window = new Stage();
+        Button add = new Button("Add to table");
+        add.setOnAction(e -> {
+            List<HpoTermTally.Entry> chosen = table.getItems().stream()
+                    .filter(entry -> selected.get(entry).get())
+                    .collect(Collectors.toList());
+            Map<String, List<HpoTermTally.Entry>> conflicts = HpoTermTally.conflicts(chosen);
+            if (!conflicts.isEmpty()) {
+                String items = conflicts.values().stream()
+                        .map(list -> list.get(0).getLabel() + ": " + list.stream()
+                                .map(entry -> String.join("; ", entry.getTokens()))
+                                .collect(Collectors.joining(" / ")))
+                        .collect(Collectors.joining("\n"));
+                PopUps.showInfoMessage("Select only one item per HPO term (their counts would include the same " +
+                        "individuals twice):\n" + items, "Several items map to the same term");
+                return;
+            }
+            window.close();
+            addToTable.accept(chosen);
+        });
+        Button cancel = new Button("Cancel");
+        cancel.setOnAction(e -> window.close());
+        HBox buttons = new HBox(10, unmapped, add, cancel);
+        buttons.setAlignment(Pos.CENTER_RIGHT);
+        buttons.setPadding(new Insets(5));
+        BorderPane pane = new BorderPane(table);
+        pane.setBottom(buttons);
+        window.setTitle("HPO terms of tally");
+        window.setScene(new Scene(pane, 900, 600));
+        window.show();
+    }
+
+    private static TableColumn<HpoTermTally.Entry, String> column(String title,
+                                                                 Function<HpoTermTally.Entry, String> value) {
+        TableColumn<HpoTermTally.Entry, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(param -> new ReadOnlyStringWrapper(value.apply(param.getValue())));
+        return column;
+    }
+}
@@ -0,0 +1,182 @@
+package org.monarchinitiative.phenotefx.gui;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenotefx.search.DiseaseIndex;
+
+import java.io.File;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Lets the user find a disease by (part of) its name, its OMIM/Mondo id or its MIM number with a
+ * {@link DiseaseIndex}, and shows for each match whether the default directory already contains an annotation file
+ * for it (e.g., OMIM-615513.tab). The directory is listed once when the dialog is opened, so that typing only
+ * queries the index. Double-clicking a disease with an annotation file, or selecting it and clicking "Open", passes
+ * the file to a callback.
+ */
+public class OpenDiseaseDialog {
+    private static final Logger logger = LogManager.getLogger();
+    /** Maximum number of diseases shown for a query. */
+    private static final int MAX_RESULTS = 500;
+
+    private final DiseaseIndex index;
+
+    private final File directory;
+
+    private final Consumer<File> open;
+
+    /** Names of the annotation files in {@link #directory}. */
+    private final Set<String> annotationFiles = new HashSet<>();
+
+    /**
+     * @param index the disease names and ids
+     * @param directory the directory with the annotation files (the default Phenote directory)
+     * @param open called with the annotation file of the disease that the user chose
+     */
+    public OpenDiseaseDialog(DiseaseIndex index, File directory, Consumer<File> open) {
+        this.index = index;
+        this.directory = directory;
+        this.open = open;
+    }
+
+    public void show() {
+        String[] files = directory.list((dir, name) -> name.endsWith(".tab"));
+        if (files != null) {
+            annotationFiles.addAll(Arrays.asList(files));
+        }
+        logger.info("Found {} annotation files in {}", annotationFiles.size(), directory.getAbsolutePath());
+
+        TableView<DiseaseIndex.Entry> table = new TableView<>();
+        table.setPlaceholder(new Label("Type a disease name, id or MIM number"));
+        TableColumn<DiseaseIndex.Entry, String> idColumn = column("Id", DiseaseIndex.Entry::getId);
+        TableColumn<DiseaseIndex.Entry, String> nameColumn = column("Disease", DiseaseIndex.Entry::getName);
+        TableColumn<DiseaseIndex.Entry, String> fileColumn = column("Annotation file",
+                e -> hasAnnotationFile(e) ? e.getAnnotationFileName() : "");
+        idColumn.setPrefWidth(130);
+        nameColumn.setPrefWidth(480);
+        fileColumn.setPrefWidth(170);
+        table.getColumns().add(idColumn);
+        table.getColumns().add(nameColumn);
+        table.getColumns().add(fileColumn);
+
+        TextField query = new TextField();
+        query.setPromptText("Disease name, id or MIM number");
+        HBox.setHgrow(query, Priority.ALWAYS);
+        CheckBox annotatedOnly = new CheckBox("Only diseases with annotation files");
+        Label shown = new Label();
+        Runnable update = () -> {
+            List<DiseaseIndex.Entry> matches = annotatedOnly.isSelected() ?
+                    searchAnnotated(query.getText()) : index.search(query.getText(), MAX_RESULTS);
+            table.getItems().setAll(matches);
+            long annotated = matches.stream().filter(this::hasAnnotationFile).count();
+            shown.setText(String.format("%d diseases (%d with annotation file)", matches.size(), annotated));
+        };
+        query.textProperty().addListener((obs, oldValue, newValue) -> update.run());
+        annotatedOnly.selectedProperty().addListener((obs, oldValue, newValue) -> update.run());
+
+        Stage window = new Stage();
+        Button openButton = new Button("Open");
+        openButton.disableProperty().bind(table.getSelectionModel().selectedItemProperty().isNull());
+        openButton.setOnAction(e -> open(window, table.getSelectionModel().getSelectedItem()));
+        table.setRowFactory(tv -> {
+            TableRow<DiseaseIndex.Entry> row = new TableRow<>();
+            row.setOnMouseClicked(e -> {
+                if (e.getClickCount() == 2 && !row.isEmpty()) {
+                    open(window, row.getItem());
+                }
+            });
+            return row;
+        });
+        Button cancel = new Button("Cancel");
+        cancel.setOnAction(e -> window.close());
+        HBox bar = new HBox(10, query, annotatedOnly);
+        bar.setAlignment(Pos.CENTER_LEFT);
+        HBox buttons = new HBox(10, shown, openButton, cancel);
+        buttons.setAlignment(Pos.CENTER_RIGHT);
+        buttons.setPadding(new Insets(5));
+        VBox top = new VBox(5, new Label(String.format("%d disease names and ids; %d annotation files in %s",
+                index.size(), annotationFiles.size(), directory.getAbsolutePath())), bar);
+        top.setPadding(new Insets(5));
+        BorderPane pane = new BorderPane(table);
+        pane.setTop(top);
+        pane.setBottom(buttons);
+        window.setTitle("Open disease by name");
+        window.setScene(new Scene(pane, 800, 600));
+        window.show();
+        query.requestFocus();
+    }
+
+    private boolean hasAnnotationFile(DiseaseIndex.Entry entry) {
+        return annotationFiles.contains(entry.getAnnotationFileName());
+    }
+
+    /** @return the diseases with annotation files whose name or id contains the query (all if it is empty). */
+    private List<DiseaseIndex.Entry> searchAnnotated(String query) {
+        String q = query.trim().toLowerCase(Locale.ROOT);
+        String id = q.isEmpty() ? "" : DiseaseIndex.normalizeId(query).toLowerCase(Locale.ROOT);
+        List<DiseaseIndex.Entry> result = new ArrayList<>();
+        List<String> sortedFiles = new ArrayList<>(annotationFiles);
+        Collections.sort(sortedFiles);
+        for (String file : sortedFiles) {
+            // OMIM-615513.tab -> OMIM:615513
+            String diseaseId = file.substring(0, file.length() - ".tab".length()).replaceFirst("-", ":");
+            String name = index.getName(diseaseId).orElse("");
+            if (q.isEmpty() || name.toLowerCase(Locale.ROOT).contains(q) ||
+                    diseaseId.toLowerCase(Locale.ROOT).contains(id)) {
+                result.add(new DiseaseIndex.Entry(diseaseId, name));
+            }
+            if (result.size() == MAX_RESULTS) break;
+        }
+        return result;
+    }
+
+    private void open(Stage window, DiseaseIndex.Entry entry) {
+        if (!hasAnnotationFile(entry)) {
+            PopUps.showInfoMessage(String.format("There is no annotation file %s for %s in %s",
+                    entry.getAnnotationFileName(), entry.getName(), directory.getAbsolutePath()),
+                    "No annotation file");
+            return;
+        }
+        window.close();
+        open.accept(new File(directory, entry.getAnnotationFileName()));
+    }
+
+    private static TableColumn<DiseaseIndex.Entry, String> column(String title,
+                                                                  Function<DiseaseIndex.Entry, String> value) {
+        TableColumn<DiseaseIndex.Entry, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(param -> new ReadOnlyStringWrapper(value.apply(param.getValue())));
+        return column;
+    }
+}
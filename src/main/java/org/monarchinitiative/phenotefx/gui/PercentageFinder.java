@@ -27,12 +27,18 @@ import javafx.scene.control.TextInputDialog;
 import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
 
-import java.io.*;
+import org.monarchinitiative.phenotefx.model.FractionIndex;
+
 import java.util.Optional;
 
+/**
+ * Show the fractions n/m that are closest to a percentage entered by the user (see {@link FractionIndex}).
+ */
 public class PercentageFinder {
 
     private static final String EMPTY_STRING="";
+    /** Maximum number of fractions shown, closest first. */
+    private static final int MAX_CANDIDATES = 50;
 
 
     public PercentageFinder(){
@@ -69,29 +75,8 @@ public class PercentageFinder {
 
     private void showCandidates(double perc) {
         ImmutableList.Builder<String> builder = new ImmutableList.Builder<>();
-        try {
-            //ClassLoader classLoader = getClass().getClassLoader();
-            /* File file = new File(classLoader.getResource("data/percentages.txt").getFile()); */
-            InputStream inputStream = PercentageFinder.class.getResourceAsStream("/data/percentages.txt");
-            InputStreamReader streamReader = new InputStreamReader(inputStream);
-            BufferedReader br = new BufferedReader(streamReader);
-           // BufferedReader br = new BufferedReader(new FileReader(file));
-            String line;
-            while ((line=br.readLine())!=null) {
-                String A[] = line.split("\\s+");
-                if (A.length<3) {
-                    PopUps.showInfoMessage("Malformed line " + line,"Error reading percentages.txt");
-                    return;
-                }
-                Double d = Double.parseDouble(A[0]);
-                if (Math.abs(d-perc)<3) {
-                    String s = String.format("%.2f = %s/%s",d,A[1],A[2]);
-                    builder.add(s);
-                }
-
-            }
-        } catch (IOException e) {
-            PopUps.showException("Could not find percentages file","Error","Could not find percentages file",e);
+        for (FractionIndex.Fraction f : FractionIndex.factory().nearest(perc, FractionIndex.DEFAULT_TOLERANCE, MAX_CANDIDATES)) {
+            builder.add(String.format("%.2f = %s", f.getPercentage(), f));
         }
 
         ListView<String> listView = new ListView<>();
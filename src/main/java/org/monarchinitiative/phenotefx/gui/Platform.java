@@ -25,6 +25,7 @@ import java.io.File;
 
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
+import org.monarchinitiative.phenotefx.io.OboFiles;
 
 public class Platform {
 
@@ -69,12 +70,12 @@ public class Platform {
 
 
     /**
-     * Get path to directory where PhenoteFX stores hp.obo.
-     * @return path to the downloaded hp.obo file
+     * Get path to the hp.obo file that PhenoteFX downloaded.
+     * @return path to the downloaded hp.obo file (hp.obo.gz if it is stored compressed)
      */
     public static File getLocalHpOboPath() {
         File phenoteFXpath = getPhenoteFXDir();
-        return new File(phenoteFXpath + File.separator + "hp.obo");
+        return OboFiles.locate(phenoteFXpath, "hp.obo");
     }
 
 
@@ -100,7 +101,7 @@ public class Platform {
     }
 
     public static boolean checkHPOFileDownloaded() {
-        File hpo =  new File(getPhenoteFXDir() + File.separator + "hp.obo");
+        File hpo = OboFiles.locate(getPhenoteFXDir(), "hp.obo");
         return  hpo.exists();
     }
 
@@ -109,12 +110,12 @@ public class Platform {
         return medgen.exists();
     }
     public static boolean checkMondoFileDownloaded() {
-        File mondo =  new File(getPhenoteFXDir() + File.separator + "mondo.obo");
+        File mondo = OboFiles.locate(getPhenoteFXDir(), "mondo.obo");
         return  mondo.exists();
     }
 
     public static boolean checkEctoFileDownloaded() {
-        File ecto =  new File(getPhenoteFXDir() + File.separator + "ecto.obo");
+        File ecto = OboFiles.locate(getPhenoteFXDir(), "ecto.obo");
         return  ecto.exists();
     }
 
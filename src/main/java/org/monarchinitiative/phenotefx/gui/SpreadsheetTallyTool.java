@@ -20,145 +20,85 @@ package org.monarchinitiative.phenotefx.gui;
  * #L%
  */
 
-import org.monarchinitiative.phenotefx.gui.infoviewer.InfoViewerFactory;
+import javafx.concurrent.Task;
+import javafx.scene.control.Button;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenotefx.tally.HpoTermMapper;
+import org.monarchinitiative.phenotefx.tally.HpoTermTally;
+import org.monarchinitiative.phenotefx.tally.SpreadsheetTally;
+import org.monarchinitiative.phenotefx.tally.TallyTable;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * A simple class to tally up mentions of features from typical spread sheets in which column 1 is the
- * name of the item and the other columns represent observations in individuals.
+ * name of the item and the other columns represent observations in individuals. The spreadsheet is tallied
+ * in a single pass on a background thread (see {@link SpreadsheetTally}), and the result is shown in a
+ * {@link TallyViewer}, which only renders the visible rows, so that large cohort tables open instantly.
  */
 public class SpreadsheetTallyTool {
+    private static final Logger logger = LogManager.getLogger();
 
     private final File spreadsheet;
-    private final Map<String, List<String>> items;
+
+    private HpoTermMapper hpoTermMapper = null;
+
+    private Consumer<List<HpoTermTally.Entry>> addToTable = null;
 
     public SpreadsheetTallyTool() {
         spreadsheet = PopUps.selectFileToOpen(null, null, "Open spreadsheet");
-        items = new HashMap<>();
+    }
+
+    /**
+     * Optionally offer to map the items to HPO terms.
+     * @param mapper maps the items to HPO terms
+     * @param addToTable called with the HPO terms that the curator chose to add to the current table
+     */
+    public void setHpoMapping(HpoTermMapper mapper, Consumer<List<HpoTermTally.Entry>> addToTable) {
+        this.hpoTermMapper = mapper;
+        this.addToTable = addToTable;
     }
 
     public void calculateTally() {
-        int uniqueint = 0;
+        if (spreadsheet == null) {
+            return; // the user cancelled
+        }
         if (! spreadsheet.exists()) {
             PopUps.showInfoMessage("Error", "Could not find spreadsheet");
             return;
         }
-        try (BufferedReader br = new BufferedReader(new FileReader(spreadsheet))) {
-            String line;
-            line = br.readLine(); // skip header
-            while ((line=br.readLine()) != null) {
-                String []fields = line.split("\t");
-                if (fields.length<2) {
-                    System.out.println("[ERROR] Skipping line (only one field):" + line);
-                    continue;
-                }
-                String itemname = fields[0];
-                if (itemname == null || itemname.isEmpty()) {
-                    continue;
-                }
-                if (items.containsKey(itemname)){
-                    // duplicate field name
-                    itemname = String.format("%s-%d", itemname, uniqueint++);
-                } else {
-                    items.put(itemname, new ArrayList<>());
-                }
-                for (int i=1;i<fields.length;i++) {
-                    String field = fields[i] ==null ? "n/a" : fields[i]; // replace null entries
-                    items.get(itemname).add(field);
-                }
+        Task<SpreadsheetTally> task = new Task<SpreadsheetTally>() {
+            @Override
+            protected SpreadsheetTally call() throws Exception {
+                long t0 = System.currentTimeMillis();
+                SpreadsheetTally tally = SpreadsheetTally.read(spreadsheet.toPath());
+                logger.info("Tallied {} items of {} in {} ms", tally.getItems().size(), spreadsheet.getName(),
+                        System.currentTimeMillis() - t0);
+                return tally;
             }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        StringBuilder sb = new StringBuilder();
-        sb.append(getHTMLHead());
-        for (String item : items.keySet()) {
-
-            List<String> itemlist = items.get(item);
-            Map<String, Long> counted = itemlist.stream()
-                    .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
-            sb.append(getTable(item, counted));
-        }
-        sb.append(getFooter());
-        InfoViewerFactory.openDialog(sb.toString());
+        };
+        task.setOnSucceeded(e -> showTally(task.getValue()));
+        task.setOnFailed(e -> PopUps.showException("Tally spreadsheet", "Could not read spreadsheet",
+                spreadsheet.getAbsolutePath(), (Exception) task.getException()));
+        Thread thread = new Thread(task, "spreadsheet-tally");
+        thread.setDaemon(true);
+        thread.start();
     }
 
-
-    private static String getTable(String title, Map<String, Long> counted) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<table>\n<caption>").append( title).append( "</caption>\n")
-                 .append("  <tr><th>Item</th><th>Count</th></tr>\n");
-        for (Map.Entry<String, Long> entry : counted.entrySet()) {
-            sb.append("<tr><td>" + entry.getKey() + "</td><td>" + entry.getValue() + "</td></tr>\n");
+    /** Show the tally in a table, with a button to map the items to HPO terms if a mapper was set. */
+    private void showTally(SpreadsheetTally tally) {
+        String description = String.format("%d items tallied from %s.", tally.getItems().size(), spreadsheet.getName());
+        TallyViewer viewer = new TallyViewer("PhenoteFX: Tallying Phenotypes from Spreadsheet", description,
+                TallyTable.of(tally));
+        if (hpoTermMapper != null) {
+            Button mapToHpo = new Button("Map to HPO terms");
+            mapToHpo.setOnAction(e -> new HpoTallyDialog(hpoTermMapper.tallySpreadsheet(tally), addToTable).show());
+            viewer.addButton(mapToHpo);
         }
-        sb.append("</table>\n<br/><br/>");
-        return sb.toString();
-    }
-
-
-
-    private static String getHTMLHead() {
-        return  "<html><body>\n" +
-                inlineCSS() +
-                "<h1>PhenoteFX: Tallying Phenotypes from Spreadsheet</h1>";
-
-    }
-
-    private static String getFooter() {
-        return  "</body></html>";
-    }
-
-    private static String inlineCSS() {
-        return "<head><style>\n" +
-                "  html { margin: 0; padding: 0; }" +
-                "body { font: 75% georgia, sans-serif; line-height: 1.88889;color: #001f3f; margin: 10; padding: 10; }"+
-                "p { margin-top: 0;text-align: justify;}"+
-                "h2,h3 {font-family: 'serif';font-size: 1.4em;font-style: normal;font-weight: bold;"+
-                "letter-spacing: 1px; margin-bottom: 0; color: #001f3f;}"+
-                "caption {\n" +
-                "  font-weight: bold;\n" +
-                "  text-align: left;\n" +
-                "  border-style: solid;\n" +
-                "  border-width: 1px;\n" +
-                "  border-color: #666666;\n" +
-                "}" +
-                "table {\n" +
-                "font-family: \"Lato\",\"sans-serif\";   }       /* added custom font-family  */\n" +
-                " \n" +
-                "table.one {                                  \n" +
-                "margin-bottom: 3em; \n" +
-                "border-collapse:collapse;   }   \n" +
-                " \n" +
-                "td {    \n" +
-                "text-align: center;     \n" +
-                "width: 10em;                    \n" +
-                "padding: 1em;       }       \n" +
-                " \n" +
-                "th {   \n" +
-                "text-align: center;                 \n" +
-                "padding: 1em;\n" +
-                "background-color: #e8503a;       /* added a red background color to the heading cells  */\n" +
-                "color: white;       }                 /* added a white font color to the heading text */\n" +
-                " \n" +
-                "tr {    \n" +
-                "height: 1em;    }\n" +
-                " \n" +
-                "table tr:nth-child(even) {            /* added all even rows a #eee color  */\n" +
-                "    background-color: #eee;     }\n" +
-                " \n" +
-                "table tr:nth-child(odd) {            /* added all odd rows a #fff color  */\n" +
-                "background-color:#fff;      }" +
-                "  </style></head>";
+        viewer.show();
     }
 
 }
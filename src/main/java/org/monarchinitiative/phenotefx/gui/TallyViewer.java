@@ -0,0 +1,170 @@
+package org.monarchinitiative.phenotefx.gui;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenotefx.tally.TallyTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Shows a {@link TallyTable} in a {@link TableView}. The items of the table are the row indices of the tally, and
+ * the cell values are only looked up for the rows that are visible, so that large tallies open instantly. The rows
+ * can be sorted by clicking on a column header and filtered by item or value, and the visible rows can be exported
+ * as tab-separated values or as an HTML report.
+ */
+public class TallyViewer {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final String title;
+
+    private final String description;
+
+    private final TallyTable tally;
+
+    private final List<Button> extraButtons = new ArrayList<>();
+
+    /**
+     * @param title title of the window and of the HTML report
+     * @param description short description shown above the table (may be null)
+     * @param tally the tally to show
+     */
+    public TallyViewer(String title, String description, TallyTable tally) {
+        this.title = title;
+        this.description = description;
+        this.tally = tally;
+    }
+
+    /** Add a button (e.g., to map the items to HPO terms) to the button bar. */
+    public void addButton(Button button) {
+        extraButtons.add(button);
+    }
+
+    public void show() {
+        ObservableList<Integer> rows = FXCollections.observableArrayList();
+        for (int i = 0; i < tally.size(); i++) {
+            rows.add(i);
+        }
+        FilteredList<Integer> filtered = new FilteredList<>(rows);
+        SortedList<Integer> sorted = new SortedList<>(filtered);
+
+        TableView<Integer> table = new TableView<>(sorted);
+        sorted.comparatorProperty().bind(table.comparatorProperty());
+        TableColumn<Integer, String> itemColumn = new TableColumn<>("Item");
+        itemColumn.setCellValueFactory(p -> new ReadOnlyStringWrapper(tally.getItem(p.getValue())));
+        TableColumn<Integer, String> valueColumn = new TableColumn<>("Value");
+        valueColumn.setCellValueFactory(p -> new ReadOnlyStringWrapper(tally.getValue(p.getValue())));
+        TableColumn<Integer, Integer> countColumn = new TableColumn<>("Count");
+        countColumn.setCellValueFactory(p -> new ReadOnlyObjectWrapper<>(tally.getCount(p.getValue())));
+        TableColumn<Integer, Double> percentageColumn = new TableColumn<>("%");
+        percentageColumn.setCellValueFactory(p -> new ReadOnlyObjectWrapper<>(tally.getPercentage(p.getValue())));
+        percentageColumn.setCellFactory(c -> new TableCell<Integer, Double>() {
+            @Override
+            protected void updateItem(Double value, boolean empty) {
+                super.updateItem(value, empty);
+                setText(empty || value == null ? null : String.format(Locale.ROOT, "%.1f", value));
+            }
+        });
+        itemColumn.setPrefWidth(250);
+        valueColumn.setPrefWidth(250);
+        table.getColumns().add(itemColumn);
+        table.getColumns().add(valueColumn);
+        table.getColumns().add(countColumn);
+        table.getColumns().add(percentageColumn);
+
+        TextField filter = new TextField();
+        filter.setPromptText("Filter items and values");
+        HBox.setHgrow(filter, Priority.ALWAYS);
+        Label shown = new Label();
+        filter.textProperty().addListener((obs, oldValue, newValue) -> {
+            String f = newValue == null ? "" : newValue.trim().toLowerCase(Locale.ROOT);
+            filtered.setPredicate(f.isEmpty() ? null : row ->
+                    tally.getItem(row).toLowerCase(Locale.ROOT).contains(f) ||
+                            tally.getValue(row).toLowerCase(Locale.ROOT).contains(f));
+            shown.setText(String.format("%d of %d rows", filtered.size(), tally.size()));
+        });
+        shown.setText(String.format("%d of %d rows", filtered.size(), tally.size()));
+
+        Stage window = new Stage();
+        Button exportTsv = new Button("Export TSV");
+        exportTsv.setOnAction(e -> export(window, sorted, false));
+        Button exportHtml = new Button("Export HTML");
+        exportHtml.setOnAction(e -> export(window, sorted, true));
+        HBox bar = new HBox(10, filter, shown, exportTsv, exportHtml);
+        bar.getChildren().addAll(extraButtons);
+        bar.setAlignment(Pos.CENTER_LEFT);
+        bar.setPadding(new Insets(5));
+        VBox top = new VBox(5);
+        top.setPadding(new Insets(5));
+        if (description != null) {
+            Label descriptionLabel = new Label(description);
+            descriptionLabel.setWrapText(true);
+            top.getChildren().add(descriptionLabel);
+        }
+        top.getChildren().add(bar);
+        BorderPane pane = new BorderPane(table);
+        pane.setTop(top);
+        window.setTitle(title);
+        window.setScene(new Scene(pane, 900, 700));
+        window.show();
+    }
+
+    /** Export the rows as they are currently filtered and sorted. */
+    private void export(Stage window, List<Integer> rows, boolean html) {
+        File file = PopUps.selectFileToSave(window, null, "Export tally", html ? "tally.html" : "tally.tsv");
+        if (file == null) {
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            if (html) {
+                tally.writeHtml(writer, title, rows);
+            } else {
+                tally.writeTsv(writer, rows);
+            }
+            logger.info("Exported {} rows of the tally to {}", rows.size(), file.getAbsolutePath());
+        } catch (IOException e) {
+            PopUps.showException("Export tally", "Could not export the tally", file.getAbsolutePath(), e);
+        }
+    }
+}
@@ -26,13 +26,25 @@ import impl.org.controlsfx.autocompletion.SuggestionProvider;
 import javafx.scene.control.TextField;
 import org.controlsfx.control.textfield.AutoCompletionBinding;
 
+import org.monarchinitiative.phenotefx.model.FractionIndex;
+import org.monarchinitiative.phenotefx.search.TermSearchIndex;
+
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * This class adds missing (in my opinion) functionality to {@link org.controlsfx.control.textfield.TextFields} class.
  * Created by Daniel Danis on 5/31/17.
  */
 public class WidthAwareTextFields {
+    /** Time in milliseconds that the user must stop typing before suggestions are searched for. */
+    private static final long SEARCH_DELAY_MS = 100;
+    /** Maximum number of suggestions taken from a {@link TermSearchIndex}. */
+    private static final int MAX_SUGGESTIONS = 100;
+    /** Maximum number of fractions suggested for a percentage. */
+    private static final int MAX_FRACTIONS = 20;
 
     /**
      * Create autocompletion binding between given {@link TextField} instance and Collection of possible suggestions.
@@ -50,4 +62,46 @@ public class WidthAwareTextFields {
         return k;
     }
 
-}
\ No newline at end of file
+    /**
+     * Create autocompletion binding that takes its suggestions from a {@link TermSearchIndex}. The suggestions are
+     * fetched by ControlsFX on a background thread once the user has stopped typing for {@link #SEARCH_DELAY_MS};
+     * a request that is superseded by further typing is cancelled and returns nothing. If there are only a few
+     * matches, similarly spelled labels are suggested as well (see {@link TermSearchIndex#suggest(String, int)}).
+     * @param textField TextField to which the suggestions will be offered.
+     * @param index index of labels and synonyms
+     * @return the binding
+     */
+    public static AutoCompletionBinding<String> bindWidthAwareAutoCompletion(TextField textField, TermSearchIndex index) {
+        AutoCompletionTextFieldBinding<String> k = new AutoCompletionTextFieldBinding<>(textField, request -> {
+            if (request.isCancelled()) {
+                return Collections.emptyList();
+            }
+            return index.suggest(request.getUserText(), MAX_SUGGESTIONS);
+        });
+        k.setDelay(SEARCH_DELAY_MS);
+        k.minWidthProperty().bind(textField.widthProperty());
+        return k;
+    }
+
+    /**
+     * Create autocompletion binding for a frequency field: if the user types a percentage such as "54%", the
+     * closest fractions (e.g., 7/13) are suggested, and choosing one replaces the percentage. Other input, such
+     * as a fraction or an HPO frequency term, gets no suggestions.
+     * @param textField TextField to which the suggestions will be offered.
+     * @param index index of fractions
+     * @return the binding
+     */
+    public static AutoCompletionBinding<String> bindFractionAutoCompletion(TextField textField, FractionIndex index) {
+        AutoCompletionTextFieldBinding<String> k = new AutoCompletionTextFieldBinding<>(textField, request -> {
+            Optional<Double> percentage = FractionIndex.parsePercentage(request.getUserText());
+            if (request.isCancelled() || !percentage.isPresent() || !request.getUserText().contains("%")) {
+                return Collections.<String>emptyList();
+            }
+            return index.nearest(percentage.get(), FractionIndex.DEFAULT_TOLERANCE, MAX_FRACTIONS)
+                    .stream().map(FractionIndex.Fraction::toString).collect(Collectors.toList());
+        });
+        k.minWidthProperty().bind(textField.widthProperty());
+        return k;
+    }
+
+}
@@ -23,6 +23,7 @@ package org.monarchinitiative.phenotefx.gui.editrow;
 
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import org.monarchinitiative.phenotefx.model.FractionIndex;
 import org.monarchinitiative.phenotefx.model.PhenoRow;
 
 /**
@@ -34,7 +35,7 @@ public class EditRowFactory {
         String windowTitle = "Edit current frequency";
         String label="frequency";
         String currentFrequency=phenorow.getFrequency();
-        return showDialog(currentFrequency,windowTitle, label);
+        return showDialog(currentFrequency, windowTitle, label, false, true);
     }
 
     /**
@@ -68,6 +69,14 @@ public class EditRowFactory {
      * @return value entered by user
      */
     private static String showDialog(String initialText, String windowTitle, String label, boolean removeWhitespace) {
+        return showDialog(initialText, windowTitle, label, removeWhitespace, false);
+    }
+
+    /**
+     * @param suggestFractions if true, fractions such as 7/13 are suggested when the user types a percentage
+     */
+    private static String showDialog(String initialText, String windowTitle, String label, boolean removeWhitespace,
+                                     boolean suggestFractions) {
         Stage window;
         window = new Stage();
         window.setOnCloseRequest( event -> window.close() );
@@ -81,6 +90,9 @@ public class EditRowFactory {
         if (removeWhitespace) {
             presenter.setRemoveWhitespace();
         }
+        if (suggestFractions) {
+            presenter.setFractionSuggestions(FractionIndex.factory());
+        }
         presenter.setSignal(signal -> {
             switch (signal) {
                 case DONE:
@@ -27,6 +27,8 @@ import javafx.scene.control.TextField;
 import javafx.stage.Stage;
 import org.monarchinitiative.phenotefx.gui.PopUps;
 import org.monarchinitiative.phenotefx.gui.Signal;
+import org.monarchinitiative.phenotefx.gui.WidthAwareTextFields;
+import org.monarchinitiative.phenotefx.model.FractionIndex;
 
 import java.net.URL;
 import java.util.ResourceBundle;
@@ -146,6 +148,13 @@ public class EditRowPresenter implements Initializable {
 
     }
 
+    /**
+     * Suggest fractions such as 7/13 when the user types a percentage such as 54% (used for the frequency).
+     */
+    void setFractionSuggestions(FractionIndex index) {
+        WidthAwareTextFields.bindFractionAutoCompletion(textField, index);
+    }
+
     public void setLabel(String text) {
         this.mylabel.setText(text);
     }
@@ -22,20 +22,79 @@ package org.monarchinitiative.phenotefx.gui.logviewer;
 
 
 import java.util.Collection;
-import java.util.concurrent.BlockingDeque;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * Fixed-capacity ring buffer of log records with a single writer and any number of readers. Each record gets a
+ * sequence number; readers keep track of the next sequence number they want to read and are never blocked by the
+ * writer. If the writer is faster than a reader, the oldest records are overwritten (dropped), so that the memory
+ * used by the log does not grow with the number of records that were logged.
+ */
 class Log {
-    private static final int MAX_LOG_ENTRIES = 1_000_000;
+    static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final AtomicReferenceArray<LogRecord> slots;
+
+    private final int mask;
+    /** Sequence number of the record that is being written (set before the slot is overwritten). */
+    private final AtomicLong claimed = new AtomicLong();
+    /** Number of records that have been written completely, i.e., the next sequence number. */
+    private final AtomicLong published = new AtomicLong();
 
-    private final BlockingDeque<LogRecord> log = new LinkedBlockingDeque<>(MAX_LOG_ENTRIES);
+    Log() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** @param capacity maximum number of records kept; rounded up to a power of two */
+    Log(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
 
-    void drainTo(Collection<? super LogRecord> collection) {
-        log.drainTo(collection);
+    int capacity() {
+        return slots.length();
     }
 
+    /** @return the sequence number that the next record will get. */
+    long nextSequence() {
+        return published.get();
+    }
+
+    /** Append a record, overwriting the oldest one if the buffer is full. Must only be called by one thread. */
     void offer(LogRecord record) {
-        log.offer(record);
+        long seq = published.get();
+        claimed.set(seq + 1);
+        slots.set((int) (seq & mask), record);
+        published.lazySet(seq + 1);
     }
-}
 
+    /**
+     * Add the records from {@code sequence} on to the collection, but at most the newest {@code max} of them.
+     * Records that were overwritten before they could be read are skipped.
+     * @param sequence the sequence number of the first record the reader wants
+     * @param collection the collection to which the records are added
+     * @param max maximum number of records to add
+     * @return the sequence number to pass to the next call
+     */
+    long drainTo(long sequence, Collection<? super LogRecord> collection, int max) {
+        long end = published.get();
+        long start = Math.max(sequence, end - Math.min(max, slots.length()));
+        for (long s = start; s < end; s++) {
+            LogRecord record = slots.get((int) (s & mask));
+            if (claimed.get() - slots.length() > s) {
+                // the writer has lapped us, this slot (and the older ones) may already hold newer records
+                continue;
+            }
+            collection.add(record);
+        }
+        return end;
+    }
+}
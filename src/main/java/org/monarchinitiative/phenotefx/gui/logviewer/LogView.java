@@ -32,6 +32,9 @@ import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.util.Duration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class LogView extends ListView<LogRecord> {
 
     private static final int MAX_ENTRIES = 10_000;
@@ -52,6 +55,8 @@ public class LogView extends ListView<LogRecord> {
     private final DoubleProperty refreshRate = new SimpleDoubleProperty(60);
 
     private final ObservableList<LogRecord> logItems = FXCollections.observableArrayList();
+    /** Sequence number of the next record to take from the log. */
+    private long nextSequence = 0;
 
     BooleanProperty showTimeStampProperty() {
         return showTimestamp;
@@ -79,7 +84,9 @@ public class LogView extends ListView<LogRecord> {
                 new KeyFrame(
                         Duration.seconds(1),
                         event -> {
-                            mylogger.getLog().drainTo(logItems);
+                            List<LogRecord> batch = new ArrayList<>();
+                            nextSequence = mylogger.getLog().drainTo(nextSequence, batch, MAX_ENTRIES);
+                            logItems.addAll(batch);
 
                             if (logItems.size() > MAX_ENTRIES) {
                                 logItems.remove(0, logItems.size() - MAX_ENTRIES);
@@ -20,6 +20,9 @@ package org.monarchinitiative.phenotefx.gui.logviewer;
  * #L%
  */
 
+/**
+ * Writes records to a {@link Log}. The log has a single writer, so a logger must only be used by one thread.
+ */
 public class MyLogger {
 
     private final Log log;
@@ -70,10 +70,15 @@ import org.monarchinitiative.phenotefx.gui.riskfactorpopup.RiskFactorFactory;
 import org.monarchinitiative.phenotefx.gui.riskfactorpopup.RiskFactorPresenter;
 import org.monarchinitiative.phenotefx.gui.settings.SettingsViewFactory;
 import org.monarchinitiative.phenotefx.io.*;
+import org.monarchinitiative.phenotefx.model.FractionIndex;
 import org.monarchinitiative.phenotefx.model.Frequency;
 import org.monarchinitiative.phenotefx.model.HPOOnset;
 import org.monarchinitiative.phenotefx.model.PhenoRow;
 import org.monarchinitiative.phenotefx.model.Settings;
+import org.monarchinitiative.phenotefx.search.TermSearchIndex;
+import org.monarchinitiative.phenotefx.tally.HpoTermMapper;
+import org.monarchinitiative.phenotefx.tally.HpoTermTally;
+import org.monarchinitiative.phenotefx.service.ResourceLoader;
 import org.monarchinitiative.phenotefx.service.Resources;
 import org.monarchinitiative.phenotefx.validation.LoginValidator;
 import org.monarchinitiative.phenotefx.validation.LoginValidatorDumb;
@@ -91,6 +96,7 @@ import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -137,6 +143,8 @@ public class PhenotePresenter implements Initializable {
     @FXML
     private MenuItem openByMimMenuItem;
     @FXML
+    private MenuItem openByDiseaseNameMenuItem;
+    @FXML
     private MenuItem updateDiseaseNameMenuItem;
     @FXML
     private ChoiceBox<String> ageOfOnsetChoiceBox;
@@ -173,13 +181,16 @@ public class PhenotePresenter implements Initializable {
     private Settings settings = null;
 
     private Map<String, String> omimName2IdMap;
-    private Map<String, String> mondoName2IdMap;
 
     private Map<String, String> hponame2idMap;
 
     private Map<String, String> hpoModifer2idMap;
 
     private Map<String, String> hpoSynonym2LabelMap;
+    /** Autocompletion index of the HPO labels and synonyms (see {@link #setupAutocomplete()}). */
+    private TermSearchIndex hpoSearchIndex;
+    /** Maps items of the tally tools to HPO terms; created on first use. */
+    private HpoTermMapper hpoTermMapper = null;
 
     private HPOOnset hpoOnset;
     /**
@@ -340,6 +351,7 @@ public class PhenotePresenter implements Initializable {
         this.descriptiontextField.setPromptText("free text description of anything not captured with standards (optional)");
         this.pubTextField.setPromptText("Source of assertion (usually PubMed, OMIM, Orphanet...)");
         this.frequencyTextField.setPromptText("A value such as 7/13 or 54% (leave empty if pulldown used)");
+        WidthAwareTextFields.bindFractionAutoCompletion(frequencyTextField, FractionIndex.factory());
         this.diseaseIDlabel.setTooltip(new Tooltip("Name of a disease (OMIM IDs will be automatically populated)"));
         this.modifiertextField.setPromptText("Autocomplete label of HPO modifier term");
         /* The following removes whitespace if the user pastes in a PMID */
@@ -357,6 +369,10 @@ public class PhenotePresenter implements Initializable {
         addRiskFactor.setVisible(false);
         commonDiseaseModule.addListener((observable, oldValue, newValue) -> {
                     addRiskFactor.setVisible(newValue);
+                    if (newValue && resources != null) {
+                        // start parsing Mondo and ECTO now so they are ready when the dialog is opened
+                        resources.prefetchCommonDiseaseResources();
+                    }
                 });
         tableTitleLabel.setText("");
         phenolist.addListener(new ListChangeListener<PhenoRow>() {
@@ -421,6 +437,7 @@ public class PhenotePresenter implements Initializable {
         this.newMenuItem.setAccelerator(new KeyCodeCombination(KeyCode.N, KeyCombination.SHORTCUT_DOWN));
         this.openFileMenuItem.setAccelerator(new KeyCodeCombination(KeyCode.O, KeyCombination.SHORTCUT_DOWN));
         this.openByMimMenuItem.setAccelerator(new KeyCodeCombination(KeyCode.M, KeyCombination.SHORTCUT_DOWN));
+        this.openByDiseaseNameMenuItem.setAccelerator(new KeyCodeCombination(KeyCode.O, KeyCombination.SHIFT_DOWN, KeyCombination.SHORTCUT_DOWN));
         this.saveMenuItem.setAccelerator(new KeyCodeCombination(KeyCode.S, KeyCombination.SHORTCUT_DOWN));
         this.saveAsMenuItem.setAccelerator(new KeyCodeCombination(KeyCode.S, KeyCombination.SHIFT_DOWN, KeyCombination.SHORTCUT_DOWN));
         this.closeMenuItem.setAccelerator(new KeyCodeCombination(KeyCode.C, KeyCombination.SHORTCUT_DOWN));
@@ -443,47 +460,32 @@ public class PhenotePresenter implements Initializable {
      * Maps with HPO and Disease name information for the autocompletes.
      */
     private void initResources(DoubleProperty progress) {
-        long start = System.currentTimeMillis();
-
+        AtomicInteger loaded = new AtomicInteger();
         try {
-            MedGenParser medGenParser = new MedGenParser();
-            if (progress != null) {
-                progress.setValue(25);
-            }
-
-            MondoParser mondoParser = new MondoParser();
-            if (progress != null) {
-                progress.setValue(50);
-            }
-
-            HPOParser hpoParser = new HPOParser();
-            if (progress != null) {
-                progress.setValue(75);
-            }
-
-            EctoParser ectoParser = new EctoParser();
-            if (progress != null) {
-                progress.setValue(90);
-            }
-
-            resources = new Resources(medGenParser, hpoParser, mondoParser, ectoParser);
+            ResourceLoader loader = new ResourceLoader();
+            resources = loader.load(name -> {
+                int n = loaded.incrementAndGet();
+                logger.trace("Loaded {} ({}/{})", name, n, ResourceLoader.N_RESOURCES);
+                if (progress != null) {
+                    progress.setValue(100.0 * n / ResourceLoader.N_RESOURCES);
+                }
+            });
         } catch (PhenoteFxException e) {
             String msg = "Could not initiate hpo, mondo or ecto ontology file.";
             logger.error(msg);
             ErrorDialog.displayException("Error", msg, e);
         }
 
-        long end = System.currentTimeMillis();
-        //multi threading does not seem to help. Concurrency probably does not work for IO operations.
-        //https://stackoverflow.com/questions/902425/does-multithreading-make-sense-for-io-bound-operations
-        logger.info(String.format("time cost for parsing resources: %ds",  (end - start)/1000));
         omimName2IdMap = resources.getOmimName2IdMap();
-        mondoName2IdMap = resources.getMondoDiseaseName2IdMap();
         ontology = resources.getHPO();
         hponame2idMap = resources.getHpoName2IDmap();
         hpoSynonym2LabelMap = resources.getHpoSynonym2PreferredLabelMap();
         hpoModifer2idMap = resources.getModifierMap();
+        // build the autocompletion index here rather than on the FX thread
+        hpoSearchIndex = resources.getHpoSearchIndex();
         logger.trace("Done input HPO/MedGen");
+        // write snapshots of any ontology that had to be parsed from OBO so that the next startup is faster
+        resources.cache();
     }
 
     /**
@@ -503,15 +505,12 @@ public class PhenotePresenter implements Initializable {
             sb.append("MedGen_HPO_OMIM_Mapping.txt.gz not found. ");
             ready = false;
         }
-        boolean mondoReady = org.monarchinitiative.phenotefx.gui.Platform.checkMondoFileDownloaded();
-        if (!mondoReady) {
-            sb.append("Mondo File not found. ");
-            ready = false;
+        // Mondo and ECTO are only needed by the common disease module and are checked when it is opened
+        if (!org.monarchinitiative.phenotefx.gui.Platform.checkMondoFileDownloaded()) {
+            logger.warn("mondo.obo not found; the risk factor dialog will not be available");
         }
-        boolean ectoReady = org.monarchinitiative.phenotefx.gui.Platform.checkEctoFileDownloaded();
-        if (!ectoReady) {
-            sb.append("Ecto File not found. ");
-            ready = false;
+        if (!org.monarchinitiative.phenotefx.gui.Platform.checkEctoFileDownloaded()) {
+            logger.warn("ecto.obo not found; the risk factor dialog will not be available");
         }
         if (!ready) {
             sb.append("You need to download the files before working with annotation data.");
@@ -644,8 +643,8 @@ public class PhenotePresenter implements Initializable {
      * Uses the {@link WidthAwareTextFields} class to set up autocompletion for the disease name and the HPO name
      */
     private void setupAutocomplete() {
-        if (hpoSynonym2LabelMap != null) {
-            WidthAwareTextFields.bindWidthAwareAutoCompletion(hpoNameTextField, hpoSynonym2LabelMap.keySet());
+        if (hpoSearchIndex != null) {
+            WidthAwareTextFields.bindWidthAwareAutoCompletion(hpoNameTextField, hpoSearchIndex);
         }
         if (hpoModifer2idMap != null) {
             WidthAwareTextFields.bindWidthAwareAutoCompletion(modifiertextField, hpoModifer2idMap.keySet());
@@ -1341,7 +1340,7 @@ public class PhenotePresenter implements Initializable {
         e.consume();
         FileChooser chooser = new FileChooser();
         chooser.setTitle("Import local hp.obo file");
-        FileChooser.ExtensionFilter extFilter = new FileChooser.ExtensionFilter("HPO OBO file (*.obo)", "*.obo");
+        FileChooser.ExtensionFilter extFilter = new FileChooser.ExtensionFilter("HPO OBO file (*.obo, *.obo.gz)", "*.obo", "*.obo.gz");
         chooser.getExtensionFilters().add(extFilter);
         File f = chooser.showOpenDialog(null);
         if (f == null) {
@@ -1354,6 +1353,8 @@ public class PhenotePresenter implements Initializable {
             HPOParser parser = new HPOParser(hpoOboPath);
             hponame2idMap = parser.getHpoName2IDmap();
             hpoSynonym2LabelMap = parser.getHpoSynonym2PreferredLabelMap();
+            hpoSearchIndex = new TermSearchIndex(hpoSynonym2LabelMap);
+            hpoTermMapper = null;
             setupAutocomplete();
         } catch (Exception ex) {
             ex.printStackTrace();
@@ -1370,11 +1371,13 @@ public class PhenotePresenter implements Initializable {
     public void downloadHPO(ActionEvent event) {
         ProgressPopup ppopup = new ProgressPopup("HPO download", "downloading hp.obo...");
         ProgressIndicator progressIndicator = ppopup.getProgressIndicator();
-        String basename = "hp.obo";
+        String basename = "hp.obo" + OboFiles.GZIP_SUFFIX;
         File dir = Platform.getPhenoteFXDir();
         Downloader downloadTask = new Downloader(dir.getAbsolutePath(), HP_OBO_URL, basename, progressIndicator);
+        downloadTask.setCompressed(true);
         downloadTask.setOnSucceeded(e -> {
             String abspath = (new File(dir.getAbsolutePath() + File.separator + basename)).getAbsolutePath();
+            OboFiles.deleteUncompressed(new File(abspath));
             logger.trace("Setting hp.obo path to " + abspath);
             saveSettings();
             this.settings.setHpoFile(abspath);
@@ -1431,11 +1434,13 @@ public class PhenotePresenter implements Initializable {
     public void downloadMondo(ActionEvent event) {
         ProgressPopup ppopup = new ProgressPopup("Mondo download", "downloading mondo.obo...");
         ProgressIndicator progressIndicator = ppopup.getProgressIndicator();
-        String basename = "mondo.obo";
+        String basename = "mondo.obo" + OboFiles.GZIP_SUFFIX;
         File dir = Platform.getPhenoteFXDir();
         Downloader downloadTask = new Downloader(dir.getAbsolutePath(), MONDO_URL, basename, progressIndicator);
+        downloadTask.setCompressed(true);
         downloadTask.setOnSucceeded(e -> {
             String abspath = (new File(dir.getAbsolutePath() + File.separator + basename)).getAbsolutePath();
+            OboFiles.deleteUncompressed(new File(abspath));
             logger.trace("Setting mondo.obo path to " + abspath);
             this.settings.setMondoFile(abspath);
             saveSettings();
@@ -1457,11 +1462,13 @@ public class PhenotePresenter implements Initializable {
     public void downloadEcto(ActionEvent event) {
         ProgressPopup ppopup = new ProgressPopup("Ecto download", "downloading ecto.obo...");
         ProgressIndicator progressIndicator = ppopup.getProgressIndicator();
-        String basename = "ecto.obo";
+        String basename = "ecto.obo" + OboFiles.GZIP_SUFFIX;
         File dir = Platform.getPhenoteFXDir();
         Downloader downloadTask = new Downloader(dir.getAbsolutePath(), ECTO_OBO_URL, basename, progressIndicator);
+        downloadTask.setCompressed(true);
         downloadTask.setOnSucceeded(e -> {
             String abspath = (new File(dir.getAbsolutePath() + File.separator + basename)).getAbsolutePath();
+            OboFiles.deleteUncompressed(new File(abspath));
             logger.trace("Setting hp.obo path to " + abspath);
             this.settings.setEctoFile(abspath);
             saveSettings();
@@ -1477,6 +1484,59 @@ public class PhenotePresenter implements Initializable {
     }
 
 
+    /**
+     * Download hp.obo, mondo.obo, ecto.obo and the MedGen file concurrently to the .phenotefx directory; the OBO
+     * files are stored gzip-compressed. Files that are up to date are not downloaded again. The paths of the files that could be downloaded are set in
+     * the settings.
+     */
+    public void downloadAllResources(ActionEvent event) {
+        ProgressPopup ppopup = new ProgressPopup("Download", "downloading HPO, Mondo, ECTO and MedGen...");
+        File dir = Platform.getPhenoteFXDir();
+        Map<ResourceFetcher.Resource, Consumer<String>> resources = new LinkedHashMap<>();
+        resources.put(ResourceFetcher.Resource.compressed(HP_OBO_URL,
+                new File(dir, "hp.obo" + OboFiles.GZIP_SUFFIX).toPath()),
+                path -> settings.setHpoFile(path));
+        resources.put(ResourceFetcher.Resource.compressed(MONDO_URL,
+                new File(dir, "mondo.obo" + OboFiles.GZIP_SUFFIX).toPath()),
+                path -> settings.setMondoFile(path));
+        resources.put(ResourceFetcher.Resource.compressed(ECTO_OBO_URL,
+                new File(dir, "ecto.obo" + OboFiles.GZIP_SUFFIX).toPath()),
+                path -> settings.setEctoFile(path));
+        resources.put(new ResourceFetcher.Resource(MEDGEN_URL, new File(dir, MEDGEN_BASENAME).toPath()),
+                path -> settings.setMedgenFile(path));
+        Task<List<ResourceFetcher.Result>> downloadTask = new Task<List<ResourceFetcher.Result>>() {
+            @Override
+            protected List<ResourceFetcher.Result> call() throws InterruptedException {
+                return new ResourceFetcher().fetchAll(new ArrayList<>(resources.keySet()), resources.size());
+            }
+        };
+        downloadTask.setOnSucceeded(e -> {
+            List<String> failed = new ArrayList<>();
+            for (ResourceFetcher.Result result : downloadTask.getValue()) {
+                if (result.isSuccess()) {
+                    File file = result.getResource().getTarget().toFile();
+                    OboFiles.deleteUncompressed(file);
+                    resources.get(result.getResource()).accept(file.getAbsolutePath());
+                } else {
+                    failed.add(String.format("%s: %s", result.getResource(), result.getError().getMessage()));
+                }
+            }
+            saveSettings();
+            ppopup.close();
+            if (!failed.isEmpty()) {
+                PopUps.showInfoMessage(String.join("\n", failed), "Download Error");
+            }
+        });
+        downloadTask.setOnFailed(e -> {
+            logger.error("Download of resources failed", downloadTask.getException());
+            PopUps.showInfoMessage("Download of resources failed", "Error");
+            ppopup.close();
+        });
+        ppopup.startProgress(downloadTask);
+        event.consume();
+    }
+
+
     @FXML
     private void updateAllOutdatedTermLabels(ActionEvent e) {
         System.out.println("Updating outdated labels");
@@ -1485,7 +1545,26 @@ public class PhenotePresenter implements Initializable {
             initResources(null);
         }
         TermLabelUpdater updater = new TermLabelUpdater(smallfilepath, ontology);
-        updater.replaceOutOfDateLabels();
+        ProgressPopup ppopup = new ProgressPopup("Updating labels", "Checking for outdated TermIds and labels...");
+        ppopup.getProgressIndicator().progressProperty().bind(updater.progressProperty());
+        updater.setOnSucceeded(event -> {
+            ppopup.close();
+            updater.showSummary();
+        });
+        updater.setOnCancelled(event -> {
+            ppopup.close();
+            // the worker may still be collecting results; show the partial summary once it has returned
+            updater.whenFinished(() -> javafx.application.Platform.runLater(updater::showSummary));
+        });
+        updater.setOnFailed(event -> {
+            ppopup.close();
+            Throwable t = updater.getException();
+            logger.error("Could not update outdated labels", t);
+            PopUps.showException("Error", "Could not update outdated labels",
+                    "Small files that were already updated have been written",
+                    t instanceof Exception ? (Exception) t : new RuntimeException(t));
+        });
+        ppopup.startCancellableProgress(updater);
     }
 
 
@@ -1498,6 +1577,14 @@ public class PhenotePresenter implements Initializable {
      * @param isNegated if true, this is a NOT annotation.
      */
     private void addTextMinedAnnotation(String hpoid, String hpoLabel, String pmid, boolean isNegated, boolean oneOfOne) {
+        addTextMinedAnnotation(hpoid, hpoLabel, pmid, isNegated, oneOfOne ? "1/1" : null);
+    }
+
+    /**
+     * As above, but with an arbitrary frequency.
+     * @param frequency frequency such as "7/13", or null if the frequency is not known
+     */
+    private void addTextMinedAnnotation(String hpoid, String hpoLabel, String pmid, boolean isNegated, String frequency) {
         if (needsMoreTimeToInitialize()) return;
         PhenoRow textMinedRow = new PhenoRow();
         textMinedRow.setPhenotypeName(hpoLabel);
@@ -1515,8 +1602,8 @@ public class PhenotePresenter implements Initializable {
         if (isNegated) {
             textMinedRow.setNegation("NOT");
         }
-        if (oneOfOne) {
-            textMinedRow.setFrequency("1/1");
+        if (frequency != null) {
+            textMinedRow.setFrequency(frequency);
         }
         textMinedRow.setEvidence("PCS");
 
@@ -1982,17 +2069,31 @@ public class PhenotePresenter implements Initializable {
         }
     }
 
+    /**
+     * Ask the user whether to discard unsaved changes to the current annotation file, if there are any. The dirty
+     * flag is left alone, because the user may still cancel before the table is replaced
+     * (see {@link #replaceTable(File)}).
+     * @return false if the user wants to keep the changes
+     */
+    private boolean confirmDiscard() {
+        if (dirty && !phenolist.isEmpty()) {
+            return PopUps.getBooleanFromUser("Discard unsaved changes?", "Unsaved work on current annotation file", "Discard unsaved work?");
+        }
+        return true;
+    }
+
+    /** Replace the contents of the table by the annotations of the given file. */
+    private void replaceTable(File f) {
+        clearFields();
+        table.getItems().clear();
+        dirty = false;
+        populateTable(f);
+    }
+
     @FXML
     public void openByMIMnumber() {
         if (needsMoreTimeToInitialize()) return;
-        if (dirty && !phenolist.isEmpty()) {
-            boolean discard = PopUps.getBooleanFromUser("Discard unsaved changes?", "Unsaved work on current annotation file", "Discard unsaved work?");
-            if (discard) {
-                dirty = true;
-            } else {
-                return;
-            }
-        }
+        if (!confirmDiscard()) return;
         String dirpath = settings.getDefaultDirectory();
         if (dirpath == null) {
             PopUps.showInfoMessage("Please set default Phenote directory\n in Settings menu",
@@ -2027,10 +2128,28 @@ public class PhenotePresenter implements Initializable {
                     "Error: Malformed MIM ID");
             return;
         }
-        clearFields();
-        table.getItems().clear();
-        populateTable(f);
+        replaceTable(f);
+    }
 
+    /**
+     * Let the user search the OMIM and Mondo diseases by name or id and open the annotation file of one of them.
+     * The disease index is built in the background the first time this is called. The dialog is not modal, so the
+     * user is asked whether to discard unsaved changes only when a file is actually opened.
+     */
+    @FXML
+    public void openByDiseaseName() {
+        if (needsMoreTimeToInitialize()) return;
+        String dirpath = settings.getDefaultDirectory();
+        if (dirpath == null) {
+            PopUps.showInfoMessage("Please set default Phenote directory\n in Settings menu",
+                    "Error: Default directory not set");
+            return;
+        }
+        resources.loadDiseaseIndex().thenAccept(index -> javafx.application.Platform.runLater(() ->
+                new OpenDiseaseDialog(index, new File(dirpath), f -> {
+                    if (!confirmDiscard()) return;
+                    replaceTable(f);
+                }).show()));
     }
 
     @FXML
@@ -2056,6 +2175,9 @@ public class PhenotePresenter implements Initializable {
     private void tallyPhenotypeSpreadsheet(ActionEvent e) {
         e.consume();
         SpreadsheetTallyTool tool = new SpreadsheetTallyTool();
+        if (doneInitializingOntology) {
+            tool.setHpoMapping(getHpoTermMapper(), this::addTalliedAnnotations);
+        }
         tool.calculateTally();
     }
 
@@ -2069,9 +2191,40 @@ public class PhenotePresenter implements Initializable {
         e.consume();
         String cp = PopUps.getCopyPasteTallyRow();
         RowTallyTool tool = new RowTallyTool(cp);
+        if (doneInitializingOntology) {
+            tool.setHpoMapping(getHpoTermMapper(), this::addTalliedAnnotations);
+        }
         tool.showTable();
     }
 
+    /** @return the mapper from tallied items to HPO terms (created on first use and shared by the tally tools). */
+    private HpoTermMapper getHpoTermMapper() {
+        if (hpoTermMapper == null) {
+            hpoTermMapper = new HpoTermMapper(hpoSynonym2LabelMap, hponame2idMap, hpoSearchIndex);
+        }
+        return hpoTermMapper;
+    }
+
+    /**
+     * Add the HPO terms chosen from a tally as annotations with their n/m frequencies. Terms that were
+     * reported but observed in no individual are added as NOT annotations.
+     * @param entries HPO terms with frequencies
+     */
+    private void addTalliedAnnotations(List<HpoTermTally.Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        String pmid = PopUps.getStringFromUser("PubMed id", "PMID:", "Publication of the tallied data");
+        if (pmid == null || pmid.trim().isEmpty() || pmid.trim().equals("PMID:")) {
+            pmid = "UNKNOWN";
+        }
+        for (HpoTermTally.Entry entry : entries) {
+            addTextMinedAnnotation(entry.getTermId(), entry.getLabel(), pmid.trim(), entry.isExcluded(),
+                    entry.getFrequency());
+        }
+        dirty = true;
+    }
+
 
     @FXML
     private void change_module_requested(ActionEvent e) {
@@ -2120,6 +2273,12 @@ public class PhenotePresenter implements Initializable {
     private void addRiskFactor(ActionEvent e) {
         logger.info("addRiskFactor button is pressed");
         e.consume();
+        if (!org.monarchinitiative.phenotefx.gui.Platform.checkMondoFileDownloaded() ||
+                !org.monarchinitiative.phenotefx.gui.Platform.checkEctoFileDownloaded()) {
+            PopUps.showInfoMessage("Download mondo.obo and ecto.obo with the commands in the Setup menu " +
+                    "before adding risk factors", "Mondo or ECTO not found");
+            return;
+        }
         RiskFactorFactory factory = new RiskFactorFactory(resources);
         List<RiskFactorPresenter.RiskFactorRow> results = factory.showDialog();
         //TODO: add risk factor to the result
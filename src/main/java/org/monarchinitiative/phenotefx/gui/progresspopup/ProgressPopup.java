@@ -23,6 +23,7 @@ package org.monarchinitiative.phenotefx.gui.progresspopup;
 import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressIndicator;
 import javafx.scene.layout.FlowPane;
@@ -56,6 +57,30 @@ public class ProgressPopup {
     }
 
 
+    /**
+     * Like {@link #startProgress(Task)}, but with a Cancel button that cancels the task. Closing the window
+     * also cancels the task.
+     */
+    public void startCancellableProgress(final Task task) {
+        Label label=new Label(progressLabel);
+        Button cancel = new Button("Cancel");
+        cancel.setOnAction(e -> task.cancel());
+        FlowPane root = new FlowPane();
+        root.setPadding(new Insets(10));
+        root.setHgap(10);
+        root.getChildren().addAll(label,pb,cancel);
+        Scene scene = new Scene(root, 400, 100);
+        window = new Stage();
+        window.setTitle(this.progressTitle);
+        window.setScene(scene);
+        window.setOnCloseRequest(e -> task.cancel());
+        window.show();
+        Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+
     public ProgressPopup(String title, String label) {
         progressTitle=title;
         progressLabel=label;
@@ -20,6 +20,7 @@ package org.monarchinitiative.phenotefx.gui.riskfactorpopup;
  * #L%
  */
 
+import javafx.application.Platform;
 import javafx.beans.property.SimpleFloatProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -36,12 +37,14 @@ import javafx.stage.Stage;
 import org.controlsfx.control.textfield.AutoCompletionBinding;
 import org.monarchinitiative.phenotefx.gui.Signal;
 import org.monarchinitiative.phenotefx.gui.WidthAwareTextFields;
+import org.monarchinitiative.phenotefx.search.TermSearchIndex;
 import org.monarchinitiative.phenotefx.service.Resources;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 //@TODO: inject some resources
@@ -98,8 +101,8 @@ public class RiskFactorPresenter implements Initializable {
     @FXML
     private TableColumn<RiskFactorRow, String> timeUnitColumn;
 
-    //This is a pointer to different maps, depending on the value of riskFactorCombo
-    private Map<String, String> riskFactorMap = new HashMap<>();
+    //This is a pointer to the shared search index of HPO, Mondo or ECTO, depending on the value of riskFactorCombo
+    private TermSearchIndex riskFactorIndex = null;
     private AutoCompletionBinding autoCompletionBinding;
 
     private Consumer<Signal> confirm;
@@ -142,35 +145,46 @@ public class RiskFactorPresenter implements Initializable {
                 if (autoCompletionBinding != null) {
                     autoCompletionBinding.dispose();
                 }
-                bindName2IdMap(newValue);
-                autoCompletionBinding =
-                        WidthAwareTextFields.bindWidthAwareAutoCompletion(riskFactorTextField,
-                        riskFactorMap.keySet());
-                autoCompletionBinding.setVisibleRowCount(10);
+                autoCompletionBinding = null;
+                bindSearchIndex(newValue);
             }
         });
         initRiskFactorTable();
     }
 
-    private void bindName2IdMap(RiskFactor riskFactor) {
-
+    /**
+     * Bind the autocompletion of the risk factor text field to the vocabulary of the given risk factor type. Mondo
+     * and ECTO may still be loading, so the index is bound on the FX thread once it is available, unless the user
+     * has chosen a different type in the meantime.
+     */
+    private void bindSearchIndex(RiskFactor riskFactor) {
+        riskFactorIndex = null;
+        if (riskFactor == null) {
+            return;
+        }
+        CompletableFuture<TermSearchIndex> index;
         switch (riskFactor) {
             case HPO_Phenotype: //bind to hpo terms
-                riskFactorMap.clear();
-                riskFactorMap.putAll(resources.getHpoSynonym2PreferredLabelMap());
+                index = resources.loadHpoSearchIndex();
                 break;
             case Other_DISEASE: //bind to mondo terms
-                riskFactorMap.clear();
-                riskFactorMap.putAll(resources.getMondoDiseaseName2IdMap());
+                index = resources.loadMondoSearchIndex();
                 break;
             case ENVIRONMENT: //bind to environmental exposure terms
-                riskFactorMap.clear();
-                riskFactorMap.putAll(resources.getEctoName2Id());
+                index = resources.loadEctoSearchIndex();
                 break;
             default:
                 //do nothing
                 return;
         }
+        index.thenAccept(idx -> Platform.runLater(() -> {
+            if (riskFactorCombo.getSelectionModel().getSelectedItem() != riskFactor || autoCompletionBinding != null) {
+                return;
+            }
+            riskFactorIndex = idx;
+            autoCompletionBinding = WidthAwareTextFields.bindWidthAwareAutoCompletion(riskFactorTextField, idx);
+            autoCompletionBinding.setVisibleRowCount(10);
+        }));
     }
 
     private void initRiskFactorTable() {
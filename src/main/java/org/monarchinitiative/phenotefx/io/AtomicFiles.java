@@ -0,0 +1,103 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Helpers for the binary cache files of PhenoteFX (ontology snapshots, the corpus index, the MedGen index). A file
+ * is written to a temporary file in the same directory that is then renamed, so that an interrupted write never
+ * leaves a corrupt file behind. Strings are written as a length-prefixed UTF-8 byte array.
+ * @author Peter Robinson
+ */
+public final class AtomicFiles {
+
+    /** A consumer that may throw an {@link IOException}. */
+    @FunctionalInterface
+    public interface IOConsumer<T> {
+        void accept(T t) throws IOException;
+    }
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * Write a file via a temporary file in the same directory (which is created if needed).
+     * @param target the file to write
+     * @param writer writes the content of the file
+     * @throws IOException if the file cannot be written; the target is then left unchanged
+     */
+    public static void write(File target, IOConsumer<DataOutputStream> writer) throws IOException {
+        File dir = target.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create directory " + dir);
+        }
+        File tmp = File.createTempFile(target.getName(), ".tmp", dir);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            writer.accept(out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp.toPath());
+            throw e;
+        }
+        try {
+            move(tmp.toPath(), target.toPath());
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp.toPath());
+            throw e;
+        }
+    }
+
+    /** Move a file, atomically where the file system supports it, replacing the target. */
+    public static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Strings are written as a length-prefixed UTF-8 byte array; a length of -1 encodes null. */
+    public static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** @return a string written by {@link #writeString(DataOutputStream, String)} (may be null). */
+    public static String readString(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -20,24 +20,17 @@ package org.monarchinitiative.phenotefx.io;
  * #L%
  */
 
-import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.scene.control.ProgressIndicator;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.monarchinitiative.phenotefx.gui.PopUps;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLConnection;
 
 /**
- * This class is used to download files to the local file system of the user (chromFa.tar.gz and refGene.txt.gz).
+ * This class is used to download files (e.g., hp.obo) to the local file system of the user in a JavaFX task.
  * @author Peter Robinson
  * @version 0.2.0 (2017-10-20)
  */
@@ -62,6 +55,9 @@ public class Downloader extends Task<Void> {
     /** This is the URL of the file we want to download */
     private String urlstring=null;
 
+    /** If true, the file is stored gzip-compressed. */
+    private boolean compressed=false;
+
     private Downloader(File directoryPath, String url, String basename) {
         this.localDir = directoryPath;
         this.urlstring=url;
@@ -88,7 +84,7 @@ public class Downloader extends Task<Void> {
 
     protected void setLocalFilePath (String bname) {
         this.localFilePath = new File(this.localDir + File.separator + bname);
-        logger.debug("setLocalFilepath for download to: "+localFilePath);
+        logger.debug("setLocalFilepath for download to: {}", localFilePath);
     }
 
     /**
@@ -100,68 +96,44 @@ public class Downloader extends Task<Void> {
     }
 
     /**
-     * This method downloads a file to the specified local file path. If the file already exists, it emits a warning
-     * message and does nothing.
+     * @param compressed if true, the file is stored gzip-compressed (the basename should then end with ".gz")
      */
-    @Override
-    protected Void call() {
-        logger.debug("[INFO] Downloading: \"" + urlstring + "\"");
-        InputStream reader;
-        FileOutputStream writer;
+    public void setCompressed(boolean compressed) {
+        this.compressed=compressed;
+    }
 
-        int threshold = 0;
-        int block = 250000;
+    /**
+     * Download the file to the local file path with a {@link ResourceFetcher}: the file is only replaced once the
+     * download is complete, an interrupted download is resumed, and nothing is downloaded if the local file is up
+     * to date. If the download fails, the exception is rethrown so that the task fails.
+     */
+    @Override
+    protected Void call() throws IOException {
+        logger.debug("Downloading: \"{}\"", urlstring);
+        logger.trace("LocalFilePath: {}", localFilePath);
+        if (progress!=null) { updateProgress(0.01); }
+        ResourceFetcher.Resource resource = compressed ?
+                ResourceFetcher.Resource.compressed(urlstring, localFilePath.toPath()) :
+                new ResourceFetcher.Resource(urlstring, localFilePath.toPath());
+        long[] threshold = {0};
         try {
-            URL url = new URL(urlstring);
-            URLConnection urlc = url.openConnection();
-            reader = urlc.getInputStream();
-            logger.trace("URL host: "+ url.getHost() + "\n reader available="+reader.available());
-            logger.trace("LocalFilePath: "+localFilePath);
-            writer = new FileOutputStream(localFilePath);
-            byte[] buffer = new byte[153600];
-            int totalBytesRead = 0;
-            int bytesRead;
-            int size = urlc.getContentLength();
-            if (progress!=null) { updateProgress(0.01); }
-            logger.trace("Size of file to be downloaded: "+size);
-            if (size >= 0)
-                block = size /100;
-            while ((bytesRead = reader.read(buffer)) > 0) {
-                writer.write(buffer, 0, bytesRead);
-                buffer = new byte[153600];
-                totalBytesRead += bytesRead;
-                if (size>0 && totalBytesRead > threshold) {
-                    updateProgress((double)totalBytesRead/size);
-                    threshold += block;
+            new ResourceFetcher().fetch(resource, (bytes, total) -> {
+                // update the GUI about once per percent
+                if (total > 0 && bytes >= threshold[0]) {
+                    updateProgress((double) bytes / total);
+                    threshold[0] = bytes + total / 100;
                 }
-            }
-            logger.info("Successful download from "+urlstring+": " + (Integer.toString(totalBytesRead)) + "(" + size + ") bytes read.");
-            writer.close();
-        } catch (MalformedURLException e) {
-            updateProgress(0.00);
-            showException(String.format("Malformed url: \"%s\"\n%s", urlstring, e.toString()));
+            });
         } catch (IOException e) {
             updateProgress(0.00);
-            showException(String.format("IO Exception reading from URL: \"%s\" to local file \"%s\"\n%s", urlstring,localFilePath, e.toString()));
-        } catch (Exception e){
-            updateProgress(0.00);
-            showException(e.getMessage());
+            logger.error("Could not download {} to {}: {}", urlstring, localFilePath, e.getMessage());
+            throw e;
         }
         updateProgress(1.000); /* show 100% completion */
         return null;
     }
 
 
-    private void showException (String e) {
-        Platform.runLater( () -> { // new Runnable
-                PopUps.showInfoMessage(e,"Download Error");
-        });
-    }
-
-
-
-
-
     /** Update the progress bar of the GUI in a separate thread.
      * @param pr Current progress.
      */
@@ -186,7 +158,7 @@ public class Downloader extends Task<Void> {
             return;
         }
         if (! this.localDir.getParentFile().exists()) {
-            logger.info("Creating directory: "+ localDir);
+            logger.info("Creating directory: {}", localDir);
             this.localDir.mkdir();
         }
     }
@@ -30,6 +30,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 
@@ -44,16 +45,23 @@ public class EctoParser {
     private Ontology ecto;
 
     private Map<String, String> name2IdMap;
+    /** Binary snapshot of the default ecto.obo file. */
+    private OntologySnapshot snapshot;
 
     public EctoParser() throws PhenoteFxException {
         File dir = Platform.getPhenoteFXDir();
-        String basename="ecto.obo";
-        this.path = dir + File.separator + basename;
+        this.path = OboFiles.locate(dir, "ecto.obo").getAbsolutePath();
+        this.snapshot = new OntologySnapshot(new File(this.path));
+        Optional<Ontology> cached = snapshot.load();
+        if (cached.isPresent()) {
+            this.ecto = cached.get();
+            return;
+        }
         try {
-            this.stream = new FileInputStream(path);
+            this.stream = OboFiles.open(new File(path));
             this.ecto = parse();
-        } catch (FileNotFoundException  e) {
-            logger.error("ecto.obo not found at " + dir);
+        } catch (IOException e) {
+            logger.error("ecto.obo not found at {}", dir);
             throw new PhenoteFxException(String.format("Unable to parse Ecto OBO file at %s [%s]", this.path, e.toString()));
         }
 
@@ -69,9 +77,10 @@ public class EctoParser {
         this.stream = stream;
     }
 
-    public EctoParser(String path) throws FileNotFoundException {
+    /** @param path path to ecto.obo, which may be gzip-compressed */
+    public EctoParser(String path) throws IOException {
         this.path = path;
-        this.stream = new FileInputStream(path);
+        this.stream = OboFiles.open(new File(path));
     }
 
     public Ontology parse() {
@@ -83,6 +92,16 @@ public class EctoParser {
         return this.ecto;
     }
 
+    /**
+     * Write a binary snapshot of ECTO unless it was itself restored from an up-to-date snapshot.
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void cache() throws IOException {
+        if (snapshot != null && ! snapshot.isCurrent()) {
+            snapshot.save(this.ecto);
+        }
+    }
+
     /**
      * Return a map from ecto term names to term id.
      * @return map from ECTO names to ids
@@ -21,19 +21,18 @@ package org.monarchinitiative.phenotefx.io;
  */
 
 import com.google.common.collect.ImmutableMap;
-import org.monarchinitiative.phenol.io.OntologyLoader;
 import org.monarchinitiative.phenol.ontology.data.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
 import org.monarchinitiative.phenotefx.gui.Platform;
 import org.monarchinitiative.phenotefx.model.HPO;
+import org.monarchinitiative.phenotefx.model.OntologyClosure;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
-import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.getDescendents;
-
 /**
  * This class uses the ontolib library to parse the HPO file and to provide the data structures needed to populate the
  * GUI with HPO terms and names.
@@ -52,14 +51,22 @@ public class HPOParser {
     private Map<String,String> hpoSynonym2PreferredLabelMap;
     /** Ontology */
     private Ontology ontology=null;
+    /** Binary snapshot of the default hp.obo file (null if a custom hp.obo path was used). */
+    private OntologySnapshot snapshot=null;
+    /** Ancestors and descendants of each term (restored from the snapshot directory if it is up to date). */
+    private OntologyClosure closure=null;
+    /** Root of the Clinical modifier subhierarchy. */
+    private static final TermId CLINICAL_MODIFIER = TermId.of("HP:0012823");
+    /** Computed on the first call to {@link #getModifierMap()}. */
+    private Map<String,String> modifierMap=null;
 
     /**
      * Construct a parser and use the default HPO location
      */
     public HPOParser() throws PhenoteFxException {
         File dir = Platform.getPhenoteFXDir();
-        String basename="hp.obo";
-        this.hpoPath = new File(dir + File.separator + basename);
+        this.hpoPath = OboFiles.locate(dir, "hp.obo");
+        this.snapshot = new OntologySnapshot(this.hpoPath);
         this.hpoMap=new HashMap<>();
         hpoName2IDmap=new HashMap<>();
         this.hpoSynonym2PreferredLabelMap=new HashMap<>();
@@ -71,9 +78,14 @@ public class HPOParser {
         return ontology;
     }
 
+    /** @return the closure of the is-a hierarchy of the HPO, for subclass queries without graph traversal. */
+    public OntologyClosure getClosure() {
+        return closure;
+    }
+
 
     /**
-     * Construct a parser and use a custom location for the HPO
+     * Construct a parser and use a custom location for the HPO (which may be gzip-compressed)
      */
     public HPOParser(String hpoPath) throws PhenoteFxException {
         this.hpoPath = new File(hpoPath);
@@ -91,23 +103,52 @@ public class HPOParser {
     public Map<String,String> getHpoSynonym2PreferredLabelMap() { return hpoSynonym2PreferredLabelMap; }
 
     /**@return map with key: label and value HPO Id for just the Clinical Modifier subhierarchy */
-    public Map<String,String> getModifierMap() {
-        ImmutableMap.Builder<String,String> builder = new ImmutableMap.Builder<>();
-        TermId clinicalModifier = TermId.of("HP:0012823");
-        Set<TermId> modifierIds = getDescendents(ontology,clinicalModifier);
-        for (TermId tid:modifierIds) {
-            Term term = ontology.getTermMap().get(tid);
-            builder.put(term.getName(),tid.getValue());
+    public synchronized Map<String,String> getModifierMap() {
+        if (modifierMap == null) {
+            ImmutableMap.Builder<String,String> builder = new ImmutableMap.Builder<>();
+            List<TermId> modifierIds = new ArrayList<>();
+            modifierIds.add(CLINICAL_MODIFIER);
+            modifierIds.addAll(closure.getDescendants(CLINICAL_MODIFIER));
+            for (TermId tid:modifierIds) {
+                Term term = ontology.getTermMap().get(tid);
+                builder.put(term.getName(),tid.getValue());
+            }
+            modifierMap = builder.build();
+        }
+        return modifierMap;
+    }
+
+    /**
+     * Write a binary snapshot of the HPO and of its closure unless they were themselves restored from up-to-date
+     * files.
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void cache() throws IOException {
+        if (snapshot != null && ! snapshot.isCurrent()) {
+            snapshot.save(ontology);
+        }
+        if (snapshot != null && ! snapshot.isClosureCurrent()) {
+            snapshot.saveClosure(closure);
         }
-        return builder.build();
     }
 
     /**
-     * Inputs the hp.obo file and fills {@link #hpoMap} with the contents.
+     * Inputs the hp.obo file (or its binary snapshot, if it is up to date) and fills {@link #hpoMap} with the contents.
      */
-    private void inputFile() {
+    private void inputFile() throws PhenoteFxException {
+        Optional<Ontology> cached = snapshot != null ? snapshot.load() : Optional.empty();
+        if (cached.isPresent()) {
+            this.ontology = cached.get();
+        } else {
+            try {
+                this.ontology = OboFiles.loadOntology(this.hpoPath, "HP");
+            } catch (IOException e) {
+                throw new PhenoteFxException(String.format("Could not read HPO file %s [%s]", this.hpoPath, e.toString()));
+            }
+        }
 
-        this.ontology = OntologyLoader.loadOntology(this.hpoPath, "HP");
+        Optional<OntologyClosure> cachedClosure = cached.isPresent() ? snapshot.loadClosure() : Optional.empty();
+        this.closure = cachedClosure.orElseGet(() -> OntologyClosure.of(ontology));
 
         Map<TermId,Term> termmap=ontology.getTermMap();
 
@@ -0,0 +1,432 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Index of the OMIM disease names and MIM numbers of the MedGen file MedGen_HPO_OMIM_Mapping.txt.gz. The MedGen
+ * file is decompressed and parsed only once, into a binary cache file next to it; afterwards the cache file is
+ * memory-mapped, so that opening the index takes neither time nor heap. The cache file contains each distinct
+ * disease name once, together with two arrays of record offsets, one sorted by name (ignoring case) and one by MIM
+ * number. Lookups are binary searches that compare the bytes of the mapped file directly; a String is only created
+ * for a name that is returned. If the MedGen file changes (size or modification time), the cache file is rebuilt.
+ * <p>
+ * Layout of the cache file: magic, format version, size and modification time of the MedGen file, number of
+ * records n, length of the record data; n name-sorted offsets; n MIM-sorted offsets; the records, each consisting
+ * of the MIM number (int), the length of the name (unsigned short) and the US-ASCII bytes of the name.
+ * @author Peter Robinson
+ */
+public final class MedGenIndex {
+    private static final Logger logger = LogManager.getLogger();
+    /** First four bytes of every cache file ("PFMG"). */
+    private static final int MAGIC = 0x50464d47;
+    /** Increment this whenever the layout of the cache file changes. */
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final String SUFFIX = ".index";
+    private static final String MIM_PREFIX = "MIM";
+
+    private final ByteBuffer buffer;
+
+    private final int count;
+    /** Position of the name-sorted offsets in {@link #buffer}. */
+    private final int nameOrderStart;
+    /** Position of the MIM-sorted offsets in {@link #buffer}. */
+    private final int mimOrderStart;
+    /** Position of the records in {@link #buffer}; the offsets are relative to it. */
+    private final int dataStart;
+
+    private MedGenIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Not a MedGen index file of version " + FORMAT_VERSION);
+        }
+        this.count = buffer.getInt(24);
+        int dataLength = buffer.getInt(28);
+        this.nameOrderStart = HEADER_SIZE;
+        this.mimOrderStart = nameOrderStart + 4 * count;
+        this.dataStart = mimOrderStart + 4 * count;
+        if (count < 0 || dataLength < 0 || (long) dataStart + dataLength != buffer.capacity()) {
+            throw new IOException("Truncated MedGen index file");
+        }
+    }
+
+    /** @return an index without entries (e.g., if the MedGen file has not been downloaded). */
+    public static MedGenIndex empty() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            write(new DataOutputStream(bytes), 0, 0, new TreeMap<>());
+            return new MedGenIndex(ByteBuffer.wrap(bytes.toByteArray()));
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // cannot happen with an in-memory stream
+        }
+    }
+
+    /**
+     * Open the index of a MedGen file, building the cache file (stored next to the MedGen file) if it does not
+     * exist or is out of date.
+     * @param medgen path to MedGen_HPO_OMIM_Mapping.txt.gz
+     * @return the index
+     * @throws IOException if the MedGen file cannot be read or the cache file cannot be written
+     */
+    public static MedGenIndex open(File medgen) throws IOException {
+        return open(medgen, new File(medgen.getPath() + SUFFIX));
+    }
+
+    /**
+     * @param medgen path to MedGen_HPO_OMIM_Mapping.txt.gz
+     * @param cache path to the cache file
+     */
+    public static MedGenIndex open(File medgen, File cache) throws IOException {
+        if (cache.exists()) {
+            try {
+                // check the header before mapping the file, because a mapped file cannot be replaced on Windows
+                if (isCurrent(cache, medgen)) {
+                    return map(cache);
+                }
+                logger.info("MedGen index {} is out of date with respect to {}", cache, medgen);
+            } catch (IOException e) {
+                logger.warn("Could not read MedGen index {}: {}", cache, e.getMessage());
+            }
+        }
+        build(medgen, cache);
+        return map(cache);
+    }
+
+    /**
+     * @return true if the header of the cache file matches the format and the size and mtime of the MedGen file,
+     * and the cache file is complete
+     */
+    private static boolean isCurrent(File cache, File medgen) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cache), HEADER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION
+                    || in.readLong() != medgen.length() || in.readLong() != medgen.lastModified()) {
+                return false;
+            }
+            long count = in.readInt();
+            long dataLength = in.readInt();
+            return count >= 0 && dataLength >= 0 && cache.length() == HEADER_SIZE + 8 * count + dataLength;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    private static MedGenIndex map(File cache) throws IOException {
+        try (FileChannel channel = FileChannel.open(cache.toPath(), StandardOpenOption.READ)) {
+            // the mapping remains valid after the channel is closed
+            return new MedGenIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Parse the MedGen file and write the cache file. The data is first written to a temporary file that is then
+     * renamed, so that an interrupted write never leaves a corrupt cache file behind.
+     */
+    static void build(File medgen, File cache) throws IOException {
+        long start = System.currentTimeMillis();
+        // key: name; value: MIM number. As in the MedGen file, a name maps to one MIM number (the last one listed).
+        Map<String, Integer> name2mim = new HashMap<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(medgen), 1 << 16), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.startsWith("#")) {
+                    continue; // skip header
+                }
+                // fields: OMIM_CUI|MIM_number|OMIM_name|...
+                int a = line.indexOf('|');
+                int b = a < 0 ? -1 : line.indexOf('|', a + 1);
+                if (b < 0) {
+                    continue;
+                }
+                int c = line.indexOf('|', b + 1);
+                String name = c < 0 ? line.substring(b + 1) : line.substring(b + 1, c);
+                int mim = parseMim(line, a + 1, b);
+                if (mim < 0 || name.isEmpty()) {
+                    logger.warn("Skipping malformed MedGen line: {}", line);
+                    continue;
+                }
+                name2mim.put(name, mim);
+            }
+        }
+        AtomicFiles.write(cache, out -> write(out, medgen.length(), medgen.lastModified(), name2mim));
+        logger.info("Indexed {} OMIM names of {} in {} ms", name2mim.size(), medgen.getName(),
+                System.currentTimeMillis() - start);
+    }
+
+    /** @return the MIM number in {@code line[from, to)}, or -1 if it is not a number. */
+    private static int parseMim(String line, int from, int to) {
+        if (from >= to || to - from > 9) {
+            return -1;
+        }
+        int mim = 0;
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            mim = 10 * mim + (c - '0');
+        }
+        return mim;
+    }
+
+    private static void write(DataOutputStream out, long size, long mtime, Map<String, Integer> name2mim)
+            throws IOException {
+        List<String> names = new ArrayList<>(name2mim.keySet());
+        names.sort(NAME_ORDER);
+        int[] offsets = new int[names.size()];
+        int offset = 0;
+        for (int i = 0; i < names.size(); i++) {
+            offsets[i] = offset;
+            offset += 6 + names.get(i).length();
+        }
+        Integer[] byMim = new Integer[names.size()];
+        for (int i = 0; i < byMim.length; i++) {
+            byMim[i] = i;
+        }
+        Arrays.sort(byMim, Comparator.comparingInt((Integer i) -> name2mim.get(names.get(i))).thenComparingInt(i -> i));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(size);
+        out.writeLong(mtime);
+        out.writeInt(names.size());
+        out.writeInt(offset);
+        for (int o : offsets) {
+            out.writeInt(o);
+        }
+        for (Integer i : byMim) {
+            out.writeInt(offsets[i]);
+        }
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+            if (bytes.length > 0xffff) {
+                throw new IOException("Name too long: " + name.substring(0, 50));
+            }
+            out.writeInt(name2mim.get(name));
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /** Sort order of the names: ASCII case-insensitive, then case-sensitive. */
+    private static final Comparator<String> NAME_ORDER = (a, b) -> {
+        byte[] x = a.getBytes(StandardCharsets.US_ASCII);
+        byte[] y = b.getBytes(StandardCharsets.US_ASCII);
+        int n = Math.min(x.length, y.length);
+        for (int i = 0; i < n; i++) {
+            int d = fold(x[i]) - fold(y[i]);
+            if (d != 0) {
+                return d;
+            }
+        }
+        if (x.length != y.length) {
+            return x.length - y.length;
+        }
+        for (int i = 0; i < n; i++) {
+            if (x[i] != y[i]) {
+                return (x[i] & 0xff) - (y[i] & 0xff);
+            }
+        }
+        return 0;
+    };
+
+    private static int fold(byte b) {
+        int c = b & 0xff;
+        return c >= 'a' && c <= 'z' ? c - 32 : c;
+    }
+
+    /** @return number of distinct disease names. */
+    public int size() {
+        return count;
+    }
+
+    private int nameRecord(int i) {
+        return dataStart + buffer.getInt(nameOrderStart + 4 * i);
+    }
+
+    private int mimRecord(int i) {
+        return dataStart + buffer.getInt(mimOrderStart + 4 * i);
+    }
+
+    private int mimOf(int record) {
+        return buffer.getInt(record);
+    }
+
+    private String nameOf(int record) {
+        int length = buffer.getShort(record + 4) & 0xffff;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(record + 6 + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Compare the name of a record with a query, ignoring case.
+     * @param prefix if true, a name that starts with the query compares as equal
+     */
+    private int compareFolded(int record, byte[] query, boolean prefix) {
+        int length = buffer.getShort(record + 4) & 0xffff;
+        int n = Math.min(length, query.length);
+        for (int i = 0; i < n; i++) {
+            int d = fold(buffer.get(record + 6 + i)) - fold(query[i]);
+            if (d != 0) {
+                return d;
+            }
+        }
+        if (prefix && length >= query.length) {
+            return 0;
+        }
+        return length - query.length;
+    }
+
+    private boolean equalsExactly(int record, byte[] query) {
+        int length = buffer.getShort(record + 4) & 0xffff;
+        if (length != query.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(record + 6 + i) != query[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return index of the first name (in name order) that is not less than the query. */
+    private int lowerBound(byte[] query, boolean prefix) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareFolded(nameRecord(mid), query, prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @param name an OMIM disease name as in the MedGen file (case-sensitive)
+     * @return the MIM number of the disease, or -1 if the name is not in the index
+     */
+    public int getMimNumber(String name) {
+        byte[] query = name.getBytes(StandardCharsets.US_ASCII);
+        for (int i = lowerBound(query, false); i < count; i++) {
+            int record = nameRecord(i);
+            if (compareFolded(record, query, false) != 0) {
+                break;
+            }
+            if (equalsExactly(record, query)) {
+                return mimOf(record);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param mim a MIM number, e.g., 613962
+     * @return the name of the disease (the first in alphabetical order if there are several), or null
+     */
+    public String getName(int mim) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mimOf(mimRecord(mid)) < mim) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo < count && mimOf(mimRecord(lo)) == mim ? nameOf(mimRecord(lo)) : null;
+    }
+
+    /**
+     * @return a read-only map view of the index with key: disease name and value: id, e.g., MIM:613962. Lookups
+     * are binary searches in the index; the map is not copied into the heap.
+     */
+    public Map<String, String> asMap() {
+        return new AbstractMap<String, String>() {
+            @Override
+            public int size() {
+                return count;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return key instanceof String && getMimNumber((String) key) >= 0;
+            }
+
+            @Override
+            public String get(Object key) {
+                if (!(key instanceof String)) {
+                    return null;
+                }
+                int mim = getMimNumber((String) key);
+                return mim < 0 ? null : MIM_PREFIX + ":" + mim;
+            }
+
+            @Override
+            public Set<Entry<String, String>> entrySet() {
+                return new AbstractSet<Entry<String, String>>() {
+                    @Override
+                    public int size() {
+                        return count;
+                    }
+
+                    @Override
+                    public Iterator<Entry<String, String>> iterator() {
+                        return new Iterator<Entry<String, String>>() {
+                            private int i = 0;
+
+                            @Override
+                            public boolean hasNext() {
+                                return i < count;
+                            }
+
+                            @Override
+                            public Entry<String, String> next() {
+                                if (i >= count) {
+                                    throw new NoSuchElementException();
+                                }
+                                int record = nameRecord(i++);
+                                return new SimpleImmutableEntry<>(nameOf(record), MIM_PREFIX + ":" + mimOf(record));
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
+}
@@ -19,13 +19,12 @@ package org.monarchinitiative.phenotefx.io;
  * limitations under the License.
  * #L%
  */
-
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.monarchinitiative.phenotefx.gui.Platform;
 
 import java.io.*;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
 
 /**
  * Created by peter on 23.05.17.
@@ -35,60 +34,46 @@ import java.util.zip.GZIPInputStream;
  * file -i MedGen_HPO_OMIM_Mapping.txt
  * MedGen_HPO_OMIM_Mapping.txt: text/plain; charset=us-ascii
  * </pre>
+ * The file is parsed only once into a {@link MedGenIndex} that is then memory-mapped at each start.
  * @author Peter Robinson
  */
 public class MedGenParser {
+    private static final Logger logger = LogManager.getLogger();
 
     private final File absolutepath;
-    /** Value: e.g., 613962, Key e.g., ACTIVATED PI3K-DELTA SYNDROME */
-    private final static String MIM_PREFIX = "MIM";
-    private final Map<String,String> omimName2IdMap;
+
+    private final MedGenIndex index;
 
 
 /** The constructor sets {@link #absolutepath} to
  * the absolute path of  MedGen_HPO_OMIM_Mapping.txt.gz
- * and calls the function to parse the file.
+ * and opens (and if needed builds) the index of the file.
  * */
     public MedGenParser(){
-        this.omimName2IdMap = new HashMap<>();
         File dir = Platform.getPhenoteFXDir();
         String basename="MedGen_HPO_OMIM_Mapping.txt.gz";
         absolutepath = new File(dir + File.separator + basename);
-        parseFile();
+        index = openIndex();
     }
 
-    /** @return OMIM Map (name:ID). Will always be initialized but can be empty.*/
-    public Map<String,String> getOmimName2IdMap() { return omimName2IdMap; }
+    /**
+     * @return OMIM Map (name:ID, e.g., ACTIVATED PI3K-DELTA SYNDROME:MIM:615513). Will always be initialized but can
+     * be empty. This is a read-only view of {@link #getIndex()}.
+     */
+    public Map<String,String> getOmimName2IdMap() { return index.asMap(); }
+
+    /** @return the index of the MedGen file (empty if the file has not been downloaded). */
+    public MedGenIndex getIndex() { return index; }
 
 
-    private void parseFile() {
+    private MedGenIndex openIndex() {
         if (! inputFileExists())
-            return;
+            return MedGenIndex.empty();
         try {
-            InputStream fileStream = new FileInputStream(absolutepath);
-            InputStream gzipStream = new GZIPInputStream(fileStream);
-            Reader decoder = new InputStreamReader(gzipStream, java.nio.charset.StandardCharsets.US_ASCII);
-            BufferedReader br = new BufferedReader(decoder);
-            String line;
-            while ((line=br.readLine())!=null){
-                if (line.startsWith("#"))
-                    continue; // skip header
-                String[] F = line.split("\\|");
-                if (F.length < 2)
-                    continue;
-                try {
-                    String idString = F[1];
-                    // Note we just parse this field to check the format
-                    // but it is more convenient to store the String representation.
-                    Integer id = Integer.parseInt(idString);
-                    String name = F[2];
-                    omimName2IdMap.put(name, MIM_PREFIX + ":" + idString);
-                } catch (NumberFormatException n) {
-                    n.printStackTrace();
-                }
-            }
+            return MedGenIndex.open(absolutepath);
         } catch (IOException e){
-            e.printStackTrace();
+            logger.error("Could not index {}: {}", absolutepath, e.getMessage());
+            return MedGenIndex.empty();
         }
     }
 
@@ -31,6 +31,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 public class MondoParser {
@@ -47,17 +48,26 @@ public class MondoParser {
     private final TermId DISEASEROOT = TermId.of("MONDO:0000001");
 
     private Map<String, String> name2IdMap;
+    /** Binary snapshot of the disease subontology of the default mondo.obo file. */
+    private OntologySnapshot snapshot;
 
     public MondoParser() throws PhenoteFxException {
         File dir = Platform.getPhenoteFXDir();
-        String basename="mondo.obo";
-        this.path = dir + File.separator + basename;
+        this.path = OboFiles.locate(dir, "mondo.obo").getAbsolutePath();
+        this.snapshot = new OntologySnapshot(new File(this.path));
+        // The snapshot only holds the disease subontology, which is all we use from Mondo.
+        Optional<Ontology> cached = snapshot.load();
+        if (cached.isPresent()) {
+            this.mondo = cached.get();
+            this.mondoDiseaseSubOntology = this.mondo;
+            return;
+        }
         try {
-            this.stream = new FileInputStream(new File(this.path));
+            this.stream = OboFiles.open(new File(this.path));
             mondo = parse();
             this.mondoDiseaseSubOntology = getDiseaseSubOntology();
-        } catch (FileNotFoundException e) {
-            logger.error(String.format("Unable to parse Mondo OBO file at %s", this.path));
+        } catch (IOException e) {
+            logger.error("Unable to parse Mondo OBO file at {}", this.path);
             throw new PhenoteFxException(String.format("Unable to parse Mondo OBO file at %s [%s]", this.path, e.toString()));
         }
 
@@ -70,9 +80,10 @@ public class MondoParser {
 
     }
 
-    public MondoParser(String path) throws FileNotFoundException {
+    /** @param path path to mondo.obo, which may be gzip-compressed */
+    public MondoParser(String path) throws IOException {
         this.path = path;
-        this.stream = new FileInputStream(path);
+        this.stream = OboFiles.open(new File(path));
     }
 
     public MondoParser(InputStream stream) {
@@ -85,7 +96,20 @@ public class MondoParser {
     }
 
     public Ontology getDiseaseSubOntology() {
-        return this.mondo.subOntology(DISEASEROOT);
+        if (this.mondoDiseaseSubOntology == null) {
+            this.mondoDiseaseSubOntology = this.mondo.subOntology(DISEASEROOT);
+        }
+        return this.mondoDiseaseSubOntology;
+    }
+
+    /**
+     * Write a binary snapshot of the disease subontology unless it was itself restored from an up-to-date snapshot.
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void cache() throws IOException {
+        if (snapshot != null && ! snapshot.isCurrent()) {
+            snapshot.save(getDiseaseSubOntology());
+        }
     }
 
     public Map<String, String> getName2IdMap() {
@@ -97,7 +121,7 @@ public class MondoParser {
             throw new RuntimeException("mondo is null. call parse() first.");
         }
 
-        this.name2IdMap = this.mondoDiseaseSubOntology.getTermMap().values()
+        this.name2IdMap = getDiseaseSubOntology().getTermMap().values()
                 .stream()
                 .collect(Collectors.toMap(Term::getName,
                         term -> term.getId().getValue(),
@@ -0,0 +1,112 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens ontology files that may be stored gzip-compressed (e.g., hp.obo.gz). The format is recognized from the
+ * first bytes of the file rather than from its name, and compressed files are decompressed while they are streamed
+ * into the parser, so that they never have to be unpacked on disk.
+ * @author Peter Robinson
+ */
+public final class OboFiles {
+    private static final Logger logger = LogManager.getLogger();
+    /** Suffix of the gzip-compressed version of an ontology file in the PhenoteFX directory. */
+    public static final String GZIP_SUFFIX = ".gz";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private OboFiles() {
+    }
+
+    /**
+     * @param dir a directory, usually the PhenoteFX directory
+     * @param basename name of the uncompressed file, e.g., hp.obo
+     * @return the compressed file (e.g., hp.obo.gz) if it exists, otherwise the uncompressed file
+     */
+    public static File locate(File dir, String basename) {
+        File compressed = new File(dir, basename + GZIP_SUFFIX);
+        return compressed.exists() ? compressed : new File(dir, basename);
+    }
+
+    /**
+     * Delete the uncompressed version of a file once its compressed version (e.g., hp.obo.gz) has been stored.
+     * @param compressed the compressed file
+     */
+    public static void deleteUncompressed(File compressed) {
+        String name = compressed.getName();
+        if (!name.endsWith(GZIP_SUFFIX)) {
+            return;
+        }
+        File uncompressed = new File(compressed.getParentFile(), name.substring(0, name.length() - GZIP_SUFFIX.length()));
+        if (uncompressed.exists() && uncompressed.delete()) {
+            logger.info("Deleted {}, which was replaced by {}", uncompressed, compressed);
+        }
+    }
+
+    /**
+     * Open a (possibly compressed) file for reading.
+     * @param file an uncompressed or gzip-compressed file
+     * @return a buffered stream of the uncompressed contents
+     * @throws IOException if the file cannot be opened or is compressed with an unsupported method
+     */
+    public static InputStream open(File file) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        try {
+            in.mark(4);
+            int b0 = in.read();
+            int b1 = in.read();
+            int b2 = in.read();
+            int b3 = in.read();
+            in.reset();
+            if (b0 == 0x1f && b1 == 0x8b) {
+                return new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE);
+            }
+            if (b0 == 0x28 && b1 == 0xb5 && b2 == 0x2f && b3 == 0xfd) {
+                throw new IOException(String.format("%s is zstd-compressed; only gzip is supported", file));
+            }
+            return in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Parse a (possibly compressed) OBO file.
+     * @param file an uncompressed or gzip-compressed OBO file
+     * @param prefixes the prefixes of the terms to be loaded, e.g., "HP"
+     * @return the ontology
+     * @throws IOException if the file cannot be read
+     */
+    public static Ontology loadOntology(File file, String... prefixes) throws IOException {
+        try (InputStream in = open(file)) {
+            return OntologyLoader.loadOntology(in, prefixes);
+        }
+    }
+}
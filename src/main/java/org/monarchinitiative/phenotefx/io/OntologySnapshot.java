@@ -0,0 +1,386 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenol.ontology.data.*;
+import org.monarchinitiative.phenotefx.gui.Platform;
+import org.monarchinitiative.phenotefx.model.OntologyClosure;
+
+import java.io.*;
+import java.util.*;
+
+import static org.monarchinitiative.phenotefx.io.AtomicFiles.readString;
+import static org.monarchinitiative.phenotefx.io.AtomicFiles.writeString;
+
+/**
+ * A compact binary snapshot of an {@link Ontology} (terms, synonyms, xrefs and is-a/part-of edges) that is
+ * stored in the PhenoteFX directory next to the OBO file it was made from. Restoring the snapshot avoids
+ * running the full OBO parser at startup. The header of the snapshot records the format version and the
+ * absolute path, size and modification time of the source OBO file; if any of these do not match, the
+ * snapshot is considered stale and {@link #load()} returns an empty Optional so that the caller falls back
+ * to parsing the OBO file.
+ * <p>
+ * The {@link OntologyClosure} of the ontology is stored in a second file next to the snapshot, with the same kind
+ * of header, so that the ancestor and descendant sets are not recomputed at each start either.
+ * @author Peter Robinson
+ */
+public class OntologySnapshot {
+    private static final Logger logger = LogManager.getLogger();
+    /** First four bytes of every snapshot file ("PFXS"). */
+    private static final int MAGIC = 0x50465853;
+    /** First four bytes of every closure file ("PFXC"). */
+    private static final int CLOSURE_MAGIC = 0x50465843;
+    /** Increment this whenever the layout written by {@link #save(Ontology)} changes. */
+    private static final int FORMAT_VERSION = 2;
+    private static final String SUFFIX = ".snapshot";
+    private static final String CLOSURE_SUFFIX = ".closure";
+    /** The OBO file from which the ontology is parsed. */
+    private final File oboFile;
+    /** The binary snapshot of {@link #oboFile}. */
+    private final File snapshotFile;
+    /** Set to true once we have successfully restored the ontology from (or written it to) {@link #snapshotFile}. */
+    private boolean current = false;
+    /** Set to true once we have successfully restored the closure from (or written it to) its file. */
+    private boolean closureCurrent = false;
+
+    /**
+     * Create a snapshot handle for the given OBO file; the snapshot itself is stored in the PhenoteFX directory.
+     * @param oboFile an OBO file such as hp.obo
+     */
+    public OntologySnapshot(File oboFile) {
+        this(oboFile, new File(Platform.getPhenoteFXDir(), oboFile.getName() + SUFFIX));
+    }
+
+    public OntologySnapshot(File oboFile, File snapshotFile) {
+        this.oboFile = oboFile;
+        this.snapshotFile = snapshotFile;
+    }
+
+    public File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /** @return the file in which the {@link OntologyClosure} is stored, next to the snapshot file. */
+    public File getClosureFile() {
+        return new File(snapshotFile.getPath() + CLOSURE_SUFFIX);
+    }
+
+    /** @return true if the snapshot file matches the current version of the OBO file. */
+    public boolean isCurrent() {
+        return current;
+    }
+
+    /** @return true if the closure file matches the current version of the OBO file. */
+    public boolean isClosureCurrent() {
+        return closureCurrent;
+    }
+
+    /**
+     * Restore the ontology from the snapshot file.
+     * @return the ontology, or an empty Optional if there is no valid, up-to-date snapshot
+     */
+    public Optional<Ontology> load() {
+        if (!snapshotFile.exists() || !oboFile.exists()) {
+            return Optional.empty();
+        }
+        long start = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile), 1 << 16))) {
+            if (!readHeader(in, MAGIC, snapshotFile)) {
+                return Optional.empty();
+            }
+            Ontology ontology = readOntology(in);
+            current = true;
+            logger.info("Restored {} terms from snapshot {} in {} ms", ontology.countAllTerms(), snapshotFile,
+                    System.currentTimeMillis() - start);
+            return Optional.of(ontology);
+        } catch (IOException | RuntimeException e) {
+            // a truncated or otherwise corrupt snapshot is not fatal -- we simply parse the OBO file again
+            logger.warn("Could not read snapshot {}: {}", snapshotFile, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Write the ontology to the snapshot file. The data is first written to a temporary file in the same
+     * directory that is then renamed, so that an interrupted write never leaves a corrupt snapshot behind.
+     * @param ontology ontology that was parsed from {@link #oboFile}
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void save(Ontology ontology) throws IOException {
+        AtomicFiles.write(snapshotFile, out -> {
+            writeHeader(out, MAGIC);
+            writeOntology(out, ontology);
+        });
+        current = true;
+        logger.info("Wrote snapshot of {} to {}", oboFile.getName(), snapshotFile);
+    }
+
+    /**
+     * Restore the closure of the ontology from the closure file.
+     * @return the closure, or an empty Optional if there is no valid, up-to-date closure file
+     */
+    public Optional<OntologyClosure> loadClosure() {
+        File closureFile = getClosureFile();
+        if (!closureFile.exists() || !oboFile.exists()) {
+            return Optional.empty();
+        }
+        long start = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(closureFile), 1 << 16))) {
+            if (!readHeader(in, CLOSURE_MAGIC, closureFile)) {
+                return Optional.empty();
+            }
+            OntologyClosure closure = OntologyClosure.read(in);
+            closureCurrent = true;
+            logger.info("Restored closure of {} terms from {} in {} ms", closure.size(), closureFile,
+                    System.currentTimeMillis() - start);
+            return Optional.of(closure);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not read closure {}: {}", closureFile, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Write the closure of the ontology to the closure file (via a temporary file, as {@link #save(Ontology)}).
+     * @param closure closure of the ontology that was parsed from {@link #oboFile}
+     * @throws IOException if the file cannot be written
+     */
+    public void saveClosure(OntologyClosure closure) throws IOException {
+        File closureFile = getClosureFile();
+        AtomicFiles.write(closureFile, out -> {
+            writeHeader(out, CLOSURE_MAGIC);
+            closure.write(out);
+        });
+        closureCurrent = true;
+        logger.info("Wrote closure of {} to {}", oboFile.getName(), closureFile);
+    }
+
+    /** Write the magic number, the format version and the path, size and modification time of the OBO file. */
+    private void writeHeader(DataOutputStream out, int magic) throws IOException {
+        out.writeInt(magic);
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, oboFile.getAbsolutePath());
+        out.writeLong(oboFile.length());
+        out.writeLong(oboFile.lastModified());
+    }
+
+    /** @return true if the header written by {@link #writeHeader(DataOutputStream, int)} matches the OBO file. */
+    private boolean readHeader(DataInputStream in, int magic, File file) throws IOException {
+        if (in.readInt() != magic || in.readInt() != FORMAT_VERSION) {
+            logger.info("Ignoring {} with unknown format", file);
+            return false;
+        }
+        String path = readString(in);
+        long size = in.readLong();
+        long mtime = in.readLong();
+        if (!oboFile.getAbsolutePath().equals(path) || oboFile.length() != size || oboFile.lastModified() != mtime) {
+            logger.info("{} is out of date with respect to {}", file, oboFile);
+            return false;
+        }
+        return true;
+    }
+
+    private static void writeOntology(DataOutputStream out, Ontology ontology) throws IOException {
+        Map<String, String> meta = ontology.getMetaInfo();
+        out.writeInt(meta.size());
+        for (Map.Entry<String, String> e : meta.entrySet()) {
+            writeString(out, e.getKey());
+            writeString(out, e.getValue());
+        }
+        // The term map also contains an entry for each alt_id; write each distinct term only once
+        Map<TermId, Term> terms = new LinkedHashMap<>();
+        for (Term term : ontology.getTermMap().values()) {
+            terms.putIfAbsent(term.getId(), term);
+        }
+        out.writeInt(terms.size());
+        for (Term term : terms.values()) {
+            writeTerm(out, term);
+        }
+        Collection<Relationship> relationships = ontology.getRelationMap().values();
+        out.writeInt(relationships.size());
+        for (Relationship r : relationships) {
+            writeString(out, r.getSource().getValue());
+            writeString(out, r.getTarget().getValue());
+            out.writeInt(r.getId());
+            writeString(out, r.getRelationshipType().getId());
+            writeString(out, r.getRelationshipType().getLabel());
+        }
+    }
+
+    private static Ontology readOntology(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        Map<String, String> meta = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            meta.put(readString(in), readString(in));
+        }
+        n = in.readInt();
+        List<Term> terms = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            terms.add(readTerm(in));
+        }
+        n = in.readInt();
+        List<Relationship> relationships = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            TermId source = TermId.of(readString(in));
+            TermId target = TermId.of(readString(in));
+            int id = in.readInt();
+            RelationshipType type = RelationshipType.of(readString(in), readString(in));
+            relationships.add(new Relationship(source, target, id, type));
+        }
+        return ImmutableOntology.builder()
+                .metaInfo(meta)
+                .terms(terms)
+                .relationships(relationships)
+                .build();
+    }
+
+    private static void writeTerm(DataOutputStream out, Term term) throws IOException {
+        writeString(out, term.getId().getValue());
+        writeString(out, term.getName());
+        writeString(out, term.getDefinition());
+        writeString(out, term.getComment());
+        out.writeBoolean(term.isObsolete());
+        writeString(out, term.getCreatedBy());
+        Optional<Date> created = term.getCreationDate();
+        out.writeLong(created.map(Date::getTime).orElse(Long.MIN_VALUE));
+        List<TermId> altIds = term.getAltTermIds();
+        out.writeInt(altIds.size());
+        for (TermId alt : altIds) {
+            writeString(out, alt.getValue());
+        }
+        List<TermSynonym> synonyms = term.getSynonyms() == null ? Collections.emptyList() : term.getSynonyms();
+        out.writeInt(synonyms.size());
+        for (TermSynonym syn : synonyms) {
+            writeString(out, syn.getValue());
+            writeString(out, syn.getScope() == null ? null : syn.getScope().name());
+            writeString(out, syn.getSynonymTypeName());
+            writeString(out, synonymType(syn));
+            List<TermXref> xrefs = syn.getTermXrefs() == null ? Collections.emptyList() : syn.getTermXrefs();
+            out.writeInt(xrefs.size());
+            for (TermXref xref : xrefs) {
+                writeString(out, xref.getId().getValue());
+                writeString(out, xref.getDescription());
+            }
+        }
+        List<SimpleXref> databaseXrefs = term.getDatabaseXrefs();
+        out.writeInt(databaseXrefs.size());
+        for (SimpleXref xref : databaseXrefs) {
+            writeString(out, xref.getCurie());
+        }
+        List<String> subsets = term.getSubsets();
+        out.writeInt(subsets.size());
+        for (String subset : subsets) {
+            writeString(out, subset);
+        }
+        List<Dbxref> xrefs = term.getXrefs();
+        out.writeInt(xrefs.size());
+        for (Dbxref xref : xrefs) {
+            writeString(out, xref.getName());
+            writeString(out, xref.getDescription());
+            Map<String, String> modifiers = xref.getTrailingModifiers() == null ? Collections.emptyMap() : xref.getTrailingModifiers();
+            out.writeInt(modifiers.size());
+            for (Map.Entry<String, String> e : modifiers.entrySet()) {
+                writeString(out, e.getKey());
+                writeString(out, e.getValue());
+            }
+        }
+    }
+
+    /**
+     * phenol derives the type of a synonym (layperson, abbreviation, ...) from a string that it does not expose, so
+     * we persist an HPO synonym type string that {@link org.monarchinitiative.phenol.ontology.data.SynonymType#fromString(String)}
+     * maps back to the same type.
+     * @return the type of the synonym as understood by phenol, or null if it has none of the HPO synonym types
+     */
+    private static String synonymType(TermSynonym synonym) {
+        if (synonym.isLayperson()) return "hp#layperson";
+        if (synonym.isAbbreviation()) return "hp#abbreviation";
+        if (synonym.isUKspelling()) return "hp#UK spelling";
+        if (synonym.isObsoleteSynonym()) return "hp#obsolete synonym";
+        if (synonym.isPluralForm()) return "hp#plural form";
+        return null;
+    }
+
+    private static Term readTerm(DataInputStream in) throws IOException {
+        Term.Builder builder = Term.builder()
+                .id(TermId.of(readString(in)))
+                .name(readString(in))
+                .definition(readString(in))
+                .comment(readString(in))
+                .obsolete(in.readBoolean())
+                .createdBy(readString(in));
+        long created = in.readLong();
+        if (created != Long.MIN_VALUE) {
+            builder.creationDate(new Date(created));
+        }
+        int n = in.readInt();
+        List<TermId> altIds = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            altIds.add(TermId.of(readString(in)));
+        }
+        n = in.readInt();
+        List<TermSynonym> synonyms = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String value = readString(in);
+            String scope = readString(in);
+            String typeName = readString(in);
+            String type = readString(in);
+            int m = in.readInt();
+            List<TermXref> termXrefs = new ArrayList<>(m);
+            for (int j = 0; j < m; j++) {
+                termXrefs.add(new TermXref(TermId.of(readString(in)), readString(in)));
+            }
+            synonyms.add(new TermSynonym(value, scope == null ? null : TermSynonymScope.valueOf(scope),
+                    typeName, termXrefs, type));
+        }
+        n = in.readInt();
+        List<SimpleXref> databaseXrefs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            databaseXrefs.add(new SimpleXref(readString(in)));
+        }
+        n = in.readInt();
+        List<String> subsets = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            subsets.add(readString(in));
+        }
+        n = in.readInt();
+        List<Dbxref> xrefs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String name = readString(in);
+            String description = readString(in);
+            int m = in.readInt();
+            Map<String, String> modifiers = m == 0 ? null : new LinkedHashMap<>();
+            for (int j = 0; j < m; j++) {
+                modifiers.put(readString(in), readString(in));
+            }
+            xrefs.add(new Dbxref(name, description, modifiers));
+        }
+        return builder.altTermIds(altIds)
+                .synonyms(synonyms)
+                .databaseXrefs(databaseXrefs)
+                .subsets(subsets)
+                .xrefs(xrefs)
+                .build();
+    }
+
+}
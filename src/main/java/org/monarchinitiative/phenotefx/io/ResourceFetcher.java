@@ -0,0 +1,428 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Downloads resources such as hp.obo to the local file system. A download is written to a ".part" file next to
+ * the target and only moved to the target (atomically where the file system supports it) once it is complete and
+ * its SHA-256 checksum has been verified, so an interrupted download never leaves a truncated hp.obo behind. For
+ * HTTP(S) URLs, an interrupted download is resumed with a Range request, and a file that was downloaded before
+ * is only fetched again if the server reports that it has changed (ETag/Last-Modified). The validators and the
+ * checksum of each download are kept in a small properties file next to the target. Resources can be stored
+ * gzip-compressed (see {@link Resource#compressed(String, Path)}); these are requested with gzip content encoding and
+ * are not resumed.
+ * @author Peter Robinson
+ */
+public class ResourceFetcher {
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int BUFFER_SIZE = 128 * 1024;
+
+    private static final int TIMEOUT_MS = 30_000;
+
+    private static final String PART_SUFFIX = ".part";
+
+    private static final String META_SUFFIX = ".download";
+
+    private static final String URL_KEY = "url";
+    private static final String ETAG_KEY = "etag";
+    private static final String LAST_MODIFIED_KEY = "lastModified";
+    private static final String SHA256_KEY = "sha256";
+    private static final String PART_ETAG_KEY = "part.etag";
+    private static final String PART_LAST_MODIFIED_KEY = "part.lastModified";
+
+    public enum Status {
+        /** The resource was downloaded completely. */
+        DOWNLOADED,
+        /** An interrupted download of the resource was completed. */
+        RESUMED,
+        /** The local file is up to date, nothing was downloaded. */
+        NOT_MODIFIED
+    }
+
+    /** Receives the number of bytes of the target that are available and the total (-1 if not known). */
+    public interface ProgressListener {
+        void progress(long bytes, long total);
+    }
+
+    /** A resource to download. */
+    public static final class Resource {
+        private final String url;
+        private final Path target;
+        private final String sha256;
+        private final boolean compress;
+
+        /**
+         * @param url URL of the resource
+         * @param target local path to which the resource is saved
+         * @param sha256 the expected SHA-256 checksum (hexadecimal) of the uncompressed resource, or null if it
+         *               is not known in advance
+         * @param compress if true, the resource is stored gzip-compressed
+         */
+        public Resource(String url, Path target, String sha256, boolean compress) {
+            this.url = url;
+            this.target = target;
+            this.sha256 = sha256;
+            this.compress = compress;
+        }
+
+        public Resource(String url, Path target, String sha256) {
+            this(url, target, sha256, false);
+        }
+
+        public Resource(String url, Path target) {
+            this(url, target, null, false);
+        }
+
+        /**
+         * @return a resource that is stored gzip-compressed at the given target (e.g., hp.obo.gz). It is requested
+         * with gzip content encoding, so that it is also transferred compressed if the server supports it.
+         */
+        public static Resource compressed(String url, Path target) {
+            return new Resource(url, target, null, true);
+        }
+
+        public String getUrl() { return url; }
+
+        public Path getTarget() { return target; }
+
+        public boolean isCompressed() { return compress; }
+
+        @Override
+        public String toString() { return url; }
+    }
+
+    /** The outcome of downloading one resource. */
+    public static final class Result {
+        private final Resource resource;
+        private final Status status;
+        private final String sha256;
+        private final IOException error;
+
+        private Result(Resource resource, Status status, String sha256, IOException error) {
+            this.resource = resource;
+            this.status = status;
+            this.sha256 = sha256;
+            this.error = error;
+        }
+
+        public Resource getResource() { return resource; }
+
+        /** @return the status, or null if the download failed. */
+        public Status getStatus() { return status; }
+
+        /** @return the SHA-256 checksum of the local file (null if the download failed). */
+        public String getSha256() { return sha256; }
+
+        /** @return the reason why the download failed, or null if it succeeded. */
+        public IOException getError() { return error; }
+
+        public boolean isSuccess() { return error == null; }
+    }
+
+    /**
+     * Download a resource.
+     * @param resource the resource
+     * @param listener receives progress updates (may be null)
+     * @return the result (never a failed one; failures are thrown)
+     * @throws IOException if the resource could not be downloaded or its checksum does not match. A partial
+     * download is kept so that it can be resumed later, unless it was found to be corrupt.
+     */
+    public Result fetch(Resource resource, ProgressListener listener) throws IOException {
+        Path target = resource.target;
+        Path part = sibling(target, PART_SUFFIX);
+        Path metaPath = sibling(target, META_SUFFIX);
+        Properties meta = readMeta(metaPath);
+        if (!resource.url.equals(meta.getProperty(URL_KEY)) || resource.compress) {
+            // the partial download belongs to another URL, or cannot be resumed because it is compressed
+            meta.remove(PART_ETAG_KEY);
+            meta.remove(PART_LAST_MODIFIED_KEY);
+            Files.deleteIfExists(part);
+        }
+        if (!resource.url.equals(meta.getProperty(URL_KEY))) {
+            meta.clear();
+        }
+        URLConnection connection = new URL(resource.url).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MS);
+        connection.setReadTimeout(TIMEOUT_MS);
+        long resumeFrom = 0;
+        if (connection instanceof HttpURLConnection) {
+            HttpURLConnection http = (HttpURLConnection) connection;
+            if (resource.compress) {
+                http.setRequestProperty("Accept-Encoding", "gzip");
+            }
+            if (Files.exists(target) && isIntact(target, resource.compress, meta.getProperty(SHA256_KEY))) {
+                setIfPresent(http, "If-None-Match", meta.getProperty(ETAG_KEY));
+                setIfPresent(http, "If-Modified-Since", meta.getProperty(LAST_MODIFIED_KEY));
+            }
+            String partValidator = meta.getProperty(PART_ETAG_KEY, meta.getProperty(PART_LAST_MODIFIED_KEY));
+            if (Files.exists(part) && partValidator != null) {
+                resumeFrom = Files.size(part);
+                http.setRequestProperty("Range", "bytes=" + resumeFrom + "-");
+                http.setRequestProperty("If-Range", partValidator);
+            }
+            int code = http.getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                logger.info("{} is up to date ({})", target, resource.url);
+                http.disconnect();
+                return new Result(resource, Status.NOT_MODIFIED, meta.getProperty(SHA256_KEY), null);
+            }
+            if (resumeFrom > 0 && code != HttpURLConnection.HTTP_PARTIAL && code != HttpURLConnection.HTTP_OK) {
+                // e.g., 416 if the process stopped after the part file was complete but before it was moved
+                logger.warn("Could not resume download of {} (HTTP {}), downloading it again", resource.url, code);
+                http.disconnect();
+                Files.deleteIfExists(part);
+                meta.remove(PART_ETAG_KEY);
+                meta.remove(PART_LAST_MODIFIED_KEY);
+                writeMeta(metaPath, meta);
+                return fetch(resource, listener);
+            }
+            if (code == HttpURLConnection.HTTP_PARTIAL) {
+                String contentRange = http.getHeaderField("Content-Range");
+                if (contentRange == null || !contentRange.startsWith("bytes " + resumeFrom + "-")) {
+                    http.disconnect();
+                    throw new IOException(String.format("Unexpected Content-Range \"%s\" for %s", contentRange, resource.url));
+                }
+            } else if (code == HttpURLConnection.HTTP_OK) {
+                resumeFrom = 0; // the server sent the whole resource
+            } else {
+                http.disconnect();
+                throw new IOException(String.format("HTTP %d (%s) for %s", code, http.getResponseMessage(), resource.url));
+            }
+            meta.remove(PART_ETAG_KEY);
+            meta.remove(PART_LAST_MODIFIED_KEY);
+            setIfPresent(meta, PART_ETAG_KEY, http.getHeaderField("ETag"));
+            setIfPresent(meta, PART_LAST_MODIFIED_KEY, http.getHeaderField("Last-Modified"));
+        }
+        meta.setProperty(URL_KEY, resource.url);
+        writeMeta(metaPath, meta);
+
+        MessageDigest digest = sha256();
+        if (resumeFrom > 0) {
+            logger.info("Resuming download of {} at byte {}", resource.url, resumeFrom);
+            try (InputStream in = Files.newInputStream(part)) {
+                digest(in, digest);
+            }
+        }
+        // progress and completeness refer to the bytes as transferred, which may be gzip-encoded
+        long length = connection.getContentLengthLong();
+        long total = length < 0 ? -1 : resumeFrom + length;
+        boolean encoded = "gzip".equalsIgnoreCase(connection.getContentEncoding());
+        byte[] buffer = new byte[BUFFER_SIZE];
+        CountingInputStream received = new CountingInputStream(connection.getInputStream());
+        try (InputStream in = encoded ? new GZIPInputStream(received, BUFFER_SIZE) : received;
+             OutputStream file = resumeFrom > 0 ?
+                     Files.newOutputStream(part, StandardOpenOption.APPEND) :
+                     Files.newOutputStream(part);
+             OutputStream out = resource.compress ? new GZIPOutputStream(file, BUFFER_SIZE) : file) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+                digest.update(buffer, 0, n);
+                if (listener != null) {
+                    listener.progress(resumeFrom + received.count, total);
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Download of " + resource.url + " was cancelled");
+                }
+            }
+        }
+        long bytes = resumeFrom + received.count;
+        if (total >= 0 && bytes != total) {
+            throw new IOException(String.format("Download of %s is incomplete: %d of %d bytes", resource.url, bytes, total));
+        }
+        String sha256 = hex(digest.digest());
+        if (resource.sha256 != null && !resource.sha256.equalsIgnoreCase(sha256)) {
+            Files.deleteIfExists(part);
+            meta.remove(PART_ETAG_KEY);
+            meta.remove(PART_LAST_MODIFIED_KEY);
+            writeMeta(metaPath, meta);
+            throw new IOException(String.format("Checksum mismatch for %s: expected %s but got %s",
+                    resource.url, resource.sha256, sha256));
+        }
+        AtomicFiles.move(part, target);
+        setIfPresent(meta, ETAG_KEY, meta.getProperty(PART_ETAG_KEY));
+        setIfPresent(meta, LAST_MODIFIED_KEY, meta.getProperty(PART_LAST_MODIFIED_KEY));
+        meta.remove(PART_ETAG_KEY);
+        meta.remove(PART_LAST_MODIFIED_KEY);
+        meta.setProperty(SHA256_KEY, sha256);
+        writeMeta(metaPath, meta);
+        logger.info("Downloaded {} to {} ({} bytes, SHA-256 {})", resource.url, target, bytes, sha256);
+        return new Result(resource, resumeFrom > 0 ? Status.RESUMED : Status.DOWNLOADED, sha256, null);
+    }
+
+    /**
+     * Download several resources concurrently.
+     * @param resources the resources
+     * @param parallelism maximum number of simultaneous downloads
+     * @return one result per resource, in the order of the resources; failed downloads have an error
+     * @throws InterruptedException if the current thread is interrupted while waiting; running downloads are
+     * cancelled
+     */
+    public List<Result> fetchAll(List<Resource> resources, int parallelism) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, resources.size())), r -> {
+            Thread thread = new Thread(r, "resource-fetcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (Resource resource : resources) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        return fetch(resource, null);
+                    } catch (IOException e) {
+                        logger.error("Could not download {}: {}", resource.url, e.getMessage());
+                        return new Result(resource, null, null, e);
+                    }
+                }));
+            }
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** @return true if the (uncompressed) content of the file has the given checksum, or if no checksum is known. */
+    private static boolean isIntact(Path file, boolean compressed, String sha256) throws IOException {
+        if (sha256 == null) {
+            return true;
+        }
+        MessageDigest digest = sha256();
+        try (InputStream in = compressed ? OboFiles.open(file.toFile()) : Files.newInputStream(file)) {
+            digest(in, digest);
+        } catch (IOException e) {
+            logger.warn("Could not read {}: {}", file, e.getMessage());
+            return false;
+        }
+        boolean intact = sha256.equals(hex(digest.digest()));
+        if (!intact) {
+            logger.warn("{} does not match the checksum of its download and will be downloaded again", file);
+        }
+        return intact;
+    }
+
+    private static Path sibling(Path target, String suffix) {
+        return target.resolveSibling(target.getFileName().toString() + suffix);
+    }
+
+    private static void setIfPresent(HttpURLConnection connection, String header, String value) {
+        if (value != null) {
+            connection.setRequestProperty(header, value);
+        }
+    }
+
+    private static void setIfPresent(Properties properties, String key, String value) {
+        if (value != null) {
+            properties.setProperty(key, value);
+        }
+    }
+
+    private static Properties readMeta(Path path) throws IOException {
+        Properties properties = new Properties();
+        if (Files.exists(path)) {
+            try (InputStream in = Files.newInputStream(path)) {
+                properties.load(in);
+            }
+        }
+        return properties;
+    }
+
+    private static void writeMeta(Path path, Properties properties) throws IOException {
+        AtomicFiles.write(path.toFile(), out -> properties.store(out, "PhenoteFX download"));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // every JRE must provide SHA-256
+        }
+    }
+
+    private static void digest(InputStream in, MessageDigest digest) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            digest.update(buffer, 0, n);
+        }
+    }
+
+    /** Counts the bytes that are read from a stream. */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -81,6 +81,10 @@ public class SmallfileParser {
 
 
     private final Ontology ontology;
+    /** Splits the lines at tabs and interns the values of all columns except the free-text description. */
+    private final TabTokenizer tokenizer = new TabTokenizer(expectedFields.length,
+            DISEASEID_IDX, DISEASENAME_IDX, PHENOTYPENAME_IDX, AGEOFONSETID_IDX, AGEOFONSETNAME_IDX, FREQUENCY_IDX,
+            SEX_ID, NEGATIVE_IDX, MODIFIER_IDX, PUBLICATION_IDX, EVIDENCE_IDX, BIOCURATION_IDX);
 
     public SmallfileParser(File file, Ontology onto) {
         this.currentPhenoteFileFullPath = file.getAbsolutePath();
@@ -93,53 +97,152 @@ public class SmallfileParser {
 
 
 
-    public ObservableList<PhenoRow> parse() throws PhenoteFxException {
-        ObservableList<PhenoRow> phenolist = FXCollections.observableArrayList();
-             try {
-            BufferedReader br = new BufferedReader(new FileReader(this.currentPhenoteFileFullPath));
+    /**
+     * Receives the validated rows of a small file one at a time from {@link #read(RowVisitor)}.
+     */
+    @FunctionalInterface
+    public interface RowVisitor {
+        /**
+         * @param row the current row; it is only valid for the duration of the call
+         * @return true to continue reading, false to stop after this row
+         */
+        boolean visit(Row row) throws PhenoteFxException;
+
+        /** Called for each comment line (starting with #) after the header. By default, comments are skipped. */
+        default void comment(String line) throws PhenoteFxException {
+            // skip
+        }
+    }
+
+    /**
+     * A view of the current line of a small file. The fields have already been checked: the line has the expected
+     * number of fields, and the phenotype id is a term of the ontology. To avoid allocations, the same object is
+     * reused for all lines of a file; callers that need to keep the data should convert the row with
+     * {@link #toSmallFileEntry()} or {@link #toPhenoRow()}.
+     */
+    public final class Row {
+        private final String[] A = new String[expectedFields.length];
+        private TermId phenotypeId;
+        private TermId ageOfOnsetId;
+        private int lineNumber;
+
+        /** @return the (one-based) line number in the file. */
+        public int getLineNumber() { return lineNumber; }
+        public String getDiseaseID() { return A[DISEASEID_IDX]; }
+        public String getDiseaseName() { return A[DISEASENAME_IDX]; }
+        public TermId getPhenotypeId() { return phenotypeId; }
+        public String getPhenotypeName() { return A[PHENOTYPENAME_IDX]; }
+        /** @return the onset TermId, or null if the onset field does not contain an HPO id. */
+        public TermId getAgeOfOnsetId() { return ageOfOnsetId; }
+        public String getAgeOfOnsetName() { return A[AGEOFONSETNAME_IDX]; }
+        public String getFrequency() { return A[FREQUENCY_IDX]; }
+        public String getSex() { return A[SEX_ID]; }
+        public String getNegation() { return A[NEGATIVE_IDX]; }
+        public String getModifier() { return A[MODIFIER_IDX]; }
+        public String getDescription() { return A[DESCRIPTION_IDX]; }
+        public String getPublication() { return A[PUBLICATION_IDX]; }
+        public String getEvidenceCode() { return A[EVIDENCE_IDX]; }
+        public String getBiocuration() { return A[BIOCURATION_IDX]; }
+
+        public PhenoRow toPhenoRow() {
+            return new PhenoRow(getDiseaseID(),getDiseaseName(),phenotypeId,getPhenotypeName(),ageOfOnsetId,
+                    getAgeOfOnsetName(),getFrequency(),getSex(),getNegation(),getModifier(),getDescription(),
+                    getPublication(),getEvidenceCode(),getBiocuration());
+        }
+
+        public SmallFileEntry toSmallFileEntry() {
+            SmallFileEntry.Builder builder=new SmallFileEntry.Builder(getDiseaseID(),
+                    getDiseaseName(),
+                    phenotypeId,
+                    getPhenotypeName(),
+                    getEvidenceCode(),
+                    getPublication(),
+                    getBiocuration());
+            if (! getFrequency().isEmpty()) {
+                builder=builder.frequencyString(getFrequency());
+            }
+            if (!getSex().isEmpty()) {
+                builder=builder.sex(getSex());
+            }
+            if (!getNegation().isEmpty()) {
+                builder=builder.negation(getNegation());
+            }
+            if (!getModifier().isEmpty()) {
+                builder=builder.modifier(getModifier());
+            }
+            if (! getDescription().isEmpty()) {
+                builder=builder.description(getDescription());
+            }
+            if (ageOfOnsetId!=null) {
+                builder=builder.ageOfOnsetId(ageOfOnsetId.getValue());
+            }
+            builder=builder.ageOfOnsetName(getAgeOfOnsetName());
+            return builder.build();
+        }
+    }
+
+    /**
+     * Stream the rows of the small file to a visitor. The file is read line by line, so that callers can process
+     * (or filter) the rows without building a list, and can stop early by returning false from the visitor.
+     * @param visitor receives each valid row, and each comment line
+     * @throws PhenoteFxException if the header or a row is malformed, or a phenotype id is not in the ontology
+     * @throws IOException if the file cannot be read
+     */
+    public void read(RowVisitor visitor) throws PhenoteFxException, IOException {
+        try (BufferedReader br = new BufferedReader(new FileReader(this.currentPhenoteFileFullPath))) {
             String line=br.readLine();
+            if (line == null) {
+                throw new PhenoteFxException(String.format("Empty annotation file: %s", this.currentPhenoteFileFullPath));
+            }
             qcHeaderLine(line);
+            Row row = new Row();
+            String A[] = row.A;
+            int lineNumber = 1;
             while ((line=br.readLine())!=null) {
-                //System.out.println(line);
+                lineNumber++;
                 if (line.startsWith("#")) {
-                    throw new PhenoteFxException(String.format("Invalid comment line in annotation file: %s",line));
+                    visitor.comment(line);
+                    continue;
                 }
-                String A[] = line.split("\t");
-                if (A.length!= expectedFields.length) {
-                    throw new PhenoteFxException(String.format("We were expecting %d fields but got %d for line %s",
-                            expectedFields.length,
-                            A.length,line ));
+                int n = tokenizer.tokenize(line, A);
+                if (n!= expectedFields.length) {
+                    logger.error("We were expecting {} fields but got {} for line {}", expectedFields.length, n, line);
+                    throw new PhenoteFxException(String.format("We were expecting %d fields but got %d for line %s",expectedFields.length,n,line ));
                 }
-                String diseaseID=A[DISEASEID_IDX];
-                String diseaseName=A[DISEASENAME_IDX];
-                TermId phenotypeId = TermId.of(A[PHENOTYPEID_IDX]);
+                TermId phenotypeId = TabTokenizer.termId(A[PHENOTYPEID_IDX]);
                 if (! ontology.getTermMap().containsKey(phenotypeId)) {
                     throw new PhenoteFxException(String.format("HPO TermId %s was not found in ontology. " +
-                            "Are you using the same ontology and annotation file versions?", A[2]));
+                            "Are you using the same ontology and annotation file versions?", A[PHENOTYPEID_IDX]));
                 }
-                String phenotypeName=A[PHENOTYPENAME_IDX];
-                TermId ageOfOnsetId=null;
-                if (A[4]!=null && A[4].startsWith("HP")) {
-                    ageOfOnsetId=TermId.of(A[AGEOFONSETID_IDX]);
+                row.phenotypeId = phenotypeId;
+                row.ageOfOnsetId = A[AGEOFONSETID_IDX].startsWith("HP") ? TabTokenizer.termId(A[AGEOFONSETID_IDX]) : null;
+                row.lineNumber = lineNumber;
+                if (! visitor.visit(row)) {
+                    break;
                 }
-                String ageOfOnsetName=A[AGEOFONSETNAME_IDX];
-                String frequencyString=A[FREQUENCY_IDX];
-                String sex=A[SEX_ID];
-                String negation=A[NEGATIVE_IDX];
-                String modifier=A[MODIFIER_IDX];
-                String description=A[DESCRIPTION_IDX];
-                String publication=A[PUBLICATION_IDX];
-                String evidenceCode=A[EVIDENCE_IDX];
-                String biocuration=A[BIOCURATION_IDX];
-
-                PhenoRow row = new PhenoRow(diseaseID,diseaseName,phenotypeId,phenotypeName,ageOfOnsetId,ageOfOnsetName,
-                        frequencyString,sex,negation,modifier,description,publication,evidenceCode,biocuration);
-                phenolist.add(row);
-                //System.err.println(row.toString());
             }
-            br.close();
+        }
+    }
 
+    /**
+     * Parse the small file into rows for the GUI table. Comment lines are not allowed, because they would
+     * be lost when the table is saved.
+     */
+    public ObservableList<PhenoRow> parse() throws PhenoteFxException {
+        ObservableList<PhenoRow> phenolist = FXCollections.observableArrayList();
+        try {
+            read(new RowVisitor() {
+                @Override
+                public boolean visit(Row row) {
+                    phenolist.add(row.toPhenoRow());
+                    return true;
+                }
 
+                @Override
+                public void comment(String line) throws PhenoteFxException {
+                    throw new PhenoteFxException(String.format("Invalid comment line in annotation file: %s",line));
+                }
+            });
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -147,77 +250,12 @@ public class SmallfileParser {
     }
 
 
-
+    /** Parse the small file into a {@link SmallFile}; comment lines are skipped. */
     public Optional<SmallFile> parseV2SmallFile() throws PhenoteFxException{
         String basename=(new File(this.currentPhenoteFileFullPath).getName());
         List<SmallFileEntry> entryList=new ArrayList<>();
-
         try {
-            BufferedReader br = new BufferedReader(new FileReader(this.currentPhenoteFileFullPath));
-            String line=br.readLine();
-            qcHeaderLine(line);
-            while ((line=br.readLine())!=null) {
-                //System.out.println(line);
-                if (line.startsWith("#")) continue;
-                String A[] = line.split("\t");
-                if (A.length!= expectedFields.length) {
-                    logger.error(String.format("We were expecting %d fields but got %d for line %s",expectedFields.length,A.length,line ));
-                    throw new PhenoteFxException(String.format("We were expecting %d fields but got %d for line %s",expectedFields.length,A.length,line ));
-                }
-                String diseaseID=A[DISEASEID_IDX];
-                String diseaseName=A[DISEASENAME_IDX];
-                TermId phenotypeId = TermId.of(A[PHENOTYPEID_IDX]);
-                if (! ontology.getTermMap().containsKey(phenotypeId)) {
-                    throw new PhenoteFxException(String.format("HPO TermId %s was not found in ontology. " +
-                            "Are you using the same ontology and annotation file versions?", A[2]));
-                }
-                String phenotypeName=A[PHENOTYPENAME_IDX];
-                TermId ageOfOnsetId=null;
-                if (A[4]!=null && A[4].startsWith("HP")) {
-                    ageOfOnsetId=TermId.of(A[AGEOFONSETID_IDX]);
-                }
-                String ageOfOnsetName=A[AGEOFONSETNAME_IDX];
-                String frequencyString=A[FREQUENCY_IDX];
-                String sex=A[SEX_ID];
-                String negation=A[NEGATIVE_IDX];
-                String modifier=A[MODIFIER_IDX];
-                String description=A[DESCRIPTION_IDX];
-                String publication=A[PUBLICATION_IDX];
-                String evidenceCode=A[EVIDENCE_IDX];
-                String biocuration=A[BIOCURATION_IDX];
-
-
-                SmallFileEntry.Builder builder=new SmallFileEntry.Builder(diseaseID,
-                        diseaseName,
-                        phenotypeId,
-                        phenotypeName,
-                        evidenceCode,
-                        publication,
-                        biocuration);
-                if (frequencyString!=null && ! frequencyString.isEmpty()) {
-                    builder=builder.frequencyString(frequencyString);
-                }
-                if (sex!=null && !sex.isEmpty()) {
-                    builder=builder.sex(sex);
-                }
-                if (negation!=null && !negation.isEmpty()) {
-                    builder=builder.negation(negation);
-                }
-                if (modifier!=null && !modifier.isEmpty()) {
-                    builder=builder.modifier(modifier);
-                }
-                if (description!=null && ! description.isEmpty()) {
-                    builder=builder.description(description);
-                }
-                if (ageOfOnsetId!=null) {
-                    builder=builder.ageOfOnsetId(ageOfOnsetId.getValue());
-                }
-                if (ageOfOnsetName!=null) {
-                    builder=builder.ageOfOnsetName(ageOfOnsetName);
-                }
-                entryList.add(builder.build());
-            }
-            br.close();
+            read(row -> entryList.add(row.toSmallFileEntry()));
             return  Optional.of(new SmallFile(basename,entryList));
         } catch (IOException e) {
             e.printStackTrace();
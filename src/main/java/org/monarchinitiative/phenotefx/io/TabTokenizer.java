@@ -0,0 +1,104 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * Splits the lines of a small file at the tab characters. Unlike {@code String.split("\t")}, the tokenizer walks
+ * each line once without compiling a pattern or allocating an intermediate list, and it writes the fields into a
+ * caller-supplied array. Empty fields are all represented by the same (empty) String object, and the values of the
+ * columns chosen by the caller (disease ids, evidence codes, biocuration entries, onset ids, etc.) are interned,
+ * since the same values occur in hundreds of thousands of rows of the corpus. The same holds for the TermId objects
+ * of the HPO ids (see {@link #termId(String)}). The interners hold their values weakly and are shared by all
+ * threads.
+ * <p>
+ * For compatibility with {@code String.split}, trailing empty fields are not counted by {@link #tokenize}.
+ * @author Peter Robinson
+ */
+final class TabTokenizer {
+    private static final String EMPTY_STRING = "";
+    private static final char TAB = '\t';
+    private static final Interner<String> STRING_INTERNER = Interners.newWeakInterner();
+    /**
+     * Shares the TermId objects of the rows. Like {@link #STRING_INTERNER}, it holds them weakly, so that the ids of
+     * files that are no longer referenced (including malformed or unknown ids) do not stay in memory.
+     */
+    private static final Interner<TermId> TERM_ID_INTERNER = Interners.newWeakInterner();
+    /** True for the columns whose values are interned. */
+    private final boolean[] interned;
+
+    /**
+     * @param nFields number of fields of a valid line
+     * @param internedColumns (zero-based) indices of the columns whose values should be interned
+     */
+    TabTokenizer(int nFields, int... internedColumns) {
+        this.interned = new boolean[nFields];
+        for (int i : internedColumns) {
+            interned[i] = true;
+        }
+    }
+
+    /**
+     * Split a line into its fields.
+     * @param line one line of a small file
+     * @param fields array that receives the fields; fields beyond the length of the array are counted but not stored
+     * @return the number of fields on the line, not counting trailing empty fields
+     */
+    int tokenize(String line, String[] fields) {
+        int n = 0;
+        int nonEmpty = 0;
+        int start = 0;
+        int len = line.length();
+        while (true) {
+            int end = line.indexOf(TAB, start);
+            if (end < 0) {
+                end = len;
+            }
+            if (end > start) {
+                if (n < fields.length) {
+                    String value = line.substring(start, end);
+                    fields[n] = n < interned.length && interned[n] ? STRING_INTERNER.intern(value) : value;
+                }
+                nonEmpty = n + 1;
+            } else if (n < fields.length) {
+                fields[n] = EMPTY_STRING;
+            }
+            n++;
+            if (end == len) {
+                break;
+            }
+            start = end + 1;
+        }
+        // String.split returns one (empty) field for an empty line
+        return len == 0 ? 1 : nonEmpty;
+    }
+
+    /**
+     * @param id a term id such as HP:0001234
+     * @return a TermId object that is shared by all rows with the same id
+     */
+    static TermId termId(String id) {
+        return TERM_ID_INTERNER.intern(TermId.of(id));
+    }
+}
@@ -0,0 +1,245 @@
+package org.monarchinitiative.phenotefx.model;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lookup of the fractions n/m that are closest to a percentage, e.g., 7/13 for 54%. Papers often only report the
+ * percentage of affected individuals, but we want to record the counts. The index holds every fraction n/m with
+ * 1 &le; n &le; m &le; {@code maxDenominator}, together with the fractions listed in {@code /data/percentages.txt},
+ * in parallel primitive arrays sorted by percentage, and is queried by binary search. It is immutable and the
+ * default index is built only once.
+ * @author Peter Robinson
+ */
+public final class FractionIndex {
+    private static final Logger logger = LogManager.getLogger();
+    /** Largest denominator of the fractions of the default index. */
+    public static final int DEFAULT_MAX_DENOMINATOR = 100;
+    /** Fractions within this many percentage points of the query are returned by default. */
+    public static final double DEFAULT_TOLERANCE = 3.0;
+    private static final String PERCENTAGES_RESOURCE = "/data/percentages.txt";
+    /** A percentage such as "54%", "54.5 %" or "54". */
+    private static final Pattern PERCENTAGE = Pattern.compile("\\s*(\\d+(?:\\.\\d+)?)\\s*%?\\s*");
+
+    private static FractionIndex instance;
+
+    /** Percentages (100*n/m), sorted. */
+    private final double[] percentages;
+    private final int[] numerators;
+    private final int[] denominators;
+    private final int maxDenominator;
+
+    /** A fraction n/m such as 7/13. */
+    public static final class Fraction {
+        private final int numerator;
+        private final int denominator;
+
+        Fraction(int numerator, int denominator) {
+            this.numerator = numerator;
+            this.denominator = denominator;
+        }
+
+        public int getNumerator() { return numerator; }
+
+        public int getDenominator() { return denominator; }
+
+        public double getPercentage() { return 100.0 * numerator / denominator; }
+
+        /** @return the fraction as it is entered in the frequency column, e.g., "7/13". */
+        @Override
+        public String toString() {
+            return numerator + "/" + denominator;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Fraction)) return false;
+            Fraction f = (Fraction) o;
+            return numerator == f.numerator && denominator == f.denominator;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * numerator + denominator;
+        }
+    }
+
+    /**
+     * @param maxDenominator all fractions with a denominator up to this bound are added to the index
+     * @param listed additional fractions (e.g., from percentages.txt); fractions with a larger denominator are kept
+     */
+    public FractionIndex(int maxDenominator, Collection<Fraction> listed) {
+        if (maxDenominator < 1) {
+            throw new IllegalArgumentException("maxDenominator must be positive: " + maxDenominator);
+        }
+        this.maxDenominator = maxDenominator;
+        List<Fraction> fractions = new ArrayList<>();
+        for (int m = 1; m <= maxDenominator; m++) {
+            for (int n = 1; n <= m; n++) {
+                fractions.add(new Fraction(n, m));
+            }
+        }
+        for (Fraction f : new LinkedHashSet<>(listed)) {
+            if (f.denominator > maxDenominator) {
+                fractions.add(f);
+            }
+        }
+        fractions.sort(Comparator.comparingDouble(Fraction::getPercentage)
+                .thenComparingInt(Fraction::getDenominator));
+        int size = fractions.size();
+        this.percentages = new double[size];
+        this.numerators = new int[size];
+        this.denominators = new int[size];
+        for (int i = 0; i < size; i++) {
+            Fraction f = fractions.get(i);
+            percentages[i] = f.getPercentage();
+            numerators[i] = f.numerator;
+            denominators[i] = f.denominator;
+        }
+    }
+
+    /** @return the shared index with fractions up to {@link #DEFAULT_MAX_DENOMINATOR} and those of percentages.txt. */
+    public static synchronized FractionIndex factory() {
+        if (instance == null) {
+            List<Fraction> listed = Collections.emptyList();
+            try (InputStream is = FractionIndex.class.getResourceAsStream(PERCENTAGES_RESOURCE)) {
+                if (is == null) {
+                    logger.warn("Could not find {}", PERCENTAGES_RESOURCE);
+                } else {
+                    listed = parse(is);
+                }
+            } catch (IOException e) {
+                logger.warn("Could not read {}: {}", PERCENTAGES_RESOURCE, e.getMessage());
+            }
+            instance = new FractionIndex(DEFAULT_MAX_DENOMINATOR, listed);
+        }
+        return instance;
+    }
+
+    /**
+     * Parse lines such as {@code 53.8462	7	13} (percentage, numerator, denominator).
+     * @throws IOException if a line is malformed
+     */
+    static List<Fraction> parse(InputStream is) throws IOException {
+        List<Fraction> fractions = new ArrayList<>();
+        BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (line.trim().isEmpty()) continue;
+            String[] fields = line.trim().split("\\s+");
+            try {
+                int n = Integer.parseInt(fields[1]);
+                int m = Integer.parseInt(fields[2]);
+                if (fields.length != 3 || n < 0 || m < 1 || n > m) {
+                    throw new IOException("Malformed line: " + line);
+                }
+                fractions.add(new Fraction(n, m));
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Malformed line: " + line);
+            }
+        }
+        return fractions;
+    }
+
+    /** @return the number of fractions in the index. */
+    public int size() {
+        return percentages.length;
+    }
+
+    /**
+     * @param percentage a percentage between 0 and 100
+     * @param tolerance maximum difference in percentage points
+     * @param limit maximum number of fractions
+     * @return the fractions closest to the percentage, closest first; fractions that are equally close are sorted
+     * by their denominator
+     */
+    public List<Fraction> nearest(double percentage, double tolerance, int limit) {
+        // the candidates are the range [from, to) around the insertion point of the percentage
+        int from = lowerBound(percentage - tolerance);
+        int to = lowerBound(Math.nextUp(percentage + tolerance));
+        Integer[] order = new Integer[to - from];
+        for (int i = from; i < to; i++) {
+            order[i - from] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> Math.abs(percentages[i] - percentage))
+                .thenComparingInt(i -> denominators[i]));
+        List<Fraction> result = new ArrayList<>(Math.min(limit, order.length));
+        for (int k = 0; k < order.length && result.size() < limit; k++) {
+            result.add(new Fraction(numerators[order[k]], denominators[order[k]]));
+        }
+        return result;
+    }
+
+    /**
+     * Compute the fraction with the given denominator (e.g., the size of the cohort) that is closest to the
+     * percentage. This works for any denominator, including those larger than the bound of the index.
+     */
+    public static Fraction nearest(double percentage, int denominator) {
+        if (denominator < 1) {
+            throw new IllegalArgumentException("denominator must be positive: " + denominator);
+        }
+        int numerator = (int) Math.round(percentage * denominator / 100.0);
+        numerator = Math.max(0, Math.min(denominator, numerator));
+        return new Fraction(numerator, denominator);
+    }
+
+    /** @return the largest denominator for which all fractions are in the index. */
+    public int getMaxDenominator() {
+        return maxDenominator;
+    }
+
+    /**
+     * @param text user input such as "54%" or "54.5"
+     * @return the percentage, or empty if the text is not a percentage between 0 and 100
+     */
+    public static Optional<Double> parsePercentage(String text) {
+        if (text == null) return Optional.empty();
+        Matcher m = PERCENTAGE.matcher(text);
+        if (!m.matches()) return Optional.empty();
+        double d = Double.parseDouble(m.group(1));
+        return d <= 100 ? Optional.of(d) : Optional.empty();
+    }
+
+    /** @return index of the first percentage that is not less than {@code value}. */
+    private int lowerBound(double value) {
+        int lo = 0, hi = percentages.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (percentages[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,327 @@
+package org.monarchinitiative.phenotefx.model;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenol.ontology.data.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The transitive closure of the is-a hierarchy of an ontology, computed once so that subclass queries do not need
+ * to traverse the graph. The terms are numbered in the preorder of a depth-first spanning tree of the hierarchy, so
+ * that the descendants of a term within the spanning tree form the interval {@code [t, subtreeEnd[t])} and most
+ * ancestor queries are answered by two comparisons (interval labeling). Because the hierarchy is a DAG rather than a
+ * tree, the remaining queries fall back to a binary search in the sorted ancestors of the term, which are stored
+ * for all terms in one flat array (on average a few dozen per HPO term). The descendants are stored the same way.
+ * This takes a few megabytes for the HPO, whereas a bitset per term would take about 16k x 16k bits, i.e. 32 MB.
+ * <p>
+ * Alternative ids are resolved to their primary terms. The closure is immutable and can be queried from any thread.
+ * It is persisted together with the binary snapshot of the ontology (see
+ * {@link org.monarchinitiative.phenotefx.io.OntologySnapshot#saveClosure(OntologyClosure)}).
+ * @author Peter Robinson
+ */
+public final class OntologyClosure {
+    /** The primary term ids, in preorder of the spanning tree. */
+    private final TermId[] terms;
+    /** Key: primary or alternative term id; value: index into {@link #terms}. */
+    private final Map<TermId, Integer> index;
+    /** The terms {@code (t, subtreeEnd[t])} are the descendants of t in the spanning tree. */
+    private final int[] subtreeEnd;
+    /** {@code ancestors[ancestorStart[t]..ancestorStart[t+1])} are the proper ancestors of t, sorted. */
+    private final int[] ancestorStart;
+    private final int[] ancestors;
+    /** {@code descendants[descendantStart[t]..descendantStart[t+1])} are the proper descendants of t, sorted. */
+    private final int[] descendantStart;
+    private final int[] descendants;
+
+    private OntologyClosure(TermId[] terms, Map<TermId, Integer> index, int[] subtreeEnd,
+                            int[] ancestorStart, int[] ancestors) {
+        this.terms = terms;
+        this.index = index;
+        this.subtreeEnd = subtreeEnd;
+        this.ancestorStart = ancestorStart;
+        this.ancestors = ancestors;
+        // invert the ancestor lists; as the terms are visited in ascending order, each list ends up sorted
+        int n = terms.length;
+        this.descendantStart = new int[n + 1];
+        for (int a : ancestors) {
+            descendantStart[a + 1]++;
+        }
+        for (int t = 0; t < n; t++) {
+            descendantStart[t + 1] += descendantStart[t];
+        }
+        this.descendants = new int[ancestors.length];
+        int[] next = Arrays.copyOf(descendantStart, n);
+        for (int t = 0; t < n; t++) {
+            for (int k = ancestorStart[t]; k < ancestorStart[t + 1]; k++) {
+                descendants[next[ancestors[k]]++] = t;
+            }
+        }
+    }
+
+    /**
+     * Compute the closure of the is-a relationships of an ontology.
+     * @param ontology an ontology such as the HPO
+     * @return the closure
+     */
+    public static OntologyClosure of(Ontology ontology) {
+        // number the distinct terms in the order of their ids, so that the result does not depend on map order
+        SortedSet<TermId> ids = new TreeSet<>();
+        for (Term term : ontology.getTermMap().values()) {
+            ids.add(term.getId());
+        }
+        TermId[] sorted = ids.toArray(new TermId[0]);
+        int n = sorted.length;
+        Map<TermId, Integer> byId = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            byId.put(sorted[i], i);
+        }
+        for (Map.Entry<TermId, Term> e : ontology.getTermMap().entrySet()) {
+            byId.putIfAbsent(e.getKey(), byId.get(e.getValue().getId()));
+        }
+        List<List<Integer>> parents = new ArrayList<>();
+        List<List<Integer>> children = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            parents.add(new ArrayList<>());
+            children.add(new ArrayList<>());
+        }
+        for (Relationship r : ontology.getRelationMap().values()) {
+            if (!RelationshipType.IS_A.getId().equals(r.getRelationshipType().getId())) {
+                continue;
+            }
+            Integer child = byId.get(r.getSource());
+            Integer parent = byId.get(r.getTarget());
+            if (child != null && parent != null && !child.equals(parent)) {
+                parents.get(child).add(parent);
+                children.get(parent).add(child);
+            }
+        }
+        children.forEach(Collections::sort);
+
+        // depth-first preorder, starting with the root and then with any term that was not reached from it
+        int[] order = new int[n]; // sorted index -> preorder
+        Arrays.fill(order, -1);
+        int[] end = new int[n];
+        int counter = 0;
+        Deque<int[]> stack = new ArrayDeque<>(); // {term, next child}
+        Integer root = byId.get(ontology.getRootTermId());
+        for (int start = -1; start < n; start++) {
+            int s = start < 0 ? (root == null ? -1 : root) : start;
+            if (s < 0 || order[s] >= 0) {
+                continue;
+            }
+            order[s] = counter++;
+            stack.push(new int[]{s, 0});
+            while (!stack.isEmpty()) {
+                int[] top = stack.peek();
+                List<Integer> c = children.get(top[0]);
+                if (top[1] < c.size()) {
+                    int child = c.get(top[1]++);
+                    if (order[child] < 0) {
+                        order[child] = counter++;
+                        stack.push(new int[]{child, 0});
+                    }
+                } else {
+                    end[order[top[0]]] = counter;
+                    stack.pop();
+                }
+            }
+        }
+        TermId[] terms = new TermId[n];
+        for (int i = 0; i < n; i++) {
+            terms[order[i]] = sorted[i];
+        }
+        Map<TermId, Integer> index = new HashMap<>();
+        for (Map.Entry<TermId, Integer> e : byId.entrySet()) {
+            index.put(e.getKey(), order[e.getValue()]);
+        }
+
+        // ancestors of each term = union of its parents and their ancestors, computed parents first (Kahn)
+        int[][] anc = new int[n][];
+        int[] pending = new int[n];
+        Deque<Integer> ready = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            pending[i] = parents.get(i).size();
+            if (pending[i] == 0) {
+                ready.add(i);
+            }
+        }
+        int total = 0;
+        while (!ready.isEmpty()) {
+            int t = ready.poll();
+            Set<Integer> set = new HashSet<>();
+            for (int p : parents.get(t)) {
+                set.add(order[p]);
+                for (int a : anc[p]) {
+                    set.add(a);
+                }
+            }
+            anc[t] = set.stream().mapToInt(Integer::intValue).sorted().toArray();
+            total += anc[t].length;
+            for (int c : children.get(t)) {
+                if (--pending[c] == 0) {
+                    ready.add(c);
+                }
+            }
+        }
+        int[] preorderToSorted = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (anc[i] == null) {
+                throw new IllegalArgumentException("The is-a hierarchy contains a cycle through " + sorted[i].getValue());
+            }
+            preorderToSorted[order[i]] = i;
+        }
+        int[] ancestorStart = new int[n + 1];
+        int[] ancestors = new int[total];
+        int k = 0;
+        for (int t = 0; t < n; t++) {
+            ancestorStart[t] = k;
+            for (int a : anc[preorderToSorted[t]]) {
+                ancestors[k++] = a;
+            }
+        }
+        ancestorStart[n] = k;
+        return new OntologyClosure(terms, index, end, ancestorStart, ancestors);
+    }
+
+    /** @return number of (primary) terms. */
+    public int size() {
+        return terms.length;
+    }
+
+    /** @return true if the term (or an alternative id of it) is part of the ontology. */
+    public boolean contains(TermId termId) {
+        return index.containsKey(termId);
+    }
+
+    private int indexOf(TermId termId) {
+        Integer i = index.get(termId);
+        if (i == null) {
+            throw new IllegalArgumentException("Unknown term: " + termId.getValue());
+        }
+        return i;
+    }
+
+    /**
+     * @param ancestor a term id
+     * @param descendant a term id
+     * @return true if {@code descendant} is a proper subclass (direct or indirect) of {@code ancestor}
+     * @throws IllegalArgumentException if one of the terms is not part of the ontology
+     */
+    public boolean isAncestorOf(TermId ancestor, TermId descendant) {
+        int a = indexOf(ancestor);
+        int d = indexOf(descendant);
+        if (a == d) {
+            return false;
+        }
+        if (a < d && d < subtreeEnd[a]) {
+            return true; // d is below a in the spanning tree
+        }
+        return Arrays.binarySearch(ancestors, ancestorStart[d], ancestorStart[d + 1], a) >= 0;
+    }
+
+    /**
+     * @return true if {@code termId} is {@code subtreeRoot} or one of its descendants, e.g., to check whether a term
+     * belongs to the Clinical modifier subhierarchy.
+     */
+    public boolean isInSubtree(TermId termId, TermId subtreeRoot) {
+        return indexOf(termId) == indexOf(subtreeRoot) || isAncestorOf(subtreeRoot, termId);
+    }
+
+    /** @return the proper ancestors of the term. */
+    public List<TermId> getAncestors(TermId termId) {
+        int t = indexOf(termId);
+        return toTermIds(ancestors, ancestorStart[t], ancestorStart[t + 1]);
+    }
+
+    /** @return the proper descendants of the term. */
+    public List<TermId> getDescendants(TermId termId) {
+        int t = indexOf(termId);
+        return toTermIds(descendants, descendantStart[t], descendantStart[t + 1]);
+    }
+
+    private List<TermId> toTermIds(int[] a, int from, int to) {
+        List<TermId> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(terms[a[i]]);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /** Write the closure in the binary format read by {@link #read(DataInputStream)}. */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(terms.length);
+        for (TermId t : terms) {
+            out.writeUTF(t.getValue());
+        }
+        int alternatives = index.size() - terms.length;
+        out.writeInt(alternatives);
+        for (Map.Entry<TermId, Integer> e : index.entrySet()) {
+            if (!terms[e.getValue()].equals(e.getKey())) {
+                out.writeUTF(e.getKey().getValue());
+                out.writeInt(e.getValue());
+            }
+        }
+        writeInts(out, subtreeEnd);
+        writeInts(out, ancestorStart);
+        writeInts(out, ancestors);
+    }
+
+    /** @return a closure written by {@link #write(DataOutputStream)}. */
+    public static OntologyClosure read(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        TermId[] terms = new TermId[n];
+        Map<TermId, Integer> index = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            terms[i] = TermId.of(in.readUTF());
+            index.put(terms[i], i);
+        }
+        int alternatives = in.readInt();
+        for (int i = 0; i < alternatives; i++) {
+            index.put(TermId.of(in.readUTF()), in.readInt());
+        }
+        int[] subtreeEnd = readInts(in);
+        int[] ancestorStart = readInts(in);
+        int[] ancestors = readInts(in);
+        if (subtreeEnd.length != n || ancestorStart.length != n + 1 || ancestorStart[n] != ancestors.length) {
+            throw new IOException("Inconsistent ontology closure");
+        }
+        return new OntologyClosure(terms, index, subtreeEnd, ancestorStart, ancestors);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] a) throws IOException {
+        out.writeInt(a.length);
+        for (int x : a) {
+            out.writeInt(x);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        int[] a = new int[in.readInt()];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = in.readInt();
+        }
+        return a;
+    }
+}
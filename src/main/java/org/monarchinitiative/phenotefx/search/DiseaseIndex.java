@@ -0,0 +1,306 @@
+package org.monarchinitiative.phenotefx.search;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.*;
+
+/**
+ * An immutable index of disease names and ids (OMIM from the MedGen file and Mondo) that can be searched in both
+ * directions. The (name, id) pairs are kept in parallel arrays sorted by name, ignoring case, together with a
+ * permutation of them sorted by id. The lower-case names are additionally concatenated into a single string with
+ * a separator, so that a substring search is a sequence of {@link String#indexOf(String, int)} calls over one
+ * contiguous array rather than a loop over thousands of strings; the entry of a hit is found by binary search in
+ * the array of start positions. Looking up a name or an id, and searching by prefix, are binary searches.
+ * <p>
+ * OMIM ids are stored as {@code OMIM:615513}; the {@code MIM:} prefix used by the MedGen file and bare MIM numbers
+ * are accepted as well. The index can be queried from any thread.
+ * <p>
+ * Memory: the OMIM names are copied from the memory-mapped {@link org.monarchinitiative.phenotefx.io.MedGenIndex}
+ * to the heap, together with the Mondo names, so the index gives up the zero-copy lookups of the MedGen index for
+ * as long as it is alive. This is deliberate: a case-insensitive substring search over both vocabularies needs one
+ * contiguous lower-case copy of all names, and merging the results of two separate indexes would break the single
+ * alphabetical order of the matches. The index holds a few tens of thousands of names (a few megabytes), and is
+ * only built the first time a disease is searched by name, so curators who never do so and the batch mode never
+ * pay for it.
+ * @author Peter Robinson
+ */
+public final class DiseaseIndex {
+    private static final String OMIM_PREFIX = "OMIM";
+    /** Separates the names in {@link #haystack}; it cannot occur in a name or a query. */
+    private static final char SEPARATOR = '\n';
+
+    /** The disease names, sorted by their lower-case form. */
+    private final String[] names;
+    /** {@code ids[i]} is the id of the disease {@code names[i]}. */
+    private final String[] ids;
+    /** Indices into {@link #names} and {@link #ids}, sorted by id. */
+    private final int[] byId;
+    /** The lower-case names, each followed by {@link #SEPARATOR}. */
+    private final String haystack;
+    /** {@code starts[i]} is the position of the i-th name in {@link #haystack}; {@code starts[n]} is its length. */
+    private final int[] starts;
+
+    /** A disease of the index. */
+    public static final class Entry {
+        private final String id;
+        private final String name;
+
+        public Entry(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        /** @return the disease id, e.g., OMIM:615513 or MONDO:0007739. */
+        public String getId() { return id; }
+
+        public String getName() { return name; }
+
+        /** @return the name of the annotation file ("small file") of the disease, e.g., OMIM-615513.tab. */
+        public String getAnnotationFileName() {
+            return annotationFileName(id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry that = (Entry) o;
+            return id.equals(that.id) && name.equals(that.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * id.hashCode() + name.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + id + ")";
+        }
+    }
+
+    /**
+     * @param name2idMaps maps with key: disease name and value: disease id, e.g., the OMIM names of the MedGen file
+     *                    and the Mondo disease names. Identical (name, id) pairs are only indexed once.
+     */
+    public DiseaseIndex(List<Map<String, String>> name2idMaps) {
+        List<Entry> entries = new ArrayList<>();
+        Set<Entry> seen = new HashSet<>();
+        for (Map<String, String> name2id : name2idMaps) {
+            for (Map.Entry<String, String> e : name2id.entrySet()) {
+                String name = e.getKey().replace(SEPARATOR, ' ').trim();
+                Entry entry = new Entry(normalizeId(e.getValue()), name);
+                if (!name.isEmpty() && seen.add(entry)) {
+                    entries.add(entry);
+                }
+            }
+        }
+        // sort by the lower-case names, which are what the binary searches compare
+        entries.sort(Comparator.comparing((Entry e) -> fold(e.name))
+                .thenComparing(e -> e.name).thenComparing(e -> e.id));
+        int n = entries.size();
+        this.names = new String[n];
+        this.ids = new String[n];
+        this.starts = new int[n + 1];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            names[i] = entries.get(i).name;
+            ids[i] = entries.get(i).id;
+            starts[i] = sb.length();
+            sb.append(fold(names[i])).append(SEPARATOR);
+        }
+        starts[n] = sb.length();
+        this.haystack = sb.toString();
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparing((Integer i) -> ids[i]).thenComparingInt(i -> i));
+        this.byId = new int[n];
+        for (int i = 0; i < n; i++) byId[i] = order[i];
+    }
+
+    /** An index without entries, for when neither MedGen nor Mondo could be loaded. */
+    public static DiseaseIndex empty() {
+        return new DiseaseIndex(Collections.emptyList());
+    }
+
+    /**
+     * @param id a disease id such as OMIM:615513, MIM:615513, 615513 or MONDO:0007739
+     * @return the id in the form used by the index and the annotation files, e.g., OMIM:615513
+     */
+    public static String normalizeId(String id) {
+        String s = id.trim();
+        if (s.startsWith("MIM:")) {
+            return OMIM_PREFIX + ":" + s.substring(4);
+        }
+        if (!s.isEmpty() && s.chars().allMatch(Character::isDigit)) {
+            return OMIM_PREFIX + ":" + s;
+        }
+        return s;
+    }
+
+    /** @return the name of the annotation file of a disease, e.g., OMIM-615513.tab for OMIM:615513. */
+    public static String annotationFileName(String diseaseId) {
+        return normalizeId(diseaseId).replace(':', '-') + ".tab";
+    }
+
+    private static String fold(String s) {
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    /** @return number of (name, id) pairs. */
+    public int size() {
+        return names.length;
+    }
+
+    private Entry entry(int i) {
+        return new Entry(ids[i], names[i]);
+    }
+
+    /** @return position in {@link #byId} of the first id that is not less than the given id. */
+    private int lowerBoundId(String id) {
+        int lo = 0, hi = byId.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ids[byId[mid]].compareTo(id) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * @param id a disease id (see {@link #normalizeId(String)})
+     * @return the name of the disease (the first in alphabetical order if it has several), or empty
+     */
+    public Optional<String> getName(String id) {
+        String normalized = normalizeId(id);
+        int k = lowerBoundId(normalized);
+        return k < byId.length && ids[byId[k]].equals(normalized) ? Optional.of(names[byId[k]]) : Optional.empty();
+    }
+
+    /**
+     * @param name a disease name (case is ignored)
+     * @return the ids of all diseases with this name, e.g., an OMIM and a Mondo id
+     */
+    public List<String> getIds(String name) {
+        String folded = fold(name.trim());
+        List<String> result = new ArrayList<>();
+        for (int i = lowerBoundName(folded); i < names.length && compareName(i, folded, false) == 0; i++) {
+            result.add(ids[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Compare the i-th lower-case name with a lower-case query.
+     * @param prefix if true, a name that starts with the query compares as equal
+     */
+    private int compareName(int i, String query, boolean prefix) {
+        int from = starts[i];
+        int length = starts[i + 1] - 1 - from;
+        int n = Math.min(length, query.length());
+        for (int k = 0; k < n; k++) {
+            int d = haystack.charAt(from + k) - query.charAt(k);
+            if (d != 0) return d;
+        }
+        if (prefix && length >= query.length()) return 0;
+        return length - query.length();
+    }
+
+    /** @return index of the first name that is not less than the lower-case query. */
+    private int lowerBoundName(String query) {
+        int lo = 0, hi = names.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareName(mid, query, true) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * @param prefix beginning of a disease name (case is ignored)
+     * @param limit maximum number of results
+     * @return the diseases whose names start with the prefix, in alphabetical order
+     */
+    public List<Entry> prefixSearch(String prefix, int limit) {
+        String q = fold(prefix.trim());
+        List<Entry> result = new ArrayList<>();
+        if (q.isEmpty()) return result;
+        for (int i = lowerBoundName(q); i < names.length && result.size() < limit && compareName(i, q, true) == 0; i++) {
+            result.add(entry(i));
+        }
+        return result;
+    }
+
+    /**
+     * @param text part of a disease name (case is ignored)
+     * @param limit maximum number of results
+     * @return the diseases whose names contain the text, in alphabetical order
+     */
+    public List<Entry> substringSearch(String text, int limit) {
+        String q = fold(text.trim());
+        List<Entry> result = new ArrayList<>();
+        if (q.isEmpty() || q.indexOf(SEPARATOR) >= 0) return result;
+        int pos = 0;
+        while (result.size() < limit && (pos = haystack.indexOf(q, pos)) >= 0) {
+            int i = entryAt(pos);
+            result.add(entry(i));
+            pos = starts[i + 1]; // continue with the next name
+        }
+        return result;
+    }
+
+    /** @return the index of the name that contains the given position of {@link #haystack}. */
+    private int entryAt(int pos) {
+        int k = Arrays.binarySearch(starts, pos);
+        return k >= 0 ? k : -k - 2;
+    }
+
+    /**
+     * Search for diseases by id or name, as typed by the user. The disease with the id (if the query is an id or
+     * MIM number) comes first, then the diseases whose names start with the query, and then those whose names
+     * contain it elsewhere.
+     * @param query an id, a MIM number or (part of) a name
+     * @param limit maximum number of results
+     * @return the matching diseases, best match first
+     */
+    public List<Entry> search(String query, int limit) {
+        LinkedHashSet<Entry> result = new LinkedHashSet<>();
+        String q = query.trim();
+        if (q.isEmpty() || limit < 1) return new ArrayList<>();
+        String id = normalizeId(q);
+        for (int k = lowerBoundId(id); k < byId.length && ids[byId[k]].equals(id) && result.size() < limit; k++) {
+            result.add(entry(byId[k]));
+        }
+        for (Entry e : prefixSearch(q, limit)) {
+            if (result.size() >= limit) break;
+            result.add(e);
+        }
+        // the prefix matches are found again by the substring search and are skipped by the set
+        int pos = 0;
+        String folded = fold(q).replace(SEPARATOR, ' ');
+        while (result.size() < limit && (pos = haystack.indexOf(folded, pos)) >= 0) {
+            int i = entryAt(pos);
+            result.add(entry(i));
+            pos = starts[i + 1];
+        }
+        return new ArrayList<>(result);
+    }
+}
@@ -0,0 +1,510 @@
+package org.monarchinitiative.phenotefx.search;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2019 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.*;
+
+/**
+ * An immutable index of ontology term labels and synonyms for autocompletion. Each label or synonym is split into
+ * lower-case words; the distinct words are kept in one sorted array together with the list of entries of each
+ * word, so that the entries containing a word that starts with a given prefix are found by binary search. A query matches an entry if every word of the query
+ * is a prefix of some word of the entry (e.g., "abn hea" matches "Abnormal heart morphology").
+ * <p>
+ * The matches are ranked as follows: exact label, exact synonym, labels that start with the query, other label
+ * matches, synonyms that start with the query, and other synonym matches. Within each group, shorter entries come
+ * first. Only the best {@code limit} matches are kept, so that a query costs O(m log limit) for m candidate
+ * matches rather than a scan over all labels.
+ * <p>
+ * For misspelled queries such as "hypotonai", {@link #fuzzySearch(String, int)} finds the entries whose words are
+ * within a small Levenshtein distance of the query words (0 for words of up to two letters, 1 for three or four
+ * letters, 2 otherwise). The distinct words of all entries are stored in a BK-tree, so that only a fraction of the
+ * vocabulary has to be compared with each query word. {@link #suggest(String, int)} combines both searches and is
+ * used for autocompletion. The index is immutable and can be queried from any thread.
+ * @author Peter Robinson
+ */
+public final class TermSearchIndex {
+    /** Rank groups, in the order in which they are returned. */
+    private static final int EXACT_LABEL = 0;
+    private static final int EXACT_SYNONYM = 1;
+    private static final int LABEL_PREFIX = 2;
+    private static final int LABEL_WORD_PREFIX = 3;
+    private static final int SYNONYM_PREFIX = 4;
+    private static final int SYNONYM_WORD_PREFIX = 5;
+
+    /** The labels and synonyms, as they will be shown to the user. */
+    private final String[] entries;
+    /** Lower-case version of {@link #entries}. */
+    private final String[] normalized;
+    /** True if the entry is a preferred label (rather than a synonym). */
+    private final boolean[] isLabel;
+    /** The distinct words of all entries, sorted. */
+    private final String[] vocabulary;
+    /** {@code wordEntries[vocabStart[v]..vocabStart[v+1])} are the entries (in ascending order) with the word {@code vocabulary[v]}. */
+    private final int[] vocabStart;
+    private final int[] wordEntries;
+    /** The distinct words of each entry, as indices into {@link #vocabulary}. */
+    private final int[][] entryVocabulary;
+    /** BK-tree of the {@link #vocabulary} for the fuzzy search (null if the index is empty). */
+    private final BkNode bkRoot;
+
+    /**
+     * @param synonym2label key: a label or synonym; value: the corresponding preferred label. An entry is a
+     *                      label if the key is equal to the value.
+     */
+    public TermSearchIndex(Map<String, String> synonym2label) {
+        int n = synonym2label.size();
+        String[] keys = synonym2label.keySet().toArray(new String[0]);
+        Arrays.sort(keys);
+        this.entries = keys;
+        this.normalized = new String[n];
+        this.isLabel = new boolean[n];
+        this.entryVocabulary = new int[n][];
+        // number the distinct words in the order in which they are first seen
+        Map<String, Integer> wordIds = new HashMap<>();
+        List<String> vocab = new ArrayList<>();
+        int occurrences = 0;
+        for (int i = 0; i < n; i++) {
+            normalized[i] = normalize(entries[i]);
+            isLabel[i] = entries[i].equals(synonym2label.get(entries[i]));
+            List<String> tokens = tokenize(normalized[i]);
+            int[] ids = new int[tokens.size()];
+            int k = 0;
+            for (String token : tokens) {
+                Integer id = wordIds.get(token);
+                if (id == null) {
+                    id = vocab.size();
+                    wordIds.put(token, id);
+                    vocab.add(token);
+                }
+                if (!contains(ids, k, id)) {
+                    ids[k++] = id;
+                }
+            }
+            entryVocabulary[i] = k == ids.length ? ids : Arrays.copyOf(ids, k);
+            occurrences += k;
+        }
+        // sort the vocabulary so that words with a common prefix are adjacent, and renumber the words accordingly
+        this.vocabulary = vocab.toArray(new String[0]);
+        Arrays.sort(vocabulary);
+        int[] renumber = new int[vocabulary.length];
+        for (int v = 0; v < vocabulary.length; v++) {
+            renumber[wordIds.get(vocabulary[v])] = v;
+        }
+        this.vocabStart = new int[vocabulary.length + 1];
+        for (int[] ids : entryVocabulary) {
+            for (int k = 0; k < ids.length; k++) {
+                ids[k] = renumber[ids[k]];
+                vocabStart[ids[k] + 1]++;
+            }
+        }
+        for (int v = 0; v < vocabulary.length; v++) {
+            vocabStart[v + 1] += vocabStart[v];
+        }
+        // counting sort of the (word, entry) pairs; the entries of each word end up in ascending order
+        this.wordEntries = new int[occurrences];
+        int[] next = Arrays.copyOf(vocabStart, vocabulary.length);
+        for (int e = 0; e < n; e++) {
+            for (int v : entryVocabulary[e]) {
+                wordEntries[next[v]++] = e;
+            }
+        }
+        // insert the words in a scrambled order to keep the tree balanced
+        BkNode root = null;
+        List<Integer> order = new ArrayList<>();
+        for (int v = 0; v < vocabulary.length; v++) order.add(v);
+        Collections.shuffle(order, new Random(42));
+        for (int v : order) {
+            if (root == null) {
+                root = new BkNode(v);
+            } else {
+                root.insert(v, vocabulary);
+            }
+        }
+        this.bkRoot = root;
+    }
+
+    /**
+     * Create an index for a vocabulary without synonyms, such as the names of the Mondo diseases.
+     * @param labels the names that will be suggested; all of them are ranked as labels
+     * @return the index
+     */
+    public static TermSearchIndex ofLabels(Collection<String> labels) {
+        Map<String, String> label2label = new HashMap<>();
+        for (String label : labels) {
+            label2label.put(label, label);
+        }
+        return new TermSearchIndex(label2label);
+    }
+
+    /** An index without entries, for vocabularies that could not be loaded. */
+    public static TermSearchIndex empty() {
+        return new TermSearchIndex(Collections.emptyMap());
+    }
+
+    /** @return the number of labels and synonyms in the index. */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * @param query text typed by the user
+     * @param limit maximum number of results
+     * @return the labels and synonyms matching the query, best match first
+     */
+    public List<String> search(String query, int limit) {
+        String q = normalize(query);
+        List<String> queryWords = tokenize(q);
+        if (queryWords.isEmpty() || limit < 1) {
+            return Collections.emptyList();
+        }
+        // use the query word with the fewest matching entry words to generate the candidates
+        int bestFrom = 0, bestTo = -1;
+        for (String word : queryWords) {
+            int from = lowerBound(word);
+            int to = upperBound(word, from);
+            if (bestTo < 0 || vocabStart[to] - vocabStart[from] < vocabStart[bestTo] - vocabStart[bestFrom]) {
+                bestFrom = from;
+                bestTo = to;
+            }
+        }
+        // max-heap on the rank so that the worst of the current best matches can be dropped
+        PriorityQueue<long[]> heap = new PriorityQueue<>(limit + 1, (a, b) -> Long.compare(b[0], a[0]));
+        // an entry can have several words with the same prefix
+        BitSet seen = new BitSet(entries.length);
+        for (int j = vocabStart[bestFrom]; j < vocabStart[bestTo]; j++) {
+            int entry = wordEntries[j];
+            if (seen.get(entry)) {
+                continue;
+            }
+            seen.set(entry);
+            if (!matchesAllWords(entry, queryWords)) {
+                continue;
+            }
+            long rank = rank(entry, q);
+            if (heap.size() < limit) {
+                heap.add(new long[]{rank, entry});
+            } else if (rank < heap.peek()[0]) {
+                heap.poll();
+                heap.add(new long[]{rank, entry});
+            }
+        }
+        long[][] best = heap.toArray(new long[0][]);
+        Arrays.sort(best, Comparator.comparingLong(a -> a[0]));
+        List<String> result = new ArrayList<>(best.length);
+        for (long[] b : best) {
+            result.add(entries[(int) b[1]]);
+        }
+        return result;
+    }
+
+    /**
+     * Search for entries that contain words similar to the words of the query (see class documentation). The last
+     * word of the query may also be the prefix of a word of the entry, because the user may still be typing it.
+     * The results are ranked by the total edit distance and then as in {@link #search(String, int)}.
+     * @param query text typed by the user, possibly with typos
+     * @param limit maximum number of results
+     * @return the labels and synonyms matching the query, best match first
+     */
+    public List<String> fuzzySearch(String query, int limit) {
+        String q = normalize(query);
+        List<String> queryWords = tokenize(q);
+        if (queryWords.isEmpty() || limit < 1 || bkRoot == null) {
+            return Collections.emptyList();
+        }
+        // for each query word, key: index of a similar word in the vocabulary; value: edit distance
+        List<Map<Integer, Integer>> similar = new ArrayList<>();
+        int candidateWord = -1;
+        int fewestOccurrences = Integer.MAX_VALUE;
+        for (int i = 0; i < queryWords.size(); i++) {
+            String qw = queryWords.get(i);
+            Map<Integer, Integer> matches = new HashMap<>();
+            bkRoot.search(qw, maxDistance(qw), vocabulary, matches);
+            if (i == queryWords.size() - 1) {
+                int from = lowerBound(qw);
+                int to = upperBound(qw, from);
+                for (int v = from; v < to; v++) {
+                    matches.put(v, 0);
+                }
+            }
+            if (matches.isEmpty()) {
+                return Collections.emptyList();
+            }
+            int occurrences = 0;
+            for (int v : matches.keySet()) {
+                occurrences += vocabStart[v + 1] - vocabStart[v];
+            }
+            if (occurrences < fewestOccurrences) {
+                fewestOccurrences = occurrences;
+                candidateWord = i;
+            }
+            similar.add(matches);
+        }
+        PriorityQueue<long[]> heap = new PriorityQueue<>(limit + 1, (a, b) -> Long.compare(b[0], a[0]));
+        BitSet seen = new BitSet(entries.length);
+        for (int v : similar.get(candidateWord).keySet()) {
+            for (int j = vocabStart[v]; j < vocabStart[v + 1]; j++) {
+                int entry = wordEntries[j];
+                if (seen.get(entry)) {
+                    continue;
+                }
+                seen.set(entry);
+                int distance = totalDistance(entry, similar);
+                if (distance < 0) {
+                    continue;
+                }
+                long rank = ((long) Math.min(distance, 15) << 59) | rank(entry, q);
+                if (heap.size() < limit) {
+                    heap.add(new long[]{rank, entry});
+                } else if (rank < heap.peek()[0]) {
+                    heap.poll();
+                    heap.add(new long[]{rank, entry});
+                }
+            }
+        }
+        long[][] best = heap.toArray(new long[0][]);
+        Arrays.sort(best, Comparator.comparingLong(a -> a[0]));
+        List<String> result = new ArrayList<>(best.length);
+        for (long[] b : best) {
+            result.add(entries[(int) b[1]]);
+        }
+        return result;
+    }
+
+    /**
+     * Search for the query, and if there are fewer than {@code limit} results, add the results of the
+     * {@link #fuzzySearch(String, int)}.
+     */
+    public List<String> suggest(String query, int limit) {
+        List<String> result = search(query, limit);
+        if (result.size() < limit) {
+            Set<String> found = new HashSet<>(result);
+            result = new ArrayList<>(result);
+            for (String s : fuzzySearch(query, limit)) {
+                if (result.size() == limit) break;
+                if (found.add(s)) {
+                    result.add(s);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean contains(int[] a, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (a[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** @return sum over the query words of the smallest distance to a word of the entry, or -1 if a word has no match. */
+    private int totalDistance(int entry, List<Map<Integer, Integer>> similar) {
+        int total = 0;
+        for (Map<Integer, Integer> matches : similar) {
+            int best = -1;
+            for (int v : entryVocabulary[entry]) {
+                Integer d = matches.get(v);
+                if (d != null && (best < 0 || d < best)) {
+                    best = d;
+                }
+            }
+            if (best < 0) {
+                return -1;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    /** @return the maximum number of typos we allow in a word of the given length. */
+    private static int maxDistance(String word) {
+        if (word.length() <= 2) return 0;
+        if (word.length() <= 4) return 1;
+        return 2;
+    }
+
+    /** Levenshtein distance between two strings. */
+    static int levenshtein(String a, String b) {
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+            }
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return prev[b.length()];
+    }
+
+    /**
+     * A node of the BK-tree. The children of a node are keyed by their Levenshtein distance to the node, so that a
+     * search with radius k only needs to visit the children with keys in [d-k, d+k], where d is the distance between
+     * the query and the node (triangle inequality).
+     */
+    private static final class BkNode {
+        private final int word;
+        private int[] childDistances = new int[0];
+        private BkNode[] children = new BkNode[0];
+
+        BkNode(int word) {
+            this.word = word;
+        }
+
+        void insert(int w, String[] vocabulary) {
+            BkNode node = this;
+            while (true) {
+                int d = levenshtein(vocabulary[w], vocabulary[node.word]);
+                BkNode child = node.child(d);
+                if (child == null) {
+                    int n = node.children.length;
+                    node.childDistances = Arrays.copyOf(node.childDistances, n + 1);
+                    node.children = Arrays.copyOf(node.children, n + 1);
+                    node.childDistances[n] = d;
+                    node.children[n] = new BkNode(w);
+                    return;
+                }
+                node = child;
+            }
+        }
+
+        private BkNode child(int distance) {
+            for (int i = 0; i < childDistances.length; i++) {
+                if (childDistances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        void search(String query, int radius, String[] vocabulary, Map<Integer, Integer> matches) {
+            Deque<BkNode> stack = new ArrayDeque<>();
+            stack.push(this);
+            while (!stack.isEmpty()) {
+                BkNode node = stack.pop();
+                int d = levenshtein(query, vocabulary[node.word]);
+                if (d <= radius) {
+                    matches.put(node.word, d);
+                }
+                for (int i = 0; i < node.childDistances.length; i++) {
+                    if (Math.abs(node.childDistances[i] - d) <= radius) {
+                        stack.push(node.children[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Rank an entry: the group (see above) in the high bits, then the length of the entry, then the position of
+     * the entry in the (alphabetically sorted) index to break ties. Lower is better.
+     */
+    private long rank(int entry, String q) {
+        String s = normalized[entry];
+        int group;
+        if (s.equals(q)) {
+            group = isLabel[entry] ? EXACT_LABEL : EXACT_SYNONYM;
+        } else if (s.startsWith(q)) {
+            group = isLabel[entry] ? LABEL_PREFIX : SYNONYM_PREFIX;
+        } else {
+            group = isLabel[entry] ? LABEL_WORD_PREFIX : SYNONYM_WORD_PREFIX;
+        }
+        return ((long) group << 56) | ((long) Math.min(s.length(), 0xFFFF) << 32) | entry;
+    }
+
+    /**
+     * Entries that match the candidate word of the query are checked here for the other words. Because the lists
+     * of words of an entry are short, a linear scan is faster than another lookup in the index.
+     */
+    private boolean matchesAllWords(int entry, List<String> queryWords) {
+        for (String qw : queryWords) {
+            boolean found = false;
+            for (int v : entryVocabulary[entry]) {
+                if (vocabulary[v].startsWith(qw)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return index of the first word of the vocabulary that is not less than the prefix. */
+    private int lowerBound(String prefix) {
+        int lo = 0, hi = vocabulary.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (vocabulary[mid].compareTo(prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** @return index of the first word of the vocabulary at or after {@code from} that does not start with the prefix. */
+    private int upperBound(String prefix, int from) {
+        int lo = from, hi = vocabulary.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (vocabulary[mid].startsWith(prefix)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    static String normalize(String s) {
+        return s.toLowerCase(Locale.ROOT).trim();
+    }
+
+    /** Split a normalized string into words at any character that is not a letter or digit. */
+    static List<String> tokenize(String s) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.isLetterOrDigit(s.charAt(i))) {
+                if (start < 0) start = i;
+            } else if (start >= 0) {
+                tokens.add(s.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(s.substring(start));
+        }
+        return tokens;
+    }
+}
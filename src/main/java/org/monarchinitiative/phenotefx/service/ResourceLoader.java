@@ -0,0 +1,121 @@
+package org.monarchinitiative.phenotefx.service;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.io.HPOParser;
+import org.monarchinitiative.phenotefx.io.MedGenParser;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Loads the resources needed by the main editor (MedGen and HPO) concurrently and combines them into a
+ * {@link Resources} object. Each parser runs as an independent {@link CompletableFuture}; building the OBO
+ * graph is CPU-bound, so the startup time is roughly that of the slowest parser rather than the sum.
+ * Mondo and ECTO are only needed by the common disease module and are loaded lazily by {@link Resources}.
+ * The time taken by each parser is logged so that the speedup can be measured.
+ * @author Peter Robinson
+ */
+public class ResourceLoader {
+    private static final Logger logger = LogManager.getLogger();
+
+    public static final String MEDGEN = "MedGen";
+    public static final String HPO = "HPO";
+    public static final String MONDO = "Mondo";
+    public static final String ECTO = "ECTO";
+    /** Number of resources loaded by {@link #load(Consumer)}, used by clients to calculate progress. */
+    public static final int N_RESOURCES = 2;
+
+    /** Key: name of a resource; value: time in milliseconds needed to load it. */
+    private final Map<String, Long> timings = new ConcurrentSkipListMap<>();
+
+    /** A parser constructor that may throw a {@link PhenoteFxException}. */
+    @FunctionalInterface
+    interface ParserSupplier<T> {
+        T get() throws PhenoteFxException, IOException;
+    }
+
+    /** @return time in milliseconds taken by each resource in the last call to {@link #load(Consumer)}. */
+    public Map<String, Long> getTimings() {
+        return timings;
+    }
+
+    /**
+     * Load MedGen and HPO in parallel.
+     * @param onLoaded called with the name of each resource (e.g., {@link #HPO}) as soon as it has been loaded.
+     *                 Calls are serialized, but may come from any thread.
+     * @return the combined {@link Resources}
+     * @throws PhenoteFxException if any of the resources cannot be loaded
+     */
+    public Resources load(Consumer<String> onLoaded) throws PhenoteFxException {
+        long start = System.currentTimeMillis();
+        timings.clear();
+        ExecutorService executor = Executors.newFixedThreadPool(N_RESOURCES, r -> {
+            Thread t = new Thread(r, "resource-loader");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            CompletableFuture<MedGenParser> medgen = submit(MEDGEN, MedGenParser::new, onLoaded, executor);
+            CompletableFuture<HPOParser> hpo = submit(HPO, HPOParser::new, onLoaded, executor);
+            Resources resources = new Resources(medgen.join(), hpo.join());
+            logger.info("Loaded resources in {} ms (wall clock); per resource: {}",
+                    System.currentTimeMillis() - start, timings);
+            return resources;
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof PhenoteFxException) {
+                throw (PhenoteFxException) cause;
+            }
+            throw new PhenoteFxException(String.format("Could not load resources: %s", cause));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(String name,
+                                            ParserSupplier<T> parser,
+                                            Consumer<String> onLoaded,
+                                            Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            long t0 = System.currentTimeMillis();
+            try {
+                T result = parser.get();
+                long elapsed = System.currentTimeMillis() - t0;
+                timings.put(name, elapsed);
+                logger.info("Loaded {} in {} ms", name, elapsed);
+                if (onLoaded != null) {
+                    synchronized (this) {
+                        onLoaded.accept(name);
+                    }
+                }
+                return result;
+            } catch (PhenoteFxException | IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+}
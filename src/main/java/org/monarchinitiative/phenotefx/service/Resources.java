@@ -20,30 +20,131 @@ package org.monarchinitiative.phenotefx.service;
  * #L%
  */
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.gui.Platform;
 import org.monarchinitiative.phenotefx.io.EctoParser;
 import org.monarchinitiative.phenotefx.io.HPOParser;
 import org.monarchinitiative.phenotefx.io.MedGenParser;
 import org.monarchinitiative.phenotefx.io.MondoParser;
+import org.monarchinitiative.phenotefx.model.OntologyClosure;
+import org.monarchinitiative.phenotefx.search.DiseaseIndex;
+import org.monarchinitiative.phenotefx.search.TermSearchIndex;
 
-import java.util.Map;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 
 /**
- * Manage all resources through this class, such as HPO, Mondo, ECTO
+ * Manage all resources through this class, such as HPO, Mondo, ECTO.
+ * MedGen and HPO are needed by the main editor and are passed in already loaded. Mondo and ECTO are only
+ * needed by the common-disease (risk factor) module, and by default are loaded lazily: the first call to
+ * one of their getters, or to {@link #prefetchCommonDiseaseResources()}, starts parsing them in the
+ * background, and the result is memoized. Curators who never open the risk factor dialog therefore neither
+ * wait for Mondo at startup nor keep it on the heap.
+ * <p>
+ * The autocompletion indexes of HPO, Mondo and ECTO are built once, the first time they are requested, and are
+ * shared by all views. They are immutable, so that switching the vocabulary of a text field only swaps a reference.
+ * The same holds for the {@link DiseaseIndex} of the OMIM and Mondo disease names, which is built in the background
+ * the first time a disease is searched by name.
+ * <p>
+ * Parsing an OBO file is CPU-bound and takes seconds (see {@link ResourceLoader}), so it runs on a dedicated pool of
+ * daemon threads rather than tying up the common fork-join pool that parallel streams and other futures share, and
+ * views should request the resources through the asynchronous {@code load} methods when on the FX thread.
  */
 public class Resources {
+    private static final Logger logger = LogManager.getLogger();
+    /** Threads that parse the lazily loaded resources; daemons, so that they do not keep the application alive. */
+    private static final ExecutorService loaderExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = Executors.defaultThreadFactory().newThread(r);
+        thread.setName("resource-loader-" + thread.getName());
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private MedGenParser medGenParser;
     private HPOParser hpoParser;
-    private MondoParser mondoParser;
-    private EctoParser ectoParser;
+    private final LazyResource<MondoParser> mondoParser;
+    private final LazyResource<EctoParser> ectoParser;
+    private final LazyResource<TermSearchIndex> hpoSearchIndex;
+    private final LazyResource<TermSearchIndex> mondoSearchIndex;
+    private final LazyResource<TermSearchIndex> ectoSearchIndex;
+    private final LazyResource<DiseaseIndex> diseaseIndex;
 
+    /** Create resources in which Mondo and ECTO have already been loaded. */
     public Resources(MedGenParser medGenParser, HPOParser hpoParser, MondoParser mondoParser, EctoParser ectoParser) {
         this.medGenParser = medGenParser;
         this.hpoParser = hpoParser;
-        this.mondoParser = mondoParser;
-        this.ectoParser = ectoParser;
+        this.mondoParser = LazyResource.of(ResourceLoader.MONDO, mondoParser);
+        this.ectoParser = LazyResource.of(ResourceLoader.ECTO, ectoParser);
+        this.hpoSearchIndex = hpoSearchIndex(hpoParser);
+        this.mondoSearchIndex = mondoSearchIndex(this.mondoParser);
+        this.ectoSearchIndex = ectoSearchIndex(this.ectoParser);
+        this.diseaseIndex = diseaseIndex();
+    }
+
+    /** Create resources in which Mondo and ECTO are loaded from the default location on first use. */
+    public Resources(MedGenParser medGenParser, HPOParser hpoParser) {
+        this.medGenParser = medGenParser;
+        this.hpoParser = hpoParser;
+        this.mondoParser = LazyResource.load(ResourceLoader.MONDO, () -> {
+            MondoParser parser = new MondoParser();
+            parser.cache();
+            return parser;
+        });
+        this.ectoParser = LazyResource.load(ResourceLoader.ECTO, () -> {
+            EctoParser parser = new EctoParser();
+            parser.cache();
+            return parser;
+        });
+        this.hpoSearchIndex = hpoSearchIndex(hpoParser);
+        this.mondoSearchIndex = mondoSearchIndex(this.mondoParser);
+        this.ectoSearchIndex = ectoSearchIndex(this.ectoParser);
+        this.diseaseIndex = diseaseIndex();
+    }
+
+    private static LazyResource<TermSearchIndex> hpoSearchIndex(HPOParser hpoParser) {
+        return LazyResource.load("HPO search index",
+                () -> new TermSearchIndex(hpoParser.getHpoSynonym2PreferredLabelMap()));
+    }
+
+    private static LazyResource<TermSearchIndex> mondoSearchIndex(LazyResource<MondoParser> mondoParser) {
+        return mondoParser.then("Mondo search index", parser -> TermSearchIndex.ofLabels(parser.getName2IdMap().keySet()));
+    }
+
+    private static LazyResource<TermSearchIndex> ectoSearchIndex(LazyResource<EctoParser> ectoParser) {
+        return ectoParser.then("ECTO search index", parser -> TermSearchIndex.ofLabels(parser.getName2IdMap().keySet()));
+    }
+
+    /** Mondo is only included if it has already been loaded or if mondo.obo has been downloaded. */
+    private LazyResource<DiseaseIndex> diseaseIndex() {
+        return LazyResource.load("disease index", () -> {
+            List<Map<String, String>> name2idMaps = new ArrayList<>();
+            name2idMaps.add(getOmimName2IdMap());
+            if (mondoParser.getIfLoaded().isPresent() || Platform.checkMondoFileDownloaded()) {
+                name2idMaps.add(getMondoDiseaseName2IdMap());
+            }
+            return new DiseaseIndex(name2idMaps);
+        });
+    }
+
+    /**
+     * Start building the index of the OMIM and Mondo disease names in the background if this has not happened yet.
+     * @return a future that completes with the index (which is empty if it could not be built)
+     */
+    public CompletableFuture<DiseaseIndex> loadDiseaseIndex() {
+        return diseaseIndex.start().exceptionally(e -> {
+            logger.error("Could not build the disease index: {}", e.getMessage());
+            return DiseaseIndex.empty();
+        });
     }
 
     public Map<String, String> getOmimName2IdMap() {
@@ -54,33 +155,190 @@ public class Resources {
         return hpoParser.getHpoOntology();
     }
 
+    /** @return the ancestors and descendants of all HPO terms, for subclass queries without graph traversal. */
+    public OntologyClosure getHpoClosure() {
+        return hpoParser.getClosure();
+    }
+
     public Map<String,String> getHpoName2IDmap() { return hpoParser.getHpoName2IDmap(); }
     public Map<String,String> getHpoSynonym2PreferredLabelMap() { return hpoParser.getHpoSynonym2PreferredLabelMap(); }
 
+    /** @return the shared autocompletion index of the HPO labels and synonyms (built on the first call). */
+    public TermSearchIndex getHpoSearchIndex() {
+        return hpoSearchIndex.get().orElse(TermSearchIndex.empty());
+    }
+
+    /** @return a future that completes with the HPO autocompletion index, without blocking the caller. */
+    public CompletableFuture<TermSearchIndex> loadHpoSearchIndex() {
+        return loadSearchIndex(hpoSearchIndex);
+    }
+
     /**@return map with key: label and value HPO Id for just the Clinical Modifier subhierarchy */
     public Map<String,String> getModifierMap() {
         return hpoParser.getModifierMap();
     }
 
+    /**
+     * Start loading Mondo and ECTO, and then building their search indexes, in the background if this has not
+     * happened yet. This is called when the user switches to the common disease module, so that the data are
+     * usually ready by the time the risk factor dialog is opened.
+     */
+    public void prefetchCommonDiseaseResources() {
+        mondoSearchIndex.start();
+        ectoSearchIndex.start();
+    }
+
+    /** @return the Mondo disease subontology, or null if mondo.obo could not be loaded. Blocks until Mondo is loaded. */
     public Ontology getDiseaseSubOntology() {
-        return mondoParser.getDiseaseSubOntology();
+        return mondoParser.get().map(MondoParser::getDiseaseSubOntology).orElse(null);
     }
 
+    /** @return map from Mondo disease names to ids (empty if mondo.obo could not be loaded). Blocks until Mondo is loaded. */
     public Map<String, String> getMondoDiseaseName2IdMap() {
-        return mondoParser.getName2IdMap();
+        return mondoParser.get().map(MondoParser::getName2IdMap).orElse(Collections.emptyMap());
+    }
+
+    /** @return the shared autocompletion index of the Mondo disease names (empty if mondo.obo could not be loaded). */
+    public TermSearchIndex getMondoSearchIndex() {
+        return mondoSearchIndex.get().orElse(TermSearchIndex.empty());
     }
 
+    /**
+     * @return a future that completes with the Mondo autocompletion index (empty if mondo.obo could not be loaded),
+     * without blocking the caller.
+     */
+    public CompletableFuture<TermSearchIndex> loadMondoSearchIndex() {
+        return loadSearchIndex(mondoSearchIndex);
+    }
+
+    /** @return ECTO, or null if ecto.obo could not be loaded. Blocks until ECTO is loaded. */
     public Ontology getEcto() {
-        return this.ectoParser.getEcto();
+        return ectoParser.get().map(EctoParser::getEcto).orElse(null);
     }
 
+    /** @return map from ECTO names to ids (empty if ecto.obo could not be loaded). Blocks until ECTO is loaded. */
     public Map<String, String> getEctoName2Id() {
-        return this.ectoParser.getName2IdMap();
+        return ectoParser.get().map(EctoParser::getName2IdMap).orElse(Collections.emptyMap());
     }
 
-    //@TODO: cache the name to id maps?
-    public void cache() {
+    /** @return the shared autocompletion index of the ECTO names (empty if ecto.obo could not be loaded). */
+    public TermSearchIndex getEctoSearchIndex() {
+        return ectoSearchIndex.get().orElse(TermSearchIndex.empty());
+    }
+
+    /**
+     * @return a future that completes with the ECTO autocompletion index (empty if ecto.obo could not be loaded),
+     * without blocking the caller.
+     */
+    public CompletableFuture<TermSearchIndex> loadEctoSearchIndex() {
+        return loadSearchIndex(ectoSearchIndex);
+    }
 
+    private static CompletableFuture<TermSearchIndex> loadSearchIndex(LazyResource<TermSearchIndex> index) {
+        return index.start().exceptionally(e -> {
+            logger.error("Could not build the {}: {}", index.name, e.getMessage());
+            return TermSearchIndex.empty();
+        });
     }
 
+    /**
+     * Write binary snapshots of HPO, Mondo and ECTO to the PhenoteFX directory so that the next startup can
+     * skip the OBO parsers. Ontologies that were themselves restored from an up-to-date snapshot, and Mondo
+     * or ECTO if they have not been loaded, are skipped. A failure to write a snapshot is not fatal and is
+     * only logged.
+     */
+    public void cache() {
+        try {
+            hpoParser.cache();
+        } catch (IOException e) {
+            logger.warn("Could not write HPO snapshot: {}", e.getMessage());
+        }
+        try {
+            Optional<MondoParser> mondo = mondoParser.getIfLoaded();
+            if (mondo.isPresent()) mondo.get().cache();
+        } catch (IOException e) {
+            logger.warn("Could not write Mondo snapshot: {}", e.getMessage());
+        }
+        try {
+            Optional<EctoParser> ecto = ectoParser.getIfLoaded();
+            if (ecto.isPresent()) ecto.get().cache();
+        } catch (IOException e) {
+            logger.warn("Could not write ECTO snapshot: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * A resource that is parsed at most once, on a background thread, the first time it is requested.
+     * @param <T> type of the parser that holds the resource
+     */
+    private static class LazyResource<T> {
+        private final String name;
+        private final Supplier<CompletableFuture<T>> loader;
+        private CompletableFuture<T> future = null;
+
+        private LazyResource(String name, Supplier<CompletableFuture<T>> loader) {
+            this.name = name;
+            this.loader = loader;
+        }
+
+        static <T> LazyResource<T> load(String name, ResourceLoader.ParserSupplier<T> supplier) {
+            return new LazyResource<>(name, () -> CompletableFuture.supplyAsync(() -> timed(name, supplier), loaderExecutor));
+        }
+
+        static <T> LazyResource<T> of(String name, T loaded) {
+            LazyResource<T> resource = new LazyResource<>(name, () -> CompletableFuture.completedFuture(loaded));
+            resource.future = CompletableFuture.completedFuture(loaded);
+            return resource;
+        }
+
+        /**
+         * @return a resource that is computed from this one (e.g., a search index) once this one has been loaded,
+         * without blocking a thread while waiting for it. Starting the derived resource starts this one.
+         */
+        <R> LazyResource<R> then(String derivedName, Function<T, R> function) {
+            return new LazyResource<>(derivedName,
+                    () -> start().thenApplyAsync(t -> timed(derivedName, () -> function.apply(t)), loaderExecutor));
+        }
+
+        private static <T> T timed(String name, ResourceLoader.ParserSupplier<T> supplier) {
+            long t0 = System.currentTimeMillis();
+            try {
+                T result = supplier.get();
+                logger.info("Loaded {} in {} ms", name, System.currentTimeMillis() - t0);
+                return result;
+            } catch (PhenoteFxException | IOException e) {
+                throw new CompletionException(e);
+            }
+        }
+
+        /**
+         * Start loading the resource unless this has already been done. A failed attempt is not memoized, so that
+         * e.g. Mondo is loaded once mondo.obo has been downloaded even if it had been requested before.
+         */
+        synchronized CompletableFuture<T> start() {
+            if (future == null || future.isCompletedExceptionally()) {
+                logger.info("Loading {} in the background", name);
+                future = loader.get();
+            }
+            return future;
+        }
+
+        /** @return the resource (waiting for it to be loaded if necessary), or empty if it could not be loaded. */
+        Optional<T> get() {
+            try {
+                return Optional.of(start().join());
+            } catch (CompletionException e) {
+                logger.error("Could not load {}: {}", name, e.getCause() == null ? e : e.getCause().getMessage());
+                return Optional.empty();
+            }
+        }
+
+        /** @return the resource if it has already been loaded successfully, without starting to load it. */
+        synchronized Optional<T> getIfLoaded() {
+            if (future != null && future.isDone() && !future.isCompletedExceptionally()) {
+                return Optional.of(future.join());
+            }
+            return Optional.empty();
+        }
+    }
 }
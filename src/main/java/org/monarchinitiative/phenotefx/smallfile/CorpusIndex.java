@@ -0,0 +1,314 @@
+package org.monarchinitiative.phenotefx.smallfile;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.gui.Platform;
+import org.monarchinitiative.phenotefx.io.AtomicFiles;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.monarchinitiative.phenotefx.io.AtomicFiles.readString;
+import static org.monarchinitiative.phenotefx.io.AtomicFiles.writeString;
+
+/**
+ * A persistent index of the parsed small files of one annotation directory. For each small file we store its
+ * size, modification time and SHA-256 hash together with the parsed {@link SmallFileEntry} objects (or the
+ * error message if the file could not be parsed). The {@link SmallFileIngestor} only re-parses files that were
+ * added or modified since the index was written; a file whose modification time changed but whose content did
+ * not (e.g., after a git checkout) is recognized by its hash. Files that were deleted are dropped from the index.
+ * <p>
+ * The index is stored in the PhenoteFX directory. Because parsing checks the HPO ids against the ontology, the
+ * index also records the version of the HPO it was made with and is discarded if a different version is used.
+ * @author Peter Robinson
+ */
+public class CorpusIndex {
+    private static final Logger logger = LogManager.getLogger();
+    /** First four bytes of every index file ("PFXI"). */
+    private static final int MAGIC = 0x50465849;
+    /** Increment this whenever the layout written by {@link #save()} changes. */
+    private static final int FORMAT_VERSION = 1;
+    private static final String HASH_ALGORITHM = "SHA-256";
+    /** Absolute path of the annotation directory. */
+    private final String directory;
+    /** Identifies the version of the HPO with which the small files were parsed. */
+    private final String ontologyVersion;
+    private final File indexFile;
+    /** Key: basename of a small file, e.g., OMIM-600123.tab; value: its index entry. */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    /** True if {@link #entries} was changed since it was loaded. */
+    private volatile boolean dirty = false;
+
+    /**
+     * Create an index for the given annotation directory that is stored in the PhenoteFX directory.
+     * @param directory directory with the small files
+     * @param ontology the HPO that is used to parse the small files
+     */
+    public CorpusIndex(File directory, Ontology ontology) {
+        this(directory, ontology, new File(Platform.getPhenoteFXDir(),
+                String.format("corpus-%08x.index", directory.getAbsolutePath().hashCode())));
+    }
+
+    public CorpusIndex(File directory, Ontology ontology, File indexFile) {
+        this.directory = directory.getAbsolutePath();
+        this.ontologyVersion = ontologyVersion(ontology);
+        this.indexFile = indexFile;
+    }
+
+    public File getIndexFile() {
+        return indexFile;
+    }
+
+    /** @return number of small files in the index. */
+    public int size() {
+        return entries.size();
+    }
+
+    private static String ontologyVersion(Ontology ontology) {
+        String version = ontology.getMetaInfo().getOrDefault("data-version", "unknown");
+        return String.format("%s;%d", version, ontology.countAllTerms());
+    }
+
+    /** Size, modification time and content hash of one small file. */
+    static class Stamp {
+        final long size;
+        final long mtime;
+        final byte[] hash;
+
+        Stamp(long size, long mtime, byte[] hash) {
+            this.size = size;
+            this.mtime = mtime;
+            this.hash = hash;
+        }
+    }
+
+    /** The parsed content of one small file, which is either a {@link SmallFile} or an error message. */
+    static class Entry {
+        final Stamp stamp;
+        final SmallFile smallFile;
+        final String error;
+
+        Entry(Stamp stamp, SmallFile smallFile, String error) {
+            this.stamp = stamp;
+            this.smallFile = smallFile;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Read the size, modification time and hash of a small file. This should be done before the file is
+     * parsed, so that a modification during parsing is detected the next time.
+     */
+    static Stamp stamp(Path path) throws IOException {
+        long size = Files.size(path);
+        long mtime = Files.getLastModifiedTime(path).toMillis();
+        return new Stamp(size, mtime, hash(path));
+    }
+
+    private static byte[] hash(Path path) throws IOException {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM).digest(Files.readAllBytes(path));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * @param path path to a small file
+     * @return the index entry for the file if the file has not changed since it was indexed
+     */
+    Optional<Entry> lookup(Path path) throws IOException {
+        String basename = path.getFileName().toString();
+        Entry entry = entries.get(basename);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        long size = Files.size(path);
+        long mtime = Files.getLastModifiedTime(path).toMillis();
+        if (entry.stamp.size != size) {
+            return Optional.empty();
+        }
+        if (entry.stamp.mtime == mtime) {
+            return Optional.of(entry);
+        }
+        // the file was touched -- check whether the content changed
+        if (Arrays.equals(entry.stamp.hash, hash(path))) {
+            Entry touched = new Entry(new Stamp(size, mtime, entry.stamp.hash), entry.smallFile, entry.error);
+            entries.put(basename, touched);
+            dirty = true;
+            return Optional.of(touched);
+        }
+        return Optional.empty();
+    }
+
+    /** Record the result of parsing a small file. Exactly one of smallFile and error must be non-null. */
+    void put(String basename, Stamp stamp, SmallFile smallFile, String error) {
+        entries.put(basename, new Entry(stamp, smallFile, error));
+        dirty = true;
+    }
+
+    /** Remove all entries except those for the given basenames (i.e., the small files that still exist). */
+    void retainAll(Collection<String> basenames) {
+        if (entries.keySet().retainAll(new HashSet<>(basenames))) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Read the index file. If the file does not exist, is corrupt, or belongs to a different directory or HPO
+     * version, the index is left empty and all small files will be parsed.
+     */
+    public void load() {
+        entries.clear();
+        dirty = false;
+        if (!indexFile.exists()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                logger.info("Ignoring corpus index {} with unknown format", indexFile);
+                return;
+            }
+            String dir = readString(in);
+            String version = readString(in);
+            if (!directory.equals(dir) || !ontologyVersion.equals(version)) {
+                logger.info("Corpus index {} is out of date (directory {}, HPO {})", indexFile, dir, version);
+                return;
+            }
+            int n = in.readInt();
+            Map<String, Entry> loaded = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                String basename = readString(in);
+                long size = in.readLong();
+                long mtime = in.readLong();
+                byte[] hash = new byte[in.readInt()];
+                in.readFully(hash);
+                Stamp stamp = new Stamp(size, mtime, hash);
+                String error = readString(in);
+                SmallFile smallFile = error == null ? readSmallFile(in, basename) : null;
+                loaded.put(basename, new Entry(stamp, smallFile, error));
+            }
+            entries.putAll(loaded);
+            logger.info("Loaded corpus index with {} small files from {} in {} ms", n, indexFile,
+                    System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not read corpus index {}: {}", indexFile, e.toString());
+            entries.clear();
+        }
+    }
+
+    /**
+     * Write the index to a temporary file that is then renamed to {@link #indexFile}. Nothing is written if
+     * no small file was added, changed or removed since the index was loaded.
+     * @throws IOException if the index cannot be written
+     */
+    public void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        AtomicFiles.write(indexFile, out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, directory);
+            writeString(out, ontologyVersion);
+            Map<String, Entry> sorted = new TreeMap<>(entries);
+            out.writeInt(sorted.size());
+            for (Map.Entry<String, Entry> e : sorted.entrySet()) {
+                Entry entry = e.getValue();
+                writeString(out, e.getKey());
+                out.writeLong(entry.stamp.size);
+                out.writeLong(entry.stamp.mtime);
+                out.writeInt(entry.stamp.hash.length);
+                out.write(entry.stamp.hash);
+                writeString(out, entry.error);
+                if (entry.error == null) {
+                    writeSmallFile(out, entry.smallFile);
+                }
+            }
+        });
+        dirty = false;
+        logger.info("Wrote corpus index with {} small files to {}", entries.size(), indexFile);
+    }
+
+    private static void writeSmallFile(DataOutputStream out, SmallFile smallFile) throws IOException {
+        List<SmallFileEntry> list = smallFile.getOriginalEntryList();
+        out.writeInt(list.size());
+        for (SmallFileEntry entry : list) {
+            writeString(out, entry.getDiseaseID());
+            writeString(out, entry.getDiseaseName());
+            writeString(out, entry.getPhenotypeId().getValue());
+            writeString(out, entry.getPhenotypeName());
+            writeString(out, entry.getAgeOfOnsetId());
+            writeString(out, entry.getAgeOfOnsetName());
+            writeString(out, entry.getEvidenceCode());
+            writeString(out, entry.getFrequencyModifier());
+            writeString(out, entry.getSex());
+            writeString(out, entry.getNegation());
+            writeString(out, entry.getModifier());
+            writeString(out, entry.getDescription());
+            writeString(out, entry.getPublication());
+            writeString(out, entry.getBiocuration());
+        }
+    }
+
+    private static SmallFile readSmallFile(DataInputStream in, String basename) throws IOException {
+        int n = in.readInt();
+        List<SmallFileEntry> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String diseaseId = readString(in);
+            String diseaseName = readString(in);
+            TermId phenotypeId = TermId.of(readString(in));
+            String phenotypeName = readString(in);
+            String onsetId = readString(in);
+            String onsetName = readString(in);
+            String evidence = readString(in);
+            String frequency = readString(in);
+            String sex = readString(in);
+            String negation = readString(in);
+            String modifier = readString(in);
+            String description = readString(in);
+            String publication = readString(in);
+            String biocuration = readString(in);
+            list.add(new SmallFileEntry.Builder(diseaseId, diseaseName, phenotypeId, phenotypeName,
+                    evidence, publication, biocuration)
+                    .ageOfOnsetId(onsetId)
+                    .ageOfOnsetName(onsetName)
+                    .frequencyString(frequency)
+                    .sex(sex)
+                    .negation(negation)
+                    .modifier(modifier)
+                    .description(description)
+                    .build());
+        }
+        return new SmallFile(basename, list);
+    }
+
+}
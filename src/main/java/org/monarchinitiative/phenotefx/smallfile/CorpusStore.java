@@ -0,0 +1,313 @@
+package org.monarchinitiative.phenotefx.smallfile;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.*;
+
+/**
+ * A compact, column-oriented representation of the whole annotation corpus for corpus-wide analysis. Instead of
+ * one {@link SmallFileEntry} object (with 14 references) per annotation line, each field is stored as a column of
+ * {@code int} codes that index a per-column dictionary of the distinct values. For instance, the disease name of a
+ * small file is stored once in the dictionary of {@link Column#DISEASE_NAME}, and each row only holds its code.
+ * The HPO terms are encoded in the same way with a dictionary of {@link TermId} objects.
+ * <p>
+ * The rows of each small file are stored contiguously in the order of the input. Whole-corpus scans can use the
+ * codes directly (e.g., {@link #getTermCode(int)}), and {@link #row(int)} returns a view that implements
+ * {@link SmallFileRow} and thus has the same accessors as {@link SmallFileEntry}. The store is immutable once built.
+ * @author Peter Robinson
+ */
+public final class CorpusStore {
+
+    /** The dictionary-encoded String columns. */
+    public enum Column {
+        DISEASE_ID, DISEASE_NAME, PHENOTYPE_NAME, ONSET_ID, ONSET_NAME, EVIDENCE, FREQUENCY, SEX, NEGATION,
+        MODIFIER, DESCRIPTION, PUBLICATION, BIOCURATION
+    }
+
+    private static final Column[] COLUMNS = Column.values();
+    /** Total number of rows (annotation lines). */
+    private final int size;
+    /** codes[c.ordinal()][row] is the dictionary code of column c in the given row. */
+    private final int[][] codes;
+    /** dictionaries[c.ordinal()][code] is the value of column c with the given code. */
+    private final String[][] dictionaries;
+    /** Code of the HPO term of each row. */
+    private final int[] termCodes;
+    /** The distinct HPO terms, indexed by code. */
+    private final TermId[] terms;
+    /** Basenames of the small files. */
+    private final String[] basenames;
+    /** fileOffsets[i] is the first row of the i'th small file; fileOffsets[nFiles] == size. */
+    private final int[] fileOffsets;
+
+    private CorpusStore(Builder builder) {
+        this.size = builder.size;
+        this.codes = new int[COLUMNS.length][];
+        this.dictionaries = new String[COLUMNS.length][];
+        for (int c = 0; c < COLUMNS.length; c++) {
+            codes[c] = Arrays.copyOf(builder.codes[c], size);
+            dictionaries[c] = builder.dictionaries.get(c).values.toArray(new String[0]);
+        }
+        this.termCodes = Arrays.copyOf(builder.termCodes, size);
+        this.terms = builder.termDictionary.values.toArray(new TermId[0]);
+        this.basenames = builder.basenames.toArray(new String[0]);
+        this.fileOffsets = new int[basenames.length + 1];
+        for (int i = 0; i < basenames.length; i++) {
+            fileOffsets[i] = builder.fileOffsets.get(i);
+        }
+        fileOffsets[basenames.length] = size;
+    }
+
+    /** @return a store with all rows of the given small files. */
+    public static CorpusStore of(Collection<SmallFile> smallFiles) {
+        Builder builder = new Builder();
+        smallFiles.forEach(builder::add);
+        return builder.build();
+    }
+
+    /** @return the total number of rows (annotation lines) in the store. */
+    public int size() {
+        return size;
+    }
+
+    public int getFileCount() {
+        return basenames.length;
+    }
+
+    public String getBasename(int file) {
+        return basenames[file];
+    }
+
+    /** @return index of the first row of the given small file. */
+    public int getFirstRow(int file) {
+        return fileOffsets[file];
+    }
+
+    /** @return number of rows of the given small file. */
+    public int getRowCount(int file) {
+        return fileOffsets[file + 1] - fileOffsets[file];
+    }
+
+    /** @return index of the small file to which the given row belongs. */
+    public int getFileOfRow(int row) {
+        checkRow(row);
+        int i = Arrays.binarySearch(fileOffsets, row);
+        if (i < 0) {
+            return -i - 2;
+        }
+        // skip over empty small files that start at the same row
+        while (fileOffsets[i + 1] == row) {
+            i++;
+        }
+        return i;
+    }
+
+    /** @return the dictionary code of the given column in the given row. */
+    public int getCode(Column column, int row) {
+        return codes[column.ordinal()][row];
+    }
+
+    /** @return the value of the given column that has the given dictionary code. */
+    public String getValue(Column column, int code) {
+        return dictionaries[column.ordinal()][code];
+    }
+
+    /** @return the number of distinct values of the given column. */
+    public int getCardinality(Column column) {
+        return dictionaries[column.ordinal()].length;
+    }
+
+    /** @return the code of the HPO term of the given row (see {@link #getTerm(int)}). */
+    public int getTermCode(int row) {
+        return termCodes[row];
+    }
+
+    /** @return the HPO term with the given code. */
+    public TermId getTerm(int code) {
+        return terms[code];
+    }
+
+    /** @return the number of distinct HPO terms in the corpus. */
+    public int getTermCount() {
+        return terms.length;
+    }
+
+    /** @return number of rows annotated to each HPO term, indexed by term code. */
+    public int[] countRowsByTerm() {
+        int[] counts = new int[terms.length];
+        for (int i = 0; i < size; i++) {
+            counts[termCodes[i]]++;
+        }
+        return counts;
+    }
+
+    /** @return number of rows with each value of the given column, indexed by dictionary code. */
+    public int[] countRowsBy(Column column) {
+        int[] columnCodes = codes[column.ordinal()];
+        int[] counts = new int[getCardinality(column)];
+        for (int i = 0; i < size; i++) {
+            counts[columnCodes[i]]++;
+        }
+        return counts;
+    }
+
+    /** @return a view of the given row. Views are cheap, but they should not be kept for long-term storage. */
+    public Row row(int row) {
+        checkRow(row);
+        return new Row(row);
+    }
+
+    /** @return a (newly allocated) {@link SmallFile} with the rows of the given small file. */
+    public SmallFile getSmallFile(int file) {
+        List<SmallFileEntry> entries = new ArrayList<>(getRowCount(file));
+        for (int i = fileOffsets[file]; i < fileOffsets[file + 1]; i++) {
+            entries.add(row(i).toSmallFileEntry());
+        }
+        return new SmallFile(basenames[file], entries);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException(String.format("Row %d not in [0,%d)", row, size));
+        }
+    }
+
+    private String value(Column column, int row) {
+        int c = column.ordinal();
+        return dictionaries[c][codes[c][row]];
+    }
+
+    /** A view of one row of the store with the same accessors as {@link SmallFileEntry}. */
+    public final class Row implements SmallFileRow {
+        private final int row;
+
+        private Row(int row) {
+            this.row = row;
+        }
+
+        public int getIndex() { return row; }
+        @Override public String getDiseaseID() { return value(Column.DISEASE_ID, row); }
+        @Override public String getDiseaseName() { return value(Column.DISEASE_NAME, row); }
+        @Override public TermId getPhenotypeId() { return terms[termCodes[row]]; }
+        @Override public String getPhenotypeName() { return value(Column.PHENOTYPE_NAME, row); }
+        @Override public String getAgeOfOnsetId() { return value(Column.ONSET_ID, row); }
+        @Override public String getAgeOfOnsetName() { return value(Column.ONSET_NAME, row); }
+        @Override public String getEvidenceCode() { return value(Column.EVIDENCE, row); }
+        @Override public String getFrequencyModifier() { return value(Column.FREQUENCY, row); }
+        @Override public String getSex() { return value(Column.SEX, row); }
+        @Override public String getNegation() { return value(Column.NEGATION, row); }
+        @Override public String getModifier() { return value(Column.MODIFIER, row); }
+        @Override public String getDescription() { return value(Column.DESCRIPTION, row); }
+        @Override public String getPublication() { return value(Column.PUBLICATION, row); }
+        @Override public String getBiocuration() { return value(Column.BIOCURATION, row); }
+
+        public SmallFileEntry toSmallFileEntry() {
+            return new SmallFileEntry.Builder(getDiseaseID(), getDiseaseName(), getPhenotypeId(), getPhenotypeName(),
+                    getEvidenceCode(), getPublication(), getBiocuration())
+                    .ageOfOnsetId(getAgeOfOnsetId())
+                    .ageOfOnsetName(getAgeOfOnsetName())
+                    .frequencyString(getFrequencyModifier())
+                    .sex(getSex())
+                    .negation(getNegation())
+                    .modifier(getModifier())
+                    .description(getDescription())
+                    .build();
+        }
+    }
+
+    /** Maps each distinct value to a consecutive code. Null is a valid value. */
+    private static class Dictionary<T> {
+        private final Map<T, Integer> index = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        int encode(T value) {
+            Integer code = index.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                index.put(value, code);
+            }
+            return code;
+        }
+    }
+
+    /** Collects the rows of small files; not thread-safe. */
+    public static class Builder {
+        private int size = 0;
+        private int[][] codes = new int[COLUMNS.length][1024];
+        private final List<Dictionary<String>> dictionaries = new ArrayList<>();
+        private int[] termCodes = new int[1024];
+        private final Dictionary<TermId> termDictionary = new Dictionary<>();
+        private final List<String> basenames = new ArrayList<>();
+        private final List<Integer> fileOffsets = new ArrayList<>();
+
+        public Builder() {
+            for (int c = 0; c < COLUMNS.length; c++) {
+                dictionaries.add(new Dictionary<>());
+            }
+        }
+
+        public Builder add(SmallFile smallFile) {
+            basenames.add(smallFile.getBasename());
+            fileOffsets.add(size);
+            for (SmallFileEntry entry : smallFile.getOriginalEntryList()) {
+                addRow(entry);
+            }
+            return this;
+        }
+
+        private void addRow(SmallFileRow entry) {
+            if (size == termCodes.length) {
+                int capacity = size * 2;
+                termCodes = Arrays.copyOf(termCodes, capacity);
+                for (int c = 0; c < COLUMNS.length; c++) {
+                    codes[c] = Arrays.copyOf(codes[c], capacity);
+                }
+            }
+            termCodes[size] = termDictionary.encode(entry.getPhenotypeId());
+            put(Column.DISEASE_ID, entry.getDiseaseID());
+            put(Column.DISEASE_NAME, entry.getDiseaseName());
+            put(Column.PHENOTYPE_NAME, entry.getPhenotypeName());
+            put(Column.ONSET_ID, entry.getAgeOfOnsetId());
+            put(Column.ONSET_NAME, entry.getAgeOfOnsetName());
+            put(Column.EVIDENCE, entry.getEvidenceCode());
+            put(Column.FREQUENCY, entry.getFrequencyModifier());
+            put(Column.SEX, entry.getSex());
+            put(Column.NEGATION, entry.getNegation());
+            put(Column.MODIFIER, entry.getModifier());
+            put(Column.DESCRIPTION, entry.getDescription());
+            put(Column.PUBLICATION, entry.getPublication());
+            put(Column.BIOCURATION, entry.getBiocuration());
+            size++;
+        }
+
+        private void put(Column column, String value) {
+            int c = column.ordinal();
+            codes[c][size] = dictionaries.get(c).encode(value);
+        }
+
+        public CorpusStore build() {
+            return new CorpusStore(this);
+        }
+    }
+}
@@ -31,9 +31,10 @@ import java.util.stream.Collectors;
 
 /**
  * Created by peter on 1/20/2018.
- * This class represents the contents of a single annotation line.
+ * This class represents the contents of a single annotation line. For a more compact representation of the
+ * whole corpus, see {@link CorpusStore}.
  */
-public class SmallFileEntry {
+public class SmallFileEntry implements SmallFileRow {
     private static final Logger logger = LogManager.getLogger();
 
     /** Field #1 */
@@ -35,11 +35,19 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class coordinates the input of all the small files. If an
  * {@code omit-list.txt} is provided by the user, then these files are
- * omitted. The output of this class is a list of {@link SmallFile} objects
+ * omitted. The output of this class is a list of {@link SmallFile} objects.
+ * The files are parsed on a bounded thread pool whose size can be set with the
+ * {@code parallelism} argument of the constructor (1 means sequential input). The
+ * results and the error messages are always returned in the order of the file basenames,
+ * independently of the order in which the worker threads finish.
+ * If a {@link CorpusIndex} is provided, only small files that were added or modified since the
+ * index was last saved are parsed; the others are taken from the index.
  * @author <a href="mailto:peter.robinson@jjax.org">Peter Robinson</a>
  */
 public class SmallFileIngestor {
@@ -53,10 +61,16 @@ public class SmallFileIngestor {
     /** Names of entries (small files) that we will omit because they do not represent diseases. */
     private final Set<String> omitEntries;
 
-    /** Total number of annotations of all of the annotation files. */
+    /** Number of threads used to parse the small files. */
+    private final int parallelism;
+    /** Total number of annotations of the small files in {@link #smallFileList}. */
     private int n_total_annotation_lines=0;
 
     private int n_total_omitted_entries=0;
+    /** Persistent index of previously parsed small files (null if no index is used). */
+    private final CorpusIndex index;
+    /** Number of small files that were taken from the {@link #index} rather than parsed. */
+    private final AtomicInteger n_reused_files=new AtomicInteger();
 
     private List<String> errors = new ArrayList<>();
 
@@ -64,7 +78,48 @@ public class SmallFileIngestor {
         return smallFileList;
     }
 
+    /** @return error messages encountered while reading the small files, sorted by file basename. */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /** @return total number of annotation lines in all of the small files that were ingested. */
+    public int getTotalAnnotationLines() {
+        return n_total_annotation_lines;
+    }
+
+    /** @return number of small files that were taken from the {@link CorpusIndex} without parsing. */
+    public int getReusedFileCount() {
+        return n_reused_files.get();
+    }
+
+    /** @return number of threads to use by default, i.e., one per available processor. */
+    public static int defaultParallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
     public SmallFileIngestor(String directoryPath, Ontology ontology) {
+        this(directoryPath, ontology, defaultParallelism());
+    }
+
+    /**
+     * @param directoryPath path to the directory with the small files
+     * @param ontology reference to the HPO
+     * @param parallelism number of threads used to parse the small files (values below 1 are treated as 1)
+     */
+    public SmallFileIngestor(String directoryPath, Ontology ontology, int parallelism) {
+        this(directoryPath, ontology, parallelism, null);
+    }
+
+    /**
+     * @param directoryPath path to the directory with the small files
+     * @param ontology reference to the HPO
+     * @param parallelism number of threads used to parse the small files (values below 1 are treated as 1)
+     * @param index index of previously parsed small files, which is updated and saved (may be null)
+     */
+    public SmallFileIngestor(String directoryPath, Ontology ontology, int parallelism, CorpusIndex index) {
+        this.parallelism = Math.max(1, parallelism);
+        this.index = index;
         String omitFile=String.format("%s%s%s",directoryPath, File.separator,"omit-list.txt");
         omitEntries=getOmitEntries(omitFile);
         smallFilePaths =getListOfV2SmallFiles(directoryPath);
@@ -73,31 +128,159 @@ public class SmallFileIngestor {
     }
 
     /**
-     * Read all of the small files representing individual diseases.
+     * Read all of the small files representing individual diseases. Each file is parsed by its own
+     * {@link SmallfileParser} on a fixed-size pool of {@link #parallelism} threads. The futures are
+     * collected in the (sorted) order of {@link #smallFilePaths}, so that {@link #smallFileList} and
+     * {@link #errors} do not depend on thread scheduling. If the thread is interrupted, the files that have already
+     * been parsed are still collected, and the others are skipped.
      */
     private void inputSmallfiles() {
-        logger.trace("We found " + smallFilePaths.size() + " small files.");
-        int i=0;
+        logger.trace("We found {} small files; parsing with {} thread(s).", smallFilePaths.size(), parallelism);
+        if (index != null) {
+            index.load();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        List<Future<ParseResult>> futures = new ArrayList<>();
         for (String path : smallFilePaths) {
-            if (++i%1000==0) {
-                logger.trace(String.format("Inputting %d-th file at %s",i,path));
-            }
-            SmallfileParser parser=new SmallfileParser(new File(path),ontology);
-            try {
-                Optional<SmallFile> v2sfOpt = parser.parseV2SmallFile();
-                if (v2sfOpt.isPresent()) {
-                    SmallFile v2sf = v2sfOpt.get();
-                    n_total_annotation_lines += v2sf.getNumberOfAnnotations();
-                    smallFileList.add(v2sf);
+            futures.add(executor.submit(() -> ingestSmallFile(path)));
+        }
+        int i=0;
+        int collected=0;
+        boolean interrupted=false;
+        try {
+            for (Future<ParseResult> future : futures) {
+                String path = smallFilePaths.get(i);
+                if (++i%1000==0) {
+                    logger.trace("Input {}-th file at {}", i, path);
+                }
+                if (interrupted && !future.isDone()) {
+                    continue;
+                }
+                ParseResult result;
+                try {
+                    result = future.get();
+                } catch (InterruptedException e) {
+                    // stop the workers, but keep the files that they have already parsed
+                    interrupted = true;
+                    executor.shutdownNow();
+                    continue;
+                } catch (ExecutionException e) {
+                    // an unexpected exception in one parser must not drop the remaining files
+                    logger.error("Could not input {}", path, e.getCause());
+                    errors.add(String.format("%s: %s", path, e.getCause()));
+                    collected++;
+                    continue;
+                }
+                collected++;
+                if (result.smallFile != null) {
+                    smallFileList.add(result.smallFile);
+                    n_total_annotation_lines += result.smallFile.getNumberOfAnnotations();
                 } else {
-                    logger.error("Could not parse V2 small file for {}", path);
+                    errors.add(result.error);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            errors.add(String.format("Input of small files was interrupted after %d of %d files", collected, futures.size()));
+        }
+        if (index != null) {
+            saveIndex();
+        }
+        logger.info("Finished with input of {} files with {} annotations", collected, n_total_annotation_lines);
+        logger.info("A total of {} entries found in the small file directory were omitted.", n_total_omitted_entries);
+    }
+
+    /**
+     * Take a small file from the {@link #index} if it has not changed since it was indexed; otherwise parse it
+     * and add the result to the index.
+     * @param path path to one small file
+     * @return the parsed {@link SmallFile} or an error message
+     */
+    private ParseResult ingestSmallFile(String path) {
+        if (index == null) {
+            return parseSmallFile(path);
+        }
+        Path p = Paths.get(path);
+        try {
+            Optional<CorpusIndex.Entry> cached = index.lookup(p);
+            if (cached.isPresent()) {
+                n_reused_files.incrementAndGet();
+                CorpusIndex.Entry entry = cached.get();
+                if (entry.smallFile == null) {
+                    return ParseResult.failure(path, entry.error);
                 }
-            } catch (PhenoteFxException e) {
-                e.printStackTrace();
+                return ParseResult.success(path, entry.smallFile);
+            }
+            CorpusIndex.Stamp stamp = CorpusIndex.stamp(p);
+            ParseResult result = parseSmallFile(path);
+            index.put(p.getFileName().toString(), stamp, result.smallFile, result.error);
+            return result;
+        } catch (IOException e) {
+            logger.warn("Could not use corpus index for {}: {}", path, e.getMessage());
+            return parseSmallFile(path);
+        }
+    }
+
+    /** Drop deleted and omitted small files from the {@link #index} and save it. */
+    private void saveIndex() {
+        List<String> basenames = new ArrayList<>();
+        for (String path : smallFilePaths) {
+            basenames.add(Paths.get(path).getFileName().toString());
+        }
+        index.retainAll(basenames);
+        try {
+            index.save();
+        } catch (IOException e) {
+            logger.warn("Could not save corpus index {}: {}", index.getIndexFile(), e.getMessage());
+        }
+        logger.info("Took {} of {} small files from the corpus index", n_reused_files.get(), smallFilePaths.size());
+    }
+
+    /**
+     * Parse a single small file. This method is called concurrently from the worker threads and
+     * therefore does not touch the state of the ingestor; the result is collected by {@link #inputSmallfiles()}.
+     * @param path path to one small file
+     * @return the parsed {@link SmallFile} or an error message
+     */
+    private ParseResult parseSmallFile(String path) {
+        SmallfileParser parser=new SmallfileParser(new File(path),ontology);
+        try {
+            Optional<SmallFile> v2sfOpt = parser.parseV2SmallFile();
+            if (v2sfOpt.isPresent()) {
+                SmallFile v2sf = v2sfOpt.get();
+                return ParseResult.success(path, v2sf);
+            } else {
+                logger.error("Could not parse V2 small file for {}", path);
+                return ParseResult.failure(path, String.format("Could not parse V2 small file for %s", path));
             }
+        } catch (PhenoteFxException e) {
+            logger.error("Could not parse V2 small file for {}: {}", path, e.getMessage());
+            return ParseResult.failure(path, String.format("%s: %s", path, e.getMessage()));
+        }
+    }
+
+    /** Outcome of parsing one small file -- either a {@link SmallFile} or an error message. */
+    private static class ParseResult {
+        private final String path;
+        private final SmallFile smallFile;
+        private final String error;
+
+        private ParseResult(String path, SmallFile smallFile, String error) {
+            this.path = path;
+            this.smallFile = smallFile;
+            this.error = error;
+        }
+
+        static ParseResult success(String path, SmallFile smallFile) {
+            return new ParseResult(path, smallFile, null);
+        }
+
+        static ParseResult failure(String path, String error) {
+            return new ParseResult(path, null, error);
         }
-        logger.error("Finished with input of {} files with {} annotations",i,n_total_annotation_lines);
-        logger.error("A total of {} entries found in the small file directory were omitted.",n_total_omitted_entries);
     }
 
     /**
@@ -114,6 +297,11 @@ public class SmallFileIngestor {
      */
     private Set<String> getOmitEntries(String path) {
         Set<String> entrylist=new HashSet<>();
+        if (!new File(path).exists()) {
+            // a corpus without an omit list simply has no omitted entries
+            logger.info("No omit list found at {}", path);
+            return entrylist;
+        }
         try (BufferedReader br = new BufferedReader(new FileReader(path))) {
             String line;
             while ((line=br.readLine())!=null) {
@@ -148,7 +336,7 @@ public class SmallFileIngestor {
                 if (path.toString().endsWith(".tab")) {
                     String basename=baseName(path);
                     if (omitEntries.contains(basename)) {
-                        logger.error("Skipping annotations for entry {} (omit list entry)", basename);
+                        logger.debug("Skipping annotations for entry {} (omit list entry)", basename);
                         n_total_omitted_entries++;
                         continue; // skip this one!
                     }
@@ -159,6 +347,8 @@ public class SmallFileIngestor {
             errors.add(String.format("Could not get list of small smallFilePaths from %s [%s]. Terminating...",
                     v2smallFileDirectory,ex));
         }
+        // sort by basename so that the output does not depend on the order of the directory listing
+        fileNames.sort(Comparator.comparing(p -> Paths.get(p).getFileName().toString()));
         return fileNames;
     }
 
@@ -0,0 +1,60 @@
+package org.monarchinitiative.phenotefx.smallfile;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * Read access to the fields of one annotation line of a small file. This is implemented both by
+ * {@link SmallFileEntry} and by the rows of a {@link CorpusStore}, so that code that only reads annotations
+ * can work with either representation.
+ * @author Peter Robinson
+ */
+public interface SmallFileRow {
+
+    String getDiseaseID();
+
+    String getDiseaseName();
+
+    TermId getPhenotypeId();
+
+    String getPhenotypeName();
+
+    String getAgeOfOnsetId();
+
+    String getAgeOfOnsetName();
+
+    String getEvidenceCode();
+
+    String getFrequencyModifier();
+
+    String getSex();
+
+    String getNegation();
+
+    String getModifier();
+
+    String getDescription();
+
+    String getPublication();
+
+    String getBiocuration();
+}
@@ -0,0 +1,187 @@
+package org.monarchinitiative.phenotefx.tally;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableSet;
+import org.monarchinitiative.phenotefx.search.TermSearchIndex;
+
+import java.util.*;
+
+/**
+ * Maps the free-text items of a tally (e.g., "seizures" or "hypotonia") to HPO terms, and converts a tally of
+ * items into an {@link HpoTermTally} with a count and an n/m frequency per HPO term. A token that is equal to an
+ * HPO label or synonym (ignoring case) is mapped exactly; otherwise the best match of the {@link TermSearchIndex}
+ * (which tolerates typos) is used and the mapping is marked as approximate, so that the curator can check it.
+ * Each distinct token is looked up only once; the results are cached across rows and tallies.
+ * @author Peter Robinson
+ */
+public class HpoTermMapper {
+    /** Approximate matches are only attempted for tokens of at least this length, to reduce the noise. */
+    private static final int MIN_APPROXIMATE_LENGTH = 4;
+    /** Spreadsheet values that mean that a feature was not observed. */
+    private static final Set<String> NEGATIVE = ImmutableSet.of("-", "no", "n", "absent", "0", "false", "neg");
+    /** Spreadsheet values that mean that there is no information. */
+    private static final Set<String> UNKNOWN = ImmutableSet.of("", "n/a", "na", "nd", "?", "unknown", "not reported");
+
+    /** Key: lower-case HPO label or synonym; value: preferred label. */
+    private final Map<String, String> synonym2label;
+    /** Key: preferred label; value: HPO id. */
+    private final Map<String, String> label2id;
+    /** Index for approximate matches (may be null, in which case only exact matches are made). */
+    private final TermSearchIndex index;
+    /** Key: normalized token; value: its mapping, or empty if it could not be mapped. */
+    private final Map<String, Optional<Mapping>> cache = new HashMap<>();
+
+    /** The HPO term to which a token was mapped. */
+    public static final class Mapping {
+        private final String termId;
+        private final String label;
+        private final boolean exact;
+
+        Mapping(String termId, String label, boolean exact) {
+            this.termId = termId;
+            this.label = label;
+            this.exact = exact;
+        }
+
+        public String getTermId() { return termId; }
+
+        public String getLabel() { return label; }
+
+        /** @return true if the token was equal to a label or synonym of the term. */
+        public boolean isExact() { return exact; }
+    }
+
+    /**
+     * @param synonym2label key: HPO label or synonym; value: preferred label
+     * @param label2id key: preferred label; value: HPO id
+     * @param index index used for approximate matches, or null for exact matches only
+     */
+    public HpoTermMapper(Map<String, String> synonym2label, Map<String, String> label2id, TermSearchIndex index) {
+        this.synonym2label = new HashMap<>();
+        for (Map.Entry<String, String> e : synonym2label.entrySet()) {
+            this.synonym2label.putIfAbsent(normalize(e.getKey()), e.getValue());
+        }
+        this.label2id = label2id;
+        this.index = index;
+    }
+
+    /**
+     * @param token a free-text item such as "Seizures"
+     * @return the HPO term, or empty if the token could not be mapped
+     */
+    public synchronized Optional<Mapping> map(String token) {
+        return cache.computeIfAbsent(normalize(token), this::lookup);
+    }
+
+    /** @return number of distinct tokens that have been looked up so far. */
+    public synchronized int getCacheSize() {
+        return cache.size();
+    }
+
+    private Optional<Mapping> lookup(String token) {
+        if (token.isEmpty()) {
+            return Optional.empty();
+        }
+        String label = synonym2label.get(token);
+        if (label != null && label2id.containsKey(label)) {
+            return Optional.of(new Mapping(label2id.get(label), label, true));
+        }
+        if (index == null || token.length() < MIN_APPROXIMATE_LENGTH) {
+            return Optional.empty();
+        }
+        List<String> best = index.suggest(token, 1);
+        if (best.isEmpty()) {
+            return Optional.empty();
+        }
+        label = synonym2label.get(normalize(best.get(0)));
+        if (label == null || !label2id.containsKey(label)) {
+            return Optional.empty();
+        }
+        return Optional.of(new Mapping(label2id.get(label), label, false));
+    }
+
+    /**
+     * Tally the HPO terms of a row in which each column (e.g., a patient) has a set of free-text items. A term is
+     * counted at most once per column, and the denominator of each term is the number of columns.
+     * @param columns the items of each column with observations
+     * @return the tally of HPO terms
+     */
+    public HpoTermTally tallyColumns(List<? extends Collection<String>> columns) {
+        HpoTermTally tally = new HpoTermTally();
+        for (Collection<String> column : columns) {
+            Set<String> seen = new HashSet<>();
+            for (String token : column) {
+                Optional<Mapping> mapping = map(token);
+                if (mapping.isPresent()) {
+                    HpoTermTally.Entry entry = tally.entry(mapping.get());
+                    entry.addToken(token);
+                    if (seen.add(mapping.get().getTermId())) {
+                        entry.add(1, 0);
+                    }
+                } else if (seen.add(token)) {
+                    tally.addUnmapped(token);
+                }
+            }
+        }
+        for (HpoTermTally.Entry entry : tally.getEntries()) {
+            entry.add(0, columns.size());
+        }
+        return tally;
+    }
+
+    /**
+     * Tally the HPO terms of a spreadsheet in which each item is a feature and the values are the observations in
+     * the individuals. Values such as "-", "no" or "absent" count as not observed, values such as "n/a" or empty
+     * cells are ignored, and all other values (e.g., "+", "yes", "mild") count as observed. The frequency of a term
+     * is thus the number of individuals with the feature out of those for which it was reported. If several items
+     * map to the same term, they get separate entries that are marked as conflicting (see
+     * {@link HpoTermTally.Entry#isConflicting()}), because adding up their counts would count the same individuals
+     * twice.
+     * @param spreadsheet a tally of a spreadsheet
+     * @return the tally of HPO terms
+     */
+    public HpoTermTally tallySpreadsheet(SpreadsheetTally spreadsheet) {
+        HpoTermTally tally = new HpoTermTally();
+        for (SpreadsheetTally.Item item : spreadsheet.getItems()) {
+            Optional<Mapping> mapping = map(item.getName());
+            if (!mapping.isPresent()) {
+                tally.addUnmapped(item.getName());
+                continue;
+            }
+            HpoTermTally.Entry entry = tally.entry(mapping.get(), mapping.get().getTermId() + "\t" + item.getName());
+            entry.addToken(item.getName());
+            for (Map.Entry<String, Integer> e : item.getCounts().entrySet()) {
+                String value = normalize(e.getKey());
+                if (UNKNOWN.contains(value)) {
+                    continue;
+                }
+                entry.add(NEGATIVE.contains(value) ? 0 : e.getValue(), e.getValue());
+            }
+        }
+        tally.markConflicts();
+        return tally;
+    }
+
+    private static String normalize(String s) {
+        return s.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,146 @@
+package org.monarchinitiative.phenotefx.tally;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.*;
+
+/**
+ * Counts per HPO term, created by {@link HpoTermMapper} from a tally of free-text items. Each entry has an n/m
+ * frequency (n individuals with the feature out of m for which it was reported) and can be added to the current
+ * small file as an annotation. Items that could not be mapped are kept with their counts so that the curator can
+ * map them manually.
+ * <p>
+ * In a spreadsheet tally, each item (row) describes the same individuals, so two items that map to the same term
+ * (e.g., "Seizures" and "Epilepsy") cannot simply be added up without counting individuals twice. They are kept as
+ * separate entries that are marked as conflicting, and only one of them can be added to a small file.
+ * @author Peter Robinson
+ */
+public class HpoTermTally {
+    /** Key: HPO id (or HPO id and item for the entries of a spreadsheet tally). */
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    /** Key: an item that could not be mapped to an HPO term; value: its count. */
+    private final Map<String, Integer> unmapped = new LinkedHashMap<>();
+
+    /** The count of one HPO term. */
+    public static final class Entry {
+        private final String termId;
+        private final String label;
+        private boolean exact;
+        /** True if another entry of the tally has the same term. */
+        private boolean conflicting = false;
+        /** The items that were mapped to this term. */
+        private final Set<String> tokens = new LinkedHashSet<>();
+        private int numerator = 0;
+        private int denominator = 0;
+
+        Entry(HpoTermMapper.Mapping mapping) {
+            this.termId = mapping.getTermId();
+            this.label = mapping.getLabel();
+            this.exact = mapping.isExact();
+        }
+
+        void addToken(String token) {
+            tokens.add(token);
+        }
+
+        void add(int observed, int reported) {
+            numerator += observed;
+            denominator += reported;
+        }
+
+        public String getTermId() { return termId; }
+
+        public String getLabel() { return label; }
+
+        /** @return true if all items of this term were equal to one of its labels or synonyms. */
+        public boolean isExact() { return exact; }
+
+        public Set<String> getTokens() { return Collections.unmodifiableSet(tokens); }
+
+        /**
+         * @return true if another item of the tally was mapped to the same term; the counts are then not merged,
+         * and the curator has to choose one of the entries.
+         */
+        public boolean isConflicting() { return conflicting; }
+
+        public int getNumerator() { return numerator; }
+
+        public int getDenominator() { return denominator; }
+
+        /** @return the frequency in the format of the small files, e.g., "7/13". */
+        public String getFrequency() {
+            return numerator + "/" + denominator;
+        }
+
+        /** @return true if the feature was reported for some individuals but observed in none (a NOT annotation). */
+        public boolean isExcluded() {
+            return numerator == 0 && denominator > 0;
+        }
+    }
+
+    Entry entry(HpoTermMapper.Mapping mapping) {
+        return entry(mapping, mapping.getTermId());
+    }
+
+    /** @param key entries with the same key are merged */
+    Entry entry(HpoTermMapper.Mapping mapping, String key) {
+        Entry entry = entries.computeIfAbsent(key, id -> new Entry(mapping));
+        entry.exact &= mapping.isExact();
+        return entry;
+    }
+
+    /** Mark all entries whose term also belongs to another entry as conflicting. */
+    void markConflicts() {
+        Map<String, Integer> perTerm = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            perTerm.merge(entry.termId, 1, Integer::sum);
+        }
+        for (Entry entry : entries.values()) {
+            entry.conflicting = perTerm.get(entry.termId) > 1;
+        }
+    }
+
+    /** @return key: HPO id; value: the entries with this term, for the terms that have more than one entry. */
+    public static Map<String, List<Entry>> conflicts(Collection<Entry> entries) {
+        Map<String, List<Entry>> byTerm = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            byTerm.computeIfAbsent(entry.termId, id -> new ArrayList<>()).add(entry);
+        }
+        byTerm.values().removeIf(list -> list.size() < 2);
+        return byTerm;
+    }
+
+    void addUnmapped(String token) {
+        unmapped.merge(token, 1, Integer::sum);
+    }
+
+    /** @return the HPO terms, ordered by decreasing number of individuals with the feature. */
+    public List<Entry> getEntries() {
+        List<Entry> list = new ArrayList<>(entries.values());
+        list.sort(Comparator.comparingInt(Entry::getNumerator).reversed().thenComparing(Entry::getLabel));
+        return list;
+    }
+
+    /** @return key: item that could not be mapped; value: count. */
+    public Map<String, Integer> getUnmapped() {
+        return Collections.unmodifiableMap(unmapped);
+    }
+}
@@ -0,0 +1,196 @@
+package org.monarchinitiative.phenotefx.tally;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Tally of the values in a spreadsheet in which column 1 is the name of an item (e.g., a feature) and the other
+ * columns are observations in individuals. The spreadsheet is read line by line, and each value is counted
+ * directly in the frequency map of its item, so that the memory needed is proportional to the number of distinct
+ * values per item rather than to the number of cells; cohort tables with thousands of patients can be tallied.
+ * Tab-separated and comma-separated (with quoted fields) files are supported.
+ * @author Peter Robinson
+ */
+public class SpreadsheetTally {
+    private static final Logger logger = LogManager.getLogger();
+
+    /** The items, in the order of the spreadsheet. */
+    private final List<Item> items = new ArrayList<>();
+    /** Number of lines that were skipped because they had no observations. */
+    private int skippedLines = 0;
+
+    /** The counts of the values of one item (one row of the spreadsheet). */
+    public static final class Item {
+        private final String name;
+        /** Key: a value; value: its count (a one-element array, so that counting does not allocate). */
+        private final Map<String, int[]> counts = new HashMap<>();
+        private int total = 0;
+
+        Item(String name) {
+            this.name = name;
+        }
+
+        void add(String value) {
+            counts.computeIfAbsent(value, v -> new int[1])[0]++;
+            total++;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** @return the number of observations (non-distinct values) of this item. */
+        public int getTotal() {
+            return total;
+        }
+
+        /** @return the number of distinct values of this item. */
+        public int getDistinctValueCount() {
+            return counts.size();
+        }
+
+        /** @return the count of a value (0 if it was not observed). */
+        public int getCount(String value) {
+            int[] c = counts.get(value);
+            return c == null ? 0 : c[0];
+        }
+
+        /** @return key: value; value: count, ordered by decreasing count and then alphabetically. */
+        public Map<String, Integer> getCounts() {
+            List<Map.Entry<String, int[]>> entries = new ArrayList<>(counts.entrySet());
+            entries.sort((a, b) -> a.getValue()[0] != b.getValue()[0] ?
+                    Integer.compare(b.getValue()[0], a.getValue()[0]) : a.getKey().compareTo(b.getKey()));
+            Map<String, Integer> sorted = new LinkedHashMap<>();
+            for (Map.Entry<String, int[]> e : entries) {
+                sorted.put(e.getKey(), e.getValue()[0]);
+            }
+            return sorted;
+        }
+    }
+
+    private SpreadsheetTally() {
+    }
+
+    /**
+     * Tally a spreadsheet file. Files whose name ends with ".csv" are read as comma-separated, all other files
+     * as tab-separated.
+     * @param path path to the spreadsheet
+     * @return the tally
+     * @throws IOException if the file cannot be read
+     */
+    public static SpreadsheetTally read(Path path) throws IOException {
+        char delimiter = path.getFileName().toString().toLowerCase().endsWith(".csv") ? ',' : '\t';
+        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return read(br, delimiter);
+        }
+    }
+
+    /**
+     * Tally a spreadsheet. The first line is a header and is skipped. If an item occurs more than once, the later
+     * rows are tallied separately under a name with a numerical suffix.
+     * @param reader source of the spreadsheet (not closed by this method)
+     * @param delimiter field separator, usually tab or comma
+     * @return the tally
+     * @throws IOException if the spreadsheet cannot be read
+     */
+    public static SpreadsheetTally read(Reader reader, char delimiter) throws IOException {
+        SpreadsheetTally tally = new SpreadsheetTally();
+        BufferedReader br = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        Set<String> names = new HashSet<>();
+        int uniqueint = 0;
+        List<String> fields = new ArrayList<>();
+        String line = br.readLine(); // skip header
+        while ((line = br.readLine()) != null) {
+            split(line, delimiter, fields);
+            if (fields.size() < 2) {
+                logger.warn("Skipping line (only one field): {}", line);
+                tally.skippedLines++;
+                continue;
+            }
+            String itemname = fields.get(0);
+            if (itemname.isEmpty()) {
+                tally.skippedLines++;
+                continue;
+            }
+            if (!names.add(itemname)) {
+                // duplicate item name
+                itemname = String.format("%s-%d", itemname, uniqueint++);
+            }
+            Item item = new Item(itemname);
+            for (int i = 1; i < fields.size(); i++) {
+                item.add(fields.get(i));
+            }
+            tally.items.add(item);
+        }
+        return tally;
+    }
+
+    /**
+     * Split a line into fields. Trailing empty fields are dropped (as with {@link String#split(String)}). For
+     * comma-separated files, fields may be quoted, and a doubled quote within a quoted field stands for a quote.
+     */
+    static void split(String line, char delimiter, List<String> fields) {
+        fields.clear();
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (delimiter == ',' && c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    sb.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == delimiter && !quoted) {
+                fields.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+        fields.add(sb.toString());
+        int n = fields.size();
+        while (n > 0 && fields.get(n - 1).isEmpty()) {
+            fields.remove(--n);
+        }
+    }
+
+    /** @return the items, in the order of the spreadsheet. */
+    public List<Item> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    /** @return number of lines that were skipped because they had no item name or no observations. */
+    public int getSkippedLines() {
+        return skippedLines;
+    }
+}
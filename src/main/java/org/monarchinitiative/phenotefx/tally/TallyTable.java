@@ -0,0 +1,195 @@
+package org.monarchinitiative.phenotefx.tally;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * A tally flattened into rows of (item, value, count), as shown by the tally viewer. The rows are stored in
+ * parallel arrays and addressed by their index, so that a view only has to create objects for the rows that are
+ * visible. The table can be exported as tab-separated values or as an HTML report.
+ * @author Peter Robinson
+ */
+public final class TallyTable {
+    /** The distinct item names; {@code itemOfRow[i]} is an index into this array. */
+    private final String[] items;
+    /** Number of observations of each item. */
+    private final int[] itemTotals;
+    private final int[] itemOfRow;
+    private final String[] values;
+    private final int[] counts;
+
+    private TallyTable(String[] items, int[] itemTotals, int[] itemOfRow, String[] values, int[] counts) {
+        this.items = items;
+        this.itemTotals = itemTotals;
+        this.itemOfRow = itemOfRow;
+        this.values = values;
+        this.counts = counts;
+    }
+
+    /** @return a table with one row for each value of each item of the spreadsheet. */
+    public static TallyTable of(SpreadsheetTally tally) {
+        List<SpreadsheetTally.Item> itemList = tally.getItems();
+        int rows = 0;
+        for (SpreadsheetTally.Item item : itemList) {
+            rows += item.getDistinctValueCount();
+        }
+        String[] items = new String[itemList.size()];
+        int[] itemTotals = new int[itemList.size()];
+        int[] itemOfRow = new int[rows];
+        String[] values = new String[rows];
+        int[] counts = new int[rows];
+        int row = 0;
+        for (int i = 0; i < items.length; i++) {
+            SpreadsheetTally.Item item = itemList.get(i);
+            items[i] = item.getName();
+            itemTotals[i] = item.getTotal();
+            for (Map.Entry<String, Integer> e : item.getCounts().entrySet()) {
+                itemOfRow[row] = i;
+                values[row] = e.getKey();
+                counts[row] = e.getValue();
+                row++;
+            }
+        }
+        return new TallyTable(items, itemTotals, itemOfRow, values, counts);
+    }
+
+    /**
+     * @param item name of the single item of the table
+     * @param counted key: value; value: count
+     * @param total the number of observations (e.g., individuals) relative to which percentages are calculated
+     * @return a table with one row per value
+     */
+    public static TallyTable of(String item, Map<String, Integer> counted, int total) {
+        int rows = counted.size();
+        int[] itemOfRow = new int[rows];
+        String[] values = new String[rows];
+        int[] counts = new int[rows];
+        int row = 0;
+        for (Map.Entry<String, Integer> e : counted.entrySet()) {
+            values[row] = e.getKey();
+            counts[row] = e.getValue();
+            row++;
+        }
+        return new TallyTable(new String[]{item}, new int[]{total}, itemOfRow, values, counts);
+    }
+
+    /** @return number of rows. */
+    public int size() {
+        return values.length;
+    }
+
+    public String getItem(int row) {
+        return items[itemOfRow[row]];
+    }
+
+    public String getValue(int row) {
+        return values[row];
+    }
+
+    public int getCount(int row) {
+        return counts[row];
+    }
+
+    /** @return the count of the row as a percentage of all observations of its item. */
+    public double getPercentage(int row) {
+        int total = itemTotals[itemOfRow[row]];
+        return total == 0 ? 0.0 : 100.0 * counts[row] / total;
+    }
+
+    /**
+     * Write the given rows as tab-separated values with a header line.
+     * @param rows indices of the rows to write, in the order in which they are written
+     */
+    public void writeTsv(Writer writer, List<Integer> rows) throws IOException {
+        writer.write("item\tvalue\tcount\tpercentage\n");
+        for (int row : rows) {
+            writer.write(tsvField(getItem(row)));
+            writer.write('\t');
+            writer.write(tsvField(getValue(row)));
+            writer.write('\t');
+            writer.write(Integer.toString(getCount(row)));
+            writer.write('\t');
+            writer.write(String.format(Locale.ROOT, "%.1f", getPercentage(row)));
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Write the given rows as an HTML report with one table per item. The rows are grouped by item, keeping
+     * their order within each item.
+     * @param title heading of the report
+     * @param rows indices of the rows to write
+     */
+    public void writeHtml(Writer writer, String title, List<Integer> rows) throws IOException {
+        List<Integer> grouped = new ArrayList<>(rows);
+        grouped.sort(Comparator.comparingInt(row -> itemOfRow[row]));
+        writer.write("<html>\n");
+        writer.write(inlineCSS());
+        writer.write("<body>\n<h1>");
+        writer.write(escape(title));
+        writer.write("</h1>\n");
+        int currentItem = -1;
+        for (int row : grouped) {
+            if (itemOfRow[row] != currentItem) {
+                if (currentItem >= 0) {
+                    writer.write("</table>\n<br/><br/>\n");
+                }
+                currentItem = itemOfRow[row];
+                writer.write("<table>\n<caption>");
+                writer.write(escape(items[currentItem]));
+                writer.write("</caption>\n  <tr><th>Item</th><th>Count</th></tr>\n");
+            }
+            writer.write("<tr><td>");
+            writer.write(escape(getValue(row)));
+            writer.write("</td><td>");
+            writer.write(Integer.toString(getCount(row)));
+            writer.write("</td></tr>\n");
+        }
+        if (currentItem >= 0) {
+            writer.write("</table>\n");
+        }
+        writer.write("</body></html>\n");
+    }
+
+    private static String tsvField(String s) {
+        return s.replace('\t', ' ').replace('\n', ' ');
+    }
+
+    private static String escape(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static String inlineCSS() {
+        return "<head><style>\n" +
+                "body { font: 75% georgia, sans-serif; line-height: 1.88889;color: #001f3f; margin: 10; padding: 10; }\n" +
+                "caption { font-weight: bold; text-align: left; border-style: solid; border-width: 1px; border-color: #666666; }\n" +
+                "table { font-family: \"Lato\",\"sans-serif\"; }\n" +
+                "td { text-align: center; width: 10em; padding: 1em; }\n" +
+                "th { text-align: center; padding: 1em; background-color: #e8503a; color: white; }\n" +
+                "tr { height: 1em; }\n" +
+                "table tr:nth-child(even) { background-color: #eee; }\n" +
+                "table tr:nth-child(odd) { background-color: #fff; }\n" +
+                "</style></head>\n";
+    }
+}
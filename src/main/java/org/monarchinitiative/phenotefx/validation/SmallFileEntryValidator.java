@@ -0,0 +1,112 @@
+package org.monarchinitiative.phenotefx.validation;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.smallfile.SmallFile;
+import org.monarchinitiative.phenotefx.smallfile.SmallFileEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Counterpart of {@link SmallFileValidator} for small files that were ingested as {@link SmallFileEntry} objects
+ * (e.g., by the batch mode) rather than loaded into the GUI table. In addition to the checks performed for the
+ * table, we check the evidence codes and frequencies and whether the HPO terms are present in the ontology.
+ */
+public class SmallFileEntryValidator {
+
+    private final SmallFile smallFile;
+    private final Ontology ontology;
+    private final List<String> errors;
+
+
+    public SmallFileEntryValidator(SmallFile smallFile, Ontology ontology) {
+        this.errors=new ArrayList<>();
+        this.smallFile=smallFile;
+        this.ontology=ontology;
+        checkForUniqueDiseaseIds();
+        checkEntries();
+    }
+
+    /**
+     * Check that one and only one disease ID is being used.
+     */
+    private void checkForUniqueDiseaseIds() {
+        Set<String> uniqueDiseaseIds = smallFile.getOriginalEntryList()
+                .stream()
+                .map(SmallFileEntry::getDiseaseID)
+                .collect(Collectors.toSet());
+        if (uniqueDiseaseIds.isEmpty()) {
+            errors.add("No disease ids found");
+        } else if (uniqueDiseaseIds.size()>1) {
+            errors.add("Multiple disease Ids found (this should be unique!): " + String.join(";",uniqueDiseaseIds));
+        }
+    }
+
+    private void checkEntries() {
+        for (SmallFileEntry entry : smallFile.getOriginalEntryList()) {
+            String label = entry.getPhenotypeName();
+            TermId tid = entry.getPhenotypeId();
+            if (ontology.getPrimaryTermId(tid) == null) {
+                errors.add(String.format("%s: Term id %s not found in the ontology", label, tid.getValue()));
+            }
+            if (!EvidenceValidator.isValid(entry.getEvidenceCode())) {
+                errors.add(String.format("%s: Invalid evidence code \"%s\"", label, entry.getEvidenceCode()));
+            }
+            if (!BiocurationValidator.isValid(entry.getBiocuration())) {
+                errors.add(String.format("%s: Malformed biocuration entry \"%s\" (should be like HPO:rrabbit[2017-02-17])",
+                        label, entry.getBiocuration()));
+            }
+            if (!isValidFrequency(entry.getFrequencyModifier())) {
+                errors.add(String.format("%s: Invalid frequency \"%s\"", label, entry.getFrequencyModifier()));
+            }
+            if (!NotValidator.isValid(entry.getNegation())) {
+                errors.add(String.format("%s: Invalid negation \"%s\"", label, entry.getNegation()));
+            }
+        }
+    }
+
+    /** The frequency is optional; if present it must pass the same {@link FrequencyValidator} as the GUI. */
+    private static boolean isValidFrequency(String s) {
+        return s == null || s.isEmpty() || FrequencyValidator.isValid(s);
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public String errorMessage() {
+        return String.join(",", errors);
+    }
+
+    /**
+     * @return true iff there are no error messages in {@link #errors}
+     */
+    public boolean isValid() {
+        return errors.isEmpty();
+    }
+
+
+}
@@ -22,23 +22,28 @@ package org.monarchinitiative.phenotefx.worker;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.ListView;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.io.AtomicFiles;
 import org.monarchinitiative.phenotefx.smallfile.SmallFile;
 import org.monarchinitiative.phenotefx.smallfile.SmallFileEntry;
 import org.monarchinitiative.phenotefx.smallfile.SmallFileIngestor;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -48,61 +53,229 @@ import static org.monarchinitiative.phenotefx.smallfile.SmallFileEntry.getHeader
  * If we update a term's label, its id stays the same. The label in the annotation file will no longer be up to date
  * This function checks whether the term labels of the annotated terms are up to date. It proceeds to update the
  * labels and to output a summary so the user of Phenote can visually check that no nonsense has taken place.
+ * <p>
+ * The updater is a cancellable {@link Task} that checks the small files in parallel and reports its progress
+ * (one unit per small file). Only the small files with outdated entries are rewritten; each one is first written
+ * to a temporary file that then replaces the original, so that a cancelled or failed run never leaves a
+ * truncated small file behind. The summary is shown with {@link #showSummary()}, which must be called on the
+ * FX application thread once the worker has finished: from the {@code onSucceeded} handler, or, if the task was
+ * cancelled, from a callback registered with {@link #whenFinished(Runnable)} (the {@code onCancelled} handler runs
+ * as soon as {@link #cancel()} is called, while the worker may still be collecting results).
  * @author Peter Robinon
  */
-public class TermLabelUpdater {
+public class TermLabelUpdater extends Task<Set<String>> {
+    private static final Logger logger = LogManager.getLogger();
     private final String smallFilePath;
     private final Ontology ontology;
-    private final List<SmallFile> smallFiles;
+    /** Small files to be checked; ingested from {@link #smallFilePath} when the task starts if null. */
+    private List<SmallFile> smallFiles;
+    /** Number of threads used to check the small files. */
+    private final int parallelism;
 
-    private List<String> messages = new ArrayList<>();
+    /** Messages of the last run, published once the worker loop has finished. */
+    private volatile List<String> messages = Collections.emptyList();
+    /** Basenames of the small files with outdated entries, published together with {@link #messages}. */
+    private volatile Set<String> updatedDiseases = Collections.emptySet();
+    /** Completed when {@link #call()} returns, whether it succeeded, failed or was cancelled. */
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
 
     public TermLabelUpdater(String smallFilePath, Ontology ontology) {
-            this.ontology=ontology;
-            this.smallFilePath=smallFilePath;
-            SmallFileIngestor ingestor = new SmallFileIngestor(smallFilePath,ontology);
-            this.smallFiles = ingestor.getSmallFileEntries();
+        this(smallFilePath, ontology, null, SmallFileIngestor.defaultParallelism());
     }
 
+    /**
+     * Use this constructor if the small files have already been ingested (e.g., by the batch mode).
+     * @param smallFilePath directory with the small files
+     * @param ontology reference to HPO ontology object
+     * @param smallFiles the small files that were ingested from smallFilePath
+     * @param parallelism number of threads used to check the small files
+     */
+    public TermLabelUpdater(String smallFilePath, Ontology ontology, List<SmallFile> smallFiles, int parallelism) {
+        this.ontology=ontology;
+        this.smallFilePath=smallFilePath;
+        this.smallFiles=smallFiles;
+        this.parallelism=parallelism;
+    }
+
+    /** @return one message for each outdated TermId or label found by {@link #updateLabels(boolean)}. */
+    public List<String> getMessages() {
+        return messages;
+    }
+
+    /**
+     * Run an action (on the worker thread) once {@link #call()} has returned, or right away if it already has.
+     * Use this to show the summary of a cancelled task.
+     */
+    public void whenFinished(Runnable action) {
+        finished.thenRun(action);
+    }
+
+    /**
+     * Check and rewrite the small files on the background thread.
+     * @return basenames of the small files that were updated
+     */
+    @Override
+    protected Set<String> call() throws InterruptedException {
+        updateMessage("Checking labels...");
+        try {
+            return updateLabels(true, (done, total) -> {
+                updateProgress(done, total);
+                updateMessage(String.format("Checked %d of %d small files", done, total));
+            });
+        } finally {
+            finished.complete(null);
+        }
+    }
+
+    /**
+     * Check all small files for outdated TermIds and labels. This method does not touch the GUI and can be called
+     * from any thread.
+     * @param write if true, small files with outdated entries are rewritten with the current ids and labels
+     * @return basenames of the small files that have outdated entries
+     */
+    public Set<String> updateLabels(boolean write) throws InterruptedException {
+        return updateLabels(write, (done, total) -> {});
+    }
 
-    public void replaceOutOfDateLabels() {
-        javafx.application.Platform.runLater(() -> {
-            Set<String> updatedDiseases=new HashSet<>();
-        for (SmallFile v2 : smallFiles) {
-            boolean changed=false;
-            List<SmallFileEntry> entrylist =new ArrayList<>(v2.getOriginalEntryList());
-            for (int i=0;i< entrylist.size();i++) {
-                SmallFileEntry entry =entrylist.get(i);
-                TermId tid = entry.getPhenotypeId();
-                String label = entry.getPhenotypeName();
-                TermId primaryId = ontology.getPrimaryTermId(tid);
-                if (!tid.equals(primaryId)) {
-                    updatedDiseases.add(v2.getBasename());
-                    String msg = String.format("Replacing outdated TermId [%s] with correct primary id [%s]",tid.getValue(),primaryId.getValue() );
-                    messages.add(msg);
-                    SmallFileEntry replacement = entry.withUpdatedPrimaryId(primaryId);
-                    entrylist.set(i, replacement);
-                    changed=true;
+    private Set<String> updateLabels(boolean write, BiConsumer<Integer, Integer> progress) throws InterruptedException {
+        if (smallFiles == null) {
+            smallFiles = new SmallFileIngestor(smallFilePath, ontology, parallelism).getSmallFileEntries();
+        }
+        int total = smallFiles.size();
+        AtomicInteger done = new AtomicInteger();
+        // only this thread touches the lists; they are published when the loop has finished
+        List<String> messages = new ArrayList<>();
+        Set<String> updatedDiseases = new TreeSet<>();
+        // the workers record each file they rewrote, so that a cancelled run can still report all of them
+        Map<String, FileResult> rewritten = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<FileResult>> futures = new ArrayList<>();
+            for (SmallFile v2 : smallFiles) {
+                futures.add(executor.submit(() -> {
+                    FileResult result = checkSmallFile(v2, write);
+                    if (result.written) {
+                        rewritten.put(result.basename, result);
+                    }
+                    progress.accept(done.incrementAndGet(), total);
+                    return result;
+                }));
+            }
+            // collect the results in the order of the small files so that the summary is reproducible
+            for (Future<FileResult> future : futures) {
+                if (isCancelled()) {
+                    break;
+                }
+                FileResult result;
+                try {
+                    result = future.get();
+                } catch (ExecutionException e) {
+                    logger.error("Could not check small file: {}", e.getCause().getMessage());
+                    messages.add(String.format("Could not check small file: %s", e.getCause().getMessage()));
+                    continue;
                 }
-                String currentLabel = ontology.getTermMap().get(primaryId).getName();
-                if (! label.equals(currentLabel)) {
-                    updatedDiseases.add(v2.getBasename());
-                    String msg = String.format("Replacing outdated label [%s] with current label [%s]",label,currentLabel );
-                    messages.add(msg);
-                    SmallFileEntry replacement = entry.withUpdatedLabel(currentLabel);
-                    entrylist.set(i, replacement);
-                    changed=true;
+                messages.addAll(result.messages);
+                if (result.changed) {
+                    updatedDiseases.add(result.basename);
                 }
             }
-            if (changed) {
-                writeUpdatedSmallFile(v2.getBasename(),entrylist);
+        } finally {
+            executor.shutdownNow();
+            // files that were rewritten after the loop stopped collecting (cancelled or interrupted)
+            awaitTermination(executor);
+            for (FileResult result : new TreeMap<>(rewritten).values()) {
+                if (updatedDiseases.add(result.basename)) {
+                    messages.addAll(result.messages);
+                }
+            }
+            if (isCancelled()) {
+                logger.info("Label update cancelled; {} small files were rewritten", rewritten.size());
             }
+            this.messages = Collections.unmodifiableList(messages);
+            this.updatedDiseases = Collections.unmodifiableSet(updatedDiseases);
         }
-            showList(messages,updatedDiseases);
-        }); // end of run-later ToDo--wrap this in a Task!
+        return this.updatedDiseases;
     }
 
+    /**
+     * Wait until the workers have stopped, even if this thread is interrupted (as it is when the task is cancelled).
+     * A worker that has already started to rewrite a small file finishes it, so this does not take long.
+     */
+    private static void awaitTermination(ExecutorService executor) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Outdated entries found in one small file. */
+    private static class FileResult {
+        final String basename;
+        final List<String> messages = new ArrayList<>();
+        boolean changed = false;
+        /** True if the small file was rewritten. */
+        boolean written = false;
 
+        FileResult(String basename) {
+            this.basename = basename;
+        }
+    }
+
+    private FileResult checkSmallFile(SmallFile v2, boolean write) throws IOException {
+        FileResult result = new FileResult(v2.getBasename());
+        if (isCancelled()) {
+            return result;
+        }
+        List<SmallFileEntry> entrylist =new ArrayList<>(v2.getOriginalEntryList());
+        for (int i=0;i< entrylist.size();i++) {
+            SmallFileEntry entry =entrylist.get(i);
+            TermId tid = entry.getPhenotypeId();
+            String label = entry.getPhenotypeName();
+            TermId primaryId = ontology.getPrimaryTermId(tid);
+            if (primaryId == null || !ontology.getTermMap().containsKey(primaryId)) {
+                result.messages.add(String.format("Could not find TermId [%s] in the ontology",tid.getValue()));
+                continue;
+            }
+            if (!tid.equals(primaryId)) {
+                String msg = String.format("Replacing outdated TermId [%s] with correct primary id [%s]",tid.getValue(),primaryId.getValue() );
+                result.messages.add(msg);
+                entry = entry.withUpdatedPrimaryId(primaryId);
+                entrylist.set(i, entry);
+                result.changed=true;
+            }
+            String currentLabel = ontology.getTermMap().get(primaryId).getName();
+            if (! label.equals(currentLabel)) {
+                String msg = String.format("Replacing outdated label [%s] with current label [%s]",label,currentLabel );
+                result.messages.add(msg);
+                SmallFileEntry replacement = entry.withUpdatedLabel(currentLabel);
+                entrylist.set(i, replacement);
+                result.changed=true;
+            }
+        }
+        if (result.changed && write && !isCancelled()) {
+            result.written = writeUpdatedSmallFile(v2.getBasename(),entrylist);
+        }
+        return result;
+    }
+
+
+    /**
+     * Show the outdated TermIds and labels that were found in a new window. Must be called on the FX application
+     * thread once the worker has finished (see class documentation). The summary of a cancelled task only covers
+     * the small files that were checked before it stopped, but lists every small file that was rewritten.
+     */
+    public void showSummary() {
+        showList(messages, updatedDiseases);
+    }
 
     private void showList(List<String> messages, Set<String> diseases) {
         String diseasestring=String.format("Updates performed on %d disease files",diseases.size());
@@ -141,26 +314,29 @@ public class TermLabelUpdater {
 
 
 
-    private void writeUpdatedSmallFile(String v2basename,List<SmallFileEntry> updatedEntries) {
+    /**
+     * Write the updated small file to a temporary file in the same directory and then move it over the original
+     * (see {@link AtomicFiles#write(File, AtomicFiles.IOConsumer)}).
+     * @return true if the file was rewritten
+     */
+    private boolean writeUpdatedSmallFile(String v2basename,List<SmallFileEntry> updatedEntries) throws IOException {
         String path = String.format("%s%s%s",this.smallFilePath, File.separator,v2basename );
         File f = new File(path);
         if (! f.exists()) {
-            System.err.println(String.format("Could not find file %s",f.getAbsolutePath()));
-            return;
+            logger.error("Could not find file {}", f.getAbsolutePath());
+            return false;
         }
-        try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter(f));
+        AtomicFiles.write(f, out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
             String header = getHeaderV2();
             writer.write(header + "\n");
             for (SmallFileEntry entry : updatedEntries) {
                 String row = entry.getRow();
                 writer.write(row + "\n");
             }
-            writer.close();
-
-        } catch (IOException e){
-            e.printStackTrace();
-        }
+            writer.flush();
+        });
+        return true;
     }
 
 }
@@ -0,0 +1,109 @@
+package org.monarchinitiative.phenotefx;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.phenotefx.smallfile.SyntheticCorpus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PhenoteFXBatchTest {
+
+    @TempDir
+    Path corpusDir;
+
+    private String hpoPath;
+
+    @BeforeEach
+    void init() throws IOException {
+        hpoPath = new File(PhenoteFXBatchTest.class.getResource("/hp_small.obo").getFile()).getAbsolutePath();
+        writeSmallFile("OMIM:100000", "HP:0004322", "Short stature", "TAS");
+        // outdated label
+        writeSmallFile("OMIM:200000", "HP:0001250", "Seizures", "TAS");
+    }
+
+    private void writeSmallFile(String diseaseId, String hpoId, String label, String evidence) throws IOException {
+        SyntheticCorpus.writeSmallFile(corpusDir, diseaseId,
+                Collections.singletonList(SyntheticCorpus.row(diseaseId, hpoId, label, "", evidence)));
+    }
+
+    private JsonNode run(int expectedStatus, String... extraArgs) throws IOException {
+        String[] args = {"--dir", corpusDir.toString(), "--hpo", hpoPath, "--threads", "2",
+                "--index", corpusDir.resolve("corpus.index").toString()};
+        String[] all = Arrays.copyOf(args, args.length + extraArgs.length);
+        System.arraycopy(extraArgs, 0, all, args.length, extraArgs.length);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int status = PhenoteFXBatch.run(all, new PrintStream(bytes, true, "UTF-8"));
+        assertEquals(expectedStatus, status);
+        return new ObjectMapper().readTree(bytes.toString("UTF-8"));
+    }
+
+    @Test
+    void testOutdatedLabelsAreReported() throws IOException {
+        JsonNode report = run(PhenoteFXBatch.EXIT_OUTDATED);
+        assertEquals(2, report.get("statistics").get("smallFiles").asInt());
+        assertEquals(2, report.get("statistics").get("annotations").asInt());
+        assertEquals("OMIM-200000.tab", report.get("outdatedLabels").get("files").get(0).asText());
+        assertFalse(report.get("outdatedLabels").get("rewritten").asBoolean());
+    }
+
+    @Test
+    void testUpdateLabelsRewritesFiles() throws IOException {
+        run(PhenoteFXBatch.EXIT_OK, "--update-labels");
+        String rewritten = new String(Files.readAllBytes(corpusDir.resolve("OMIM-200000.tab")), StandardCharsets.UTF_8);
+        assertTrue(rewritten.contains("HP:0001250\tSeizure\t"));
+        JsonNode report = run(PhenoteFXBatch.EXIT_OK);
+        assertEquals(0, report.get("outdatedLabels").get("files").size());
+    }
+
+    /** The corpus directory has no omit-list.txt, which must not make the run invalid. */
+    @Test
+    void testMissingOmitListIsValid() throws IOException {
+        JsonNode report = run(PhenoteFXBatch.EXIT_OUTDATED);
+        assertEquals(0, report.get("ingestionErrors").size());
+    }
+
+    @Test
+    void testInvalidEvidenceCode() throws IOException {
+        writeSmallFile("OMIM:300000", "HP:0001252", "Hypotonia", "XYZ");
+        JsonNode report = run(PhenoteFXBatch.EXIT_INVALID);
+        assertTrue(report.get("validationErrors").has("OMIM-300000.tab"));
+    }
+
+    @Test
+    void testMissingDirectory() {
+        assertEquals(PhenoteFXBatch.EXIT_USAGE, PhenoteFXBatch.run(new String[]{"--hpo", hpoPath}, System.out));
+    }
+}
@@ -0,0 +1,100 @@
+package org.monarchinitiative.phenotefx.gui.logviewer;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogTest {
+
+    private static LogRecord record(int i) {
+        return new LogRecord(Level.INFO, "date", "context", Integer.toString(i));
+    }
+
+    @Test
+    void testCapacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(8, new Log(5).capacity());
+        assertEquals(8, new Log(8).capacity());
+    }
+
+    @Test
+    void testReadBySequence() {
+        Log log = new Log(8);
+        for (int i = 0; i < 3; i++) {
+            log.offer(record(i));
+        }
+        List<LogRecord> records = new ArrayList<>();
+        long next = log.drainTo(0, records, 100);
+        assertEquals(3, next);
+        assertEquals(3, records.size());
+        log.offer(record(3));
+        records.clear();
+        assertEquals(4, log.drainTo(next, records, 100));
+        assertEquals(1, records.size());
+        assertEquals("3", records.get(0).getMessage());
+    }
+
+    @Test
+    void testOldestRecordsAreDropped() {
+        Log log = new Log(8);
+        for (int i = 0; i < 20; i++) {
+            log.offer(record(i));
+        }
+        List<LogRecord> records = new ArrayList<>();
+        assertEquals(20, log.drainTo(0, records, 100));
+        assertEquals(8, records.size());
+        assertEquals("12", records.get(0).getMessage());
+        records.clear();
+        log.drainTo(0, records, 3);
+        assertEquals(3, records.size());
+        assertEquals("17", records.get(0).getMessage());
+    }
+
+    @Test
+    void testConcurrentReaderSeesRecordsInOrder() throws InterruptedException {
+        Log log = new Log(64);
+        int n = 200_000;
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < n; i++) {
+                log.offer(record(i));
+            }
+        });
+        writer.start();
+        List<LogRecord> records = new ArrayList<>();
+        long next = 0;
+        int last = -1;
+        while (writer.isAlive() || next < log.nextSequence()) {
+            records.clear();
+            next = log.drainTo(next, records, 64);
+            for (LogRecord r : records) {
+                int i = Integer.parseInt(r.getMessage());
+                assertTrue(i > last, "records must be read in order");
+                last = i;
+            }
+        }
+        writer.join();
+        assertEquals(n - 1, last);
+    }
+}
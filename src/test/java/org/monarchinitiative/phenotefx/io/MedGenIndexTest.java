@@ -0,0 +1,108 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MedGenIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private File writeMedGen(String... lines) throws IOException {
+        File file = dir.resolve("MedGen_HPO_OMIM_Mapping.txt.gz").toFile();
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file.toPath()))) {
+            out.write("#OMIM_CUI|MIM_number|OMIM_name|relationship|HPO_CUI|HPO_ID|HPO_name|MedGen_name|MedGen_source|STY|\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            for (String line : lines) {
+                out.write((line + "\n").getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        return file;
+    }
+
+    @Test
+    void testLookups() throws IOException {
+        File medgen = writeMedGen(
+                "C3554540|615513|ACTIVATED PI3K-DELTA SYNDROME|phenotype of|C0009806|HP:0031394|Constipation|",
+                "C3554540|615513|ACTIVATED PI3K-DELTA SYNDROME|phenotype of|C0019080|HP:0002239|Bleeding|",
+                "C0220658|119600|Cleidocranial dysplasia|phenotype of|C0008928|HP:0000347|Micrognathia|",
+                "C1234567|100100|cleidocranial dysplasia|phenotype of|C0008928|HP:0000347|Micrognathia|",
+                "CXXX|notanumber|BROKEN|",
+                "short line");
+        MedGenIndex index = MedGenIndex.open(medgen);
+        assertEquals(3, index.size());
+        assertEquals(615513, index.getMimNumber("ACTIVATED PI3K-DELTA SYNDROME"));
+        assertEquals(119600, index.getMimNumber("Cleidocranial dysplasia"));
+        assertEquals(100100, index.getMimNumber("cleidocranial dysplasia"));
+        assertEquals(-1, index.getMimNumber("Activated PI3K-delta syndrome"));
+        assertEquals(-1, index.getMimNumber("BROKEN"));
+        assertEquals("Cleidocranial dysplasia", index.getName(119600));
+        assertNull(index.getName(123));
+        Map<String, String> map = index.asMap();
+        assertEquals("MIM:615513", map.get("ACTIVATED PI3K-DELTA SYNDROME"));
+        assertFalse(map.containsKey("unknown"));
+        assertEquals(3, map.entrySet().stream().count());
+    }
+
+    @Test
+    void testCacheIsReusedAndRebuilt() throws IOException {
+        File medgen = writeMedGen("C0220658|119600|Cleidocranial dysplasia|phenotype of|C0008928|HP:0000347|Micrognathia|");
+        File cache = dir.resolve("medgen.index").toFile();
+        MedGenIndex.open(medgen, cache);
+        long built = cache.lastModified();
+        assertTrue(cache.setLastModified(built - 10_000));
+        assertEquals(119600, MedGenIndex.open(medgen, cache).getMimNumber("Cleidocranial dysplasia"));
+        assertEquals(built - 10_000, cache.lastModified(), "an up-to-date cache must not be rebuilt");
+
+        writeMedGen("C3554540|615513|ACTIVATED PI3K-DELTA SYNDROME|phenotype of|C0009806|HP:0031394|Constipation|");
+        assertTrue(medgen.setLastModified(medgen.lastModified() + 5_000));
+        MedGenIndex index = MedGenIndex.open(medgen, cache);
+        assertEquals(-1, index.getMimNumber("Cleidocranial dysplasia"));
+        assertEquals(615513, index.getMimNumber("ACTIVATED PI3K-DELTA SYNDROME"));
+    }
+
+    @Test
+    void testCorruptCacheIsRebuilt() throws IOException {
+        File medgen = writeMedGen("C0220658|119600|Cleidocranial dysplasia|phenotype of|C0008928|HP:0000347|Micrognathia|");
+        File cache = dir.resolve("medgen.index").toFile();
+        Files.write(cache.toPath(), new byte[]{1, 2, 3});
+        assertEquals(119600, MedGenIndex.open(medgen, cache).getMimNumber("Cleidocranial dysplasia"));
+    }
+
+    @Test
+    void testEmpty() {
+        assertEquals(0, MedGenIndex.empty().size());
+        assertTrue(MedGenIndex.empty().asMap().isEmpty());
+    }
+}
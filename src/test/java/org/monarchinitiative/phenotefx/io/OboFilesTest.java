@@ -0,0 +1,74 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OboFilesTest {
+
+    @TempDir
+    Path dir;
+
+    private static File hpSmall() {
+        return new File(OboFilesTest.class.getResource("/hp_small.obo").getFile());
+    }
+
+    @Test
+    void testLoadCompressedOntology() throws IOException {
+        File plain = hpSmall();
+        File compressed = dir.resolve("hp.obo.gz").toFile();
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed.toPath()))) {
+            Files.copy(plain.toPath(), out);
+        }
+        Ontology expected = OboFiles.loadOntology(plain, "HP");
+        Ontology ontology = OboFiles.loadOntology(compressed, "HP");
+        assertEquals(expected.getTermMap().keySet(), ontology.getTermMap().keySet());
+    }
+
+    @Test
+    void testLocatePrefersCompressedFile() throws IOException {
+        Files.write(dir.resolve("hp.obo"), new byte[0]);
+        assertEquals("hp.obo", OboFiles.locate(dir.toFile(), "hp.obo").getName());
+        Files.write(dir.resolve("hp.obo.gz"), new byte[0]);
+        assertEquals("hp.obo.gz", OboFiles.locate(dir.toFile(), "hp.obo").getName());
+        OboFiles.deleteUncompressed(dir.resolve("hp.obo.gz").toFile());
+        assertFalse(Files.exists(dir.resolve("hp.obo")));
+    }
+
+    @Test
+    void testZstdIsRejected() throws IOException {
+        Path zstd = dir.resolve("hp.obo.zst");
+        Files.write(zstd, new byte[]{0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0, 0});
+        IOException e = assertThrows(IOException.class, () -> OboFiles.open(zstd.toFile()));
+        assertTrue(e.getMessage().contains("zstd"));
+    }
+}
@@ -0,0 +1,97 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.data.TermSynonym;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OntologySnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File obo;
+
+    private File snapshotFile;
+
+    @BeforeEach
+    void init() throws Exception {
+        Path source = Paths.get(OntologySnapshotTest.class.getResource("/hp_small.obo").toURI());
+        obo = Files.copy(source, tempDir.resolve("hp.obo")).toFile();
+        snapshotFile = tempDir.resolve("hp.obo.snapshot").toFile();
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        Ontology parsed = OntologyLoader.loadOntology(obo, "HP");
+        new OntologySnapshot(obo, snapshotFile).save(parsed);
+        OntologySnapshot snapshot = new OntologySnapshot(obo, snapshotFile);
+        Optional<Ontology> opt = snapshot.load();
+        assertTrue(opt.isPresent());
+        assertTrue(snapshot.isCurrent());
+        Ontology restored = opt.get();
+        assertEquals(parsed.getTermMap().keySet(), restored.getTermMap().keySet());
+        assertEquals(parsed.getRootTermId(), restored.getRootTermId());
+        TermId shortStature = TermId.of("HP:0004322");
+        Term term = restored.getTermMap().get(shortStature);
+        assertEquals("Short stature", term.getName());
+        assertEquals(parsed.getTermMap().get(shortStature).getSynonyms().stream().map(TermSynonym::getValue).collect(Collectors.toList()),
+                term.getSynonyms().stream().map(TermSynonym::getValue).collect(Collectors.toList()));
+        // the synonym type is not lost ("Small stature" is a layperson synonym in the test file)
+        assertEquals(parsed.getTermMap().get(shortStature).getSynonyms().stream().map(TermSynonym::isLayperson).collect(Collectors.toList()),
+                term.getSynonyms().stream().map(TermSynonym::isLayperson).collect(Collectors.toList()));
+        assertTrue(term.getSynonyms().stream().anyMatch(TermSynonym::isLayperson));
+        // alt_id is mapped to the primary id
+        assertEquals(shortStature, restored.getPrimaryTermId(TermId.of("HP:0003498")));
+        assertEquals(parsed.getAncestorTermIds(shortStature), restored.getAncestorTermIds(shortStature));
+    }
+
+    @Test
+    void testStaleSnapshotIsIgnored() throws IOException {
+        new OntologySnapshot(obo, snapshotFile).save(OntologyLoader.loadOntology(obo, "HP"));
+        assertTrue(obo.setLastModified(obo.lastModified() - 60_000));
+        OntologySnapshot snapshot = new OntologySnapshot(obo, snapshotFile);
+        assertFalse(snapshot.load().isPresent());
+        assertFalse(snapshot.isCurrent());
+    }
+
+    @Test
+    void testCorruptSnapshotIsIgnored() throws IOException {
+        Files.write(snapshotFile.toPath(), new byte[]{1, 2, 3});
+        assertFalse(new OntologySnapshot(obo, snapshotFile).load().isPresent());
+    }
+}
@@ -0,0 +1,234 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link ResourceFetcher} against a local HTTP server that supports ETags and Range requests.
+ */
+public class ResourceFetcherTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    private HttpServer server;
+
+    private byte[] content;
+
+    /** Number of requests that returned (part of) the content. */
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            sb.append("[Term]\nid: HP:").append(i).append('\n');
+        }
+        content = sb.toString().getBytes(StandardCharsets.UTF_8);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("ETag", ETAG);
+        if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (exchange.getRequestURI().getPath().startsWith("/gzip/") && "gzip".equals(acceptEncoding)) {
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(encoded)) {
+                gzip.write(content);
+            }
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, encoded.size());
+            downloads.incrementAndGet();
+            try (OutputStream out = exchange.getResponseBody()) {
+                encoded.writeTo(out);
+            }
+            return;
+        }
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        int from = 0;
+        if (range != null && ETAG.equals(exchange.getRequestHeaders().getFirst("If-Range"))) {
+            from = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+            if (from >= content.length) {
+                exchange.getResponseHeaders().add("Content-Range", "bytes */" + content.length);
+                exchange.sendResponseHeaders(416, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Range",
+                    String.format("bytes %d-%d/%d", from, content.length - 1, content.length));
+            exchange.sendResponseHeaders(206, content.length - from);
+        } else {
+            exchange.sendResponseHeaders(200, content.length);
+        }
+        downloads.incrementAndGet();
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(content, from, content.length - from);
+        }
+    }
+
+    private String url(String name) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/" + name;
+    }
+
+    @Test
+    void testDownloadAndConditionalGet() throws IOException {
+        Path target = dir.resolve("hp.obo");
+        ResourceFetcher.Resource resource = new ResourceFetcher.Resource(url("hp.obo"), target);
+        ResourceFetcher fetcher = new ResourceFetcher();
+        List<Long> progress = new ArrayList<>();
+        ResourceFetcher.Result result = fetcher.fetch(resource, (bytes, total) -> progress.add(bytes));
+        assertEquals(ResourceFetcher.Status.DOWNLOADED, result.getStatus());
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertFalse(Files.exists(dir.resolve("hp.obo.part")));
+        assertEquals(content.length, (long) progress.get(progress.size() - 1));
+        // unchanged on the server: not downloaded again
+        assertEquals(ResourceFetcher.Status.NOT_MODIFIED, fetcher.fetch(resource, null).getStatus());
+        assertEquals(1, downloads.get());
+        // a corrupted local file is downloaded again
+        Files.write(target, "truncated".getBytes(StandardCharsets.UTF_8));
+        assertEquals(ResourceFetcher.Status.DOWNLOADED, fetcher.fetch(resource, null).getStatus());
+        assertArrayEquals(content, Files.readAllBytes(target));
+    }
+
+    @Test
+    void testResumeInterruptedDownload() throws IOException {
+        Path target = dir.resolve("hp.obo");
+        ResourceFetcher.Resource resource = new ResourceFetcher.Resource(url("hp.obo"), target);
+        ResourceFetcher fetcher = new ResourceFetcher();
+        ResourceFetcher.Result first = fetcher.fetch(resource, null);
+        // simulate a download that was interrupted after 1000 bytes
+        Files.delete(target);
+        Files.write(dir.resolve("hp.obo.part"), Arrays.copyOf(content, 1000));
+        Files.write(dir.resolve("hp.obo.download"),
+                Arrays.asList("url=" + url("hp.obo").replace(":", "\\:"), "part.etag=" + ETAG), StandardCharsets.ISO_8859_1);
+        ResourceFetcher.Result result = fetcher.fetch(resource, null);
+        assertEquals(ResourceFetcher.Status.RESUMED, result.getStatus());
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(first.getSha256(), result.getSha256());
+    }
+
+    /** A part file that already holds the whole resource (416 on resume) is discarded and downloaded again. */
+    @Test
+    void testCompletePartFileIsDownloadedAgain() throws IOException {
+        Path target = dir.resolve("hp.obo");
+        ResourceFetcher.Resource resource = new ResourceFetcher.Resource(url("hp.obo"), target);
+        Files.write(dir.resolve("hp.obo.part"), content);
+        Files.write(dir.resolve("hp.obo.download"),
+                Arrays.asList("url=" + url("hp.obo").replace(":", "\\:"), "part.etag=" + ETAG), StandardCharsets.ISO_8859_1);
+        ResourceFetcher.Result result = new ResourceFetcher().fetch(resource, null);
+        assertEquals(ResourceFetcher.Status.DOWNLOADED, result.getStatus());
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertFalse(Files.exists(dir.resolve("hp.obo.part")));
+    }
+
+    @Test
+    void testChecksumMismatchKeepsExistingFile() throws IOException {
+        Path target = dir.resolve("hp.obo");
+        Files.write(target, "old".getBytes(StandardCharsets.UTF_8));
+        ResourceFetcher.Resource resource = new ResourceFetcher.Resource(url("hp.obo"), target, "0123");
+        assertThrows(IOException.class, () -> new ResourceFetcher().fetch(resource, null));
+        assertEquals("old", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(dir.resolve("hp.obo.part")));
+    }
+
+    private byte[] gunzip(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    @Test
+    void testCompressedStorage() throws IOException {
+        ResourceFetcher fetcher = new ResourceFetcher();
+        // gzip content encoding: transferred and stored compressed
+        Path encoded = dir.resolve("encoded.obo.gz");
+        ResourceFetcher.Result result = fetcher.fetch(ResourceFetcher.Resource.compressed(url("gzip/hp.obo"), encoded), null);
+        assertArrayEquals(content, gunzip(encoded));
+        assertTrue(Files.size(encoded) < content.length);
+        // no content encoding: compressed locally
+        Path plain = dir.resolve("plain.obo.gz");
+        ResourceFetcher.Resource resource = ResourceFetcher.Resource.compressed(url("hp.obo"), plain);
+        assertEquals(result.getSha256(), fetcher.fetch(resource, null).getSha256());
+        assertArrayEquals(content, gunzip(plain));
+        // the checksum of the uncompressed content is verified before the conditional GET
+        assertEquals(ResourceFetcher.Status.NOT_MODIFIED, fetcher.fetch(resource, null).getStatus());
+    }
+
+    @Test
+    void testFetchAll() throws InterruptedException, IOException {
+        List<ResourceFetcher.Resource> resources = new ArrayList<>();
+        for (String name : Arrays.asList("hp.obo", "mondo.obo", "ecto.obo", "medgen.txt.gz")) {
+            resources.add(new ResourceFetcher.Resource(url(name), dir.resolve(name)));
+        }
+        resources.add(new ResourceFetcher.Resource("http://127.0.0.1:1/missing", dir.resolve("missing")));
+        List<ResourceFetcher.Result> results = new ResourceFetcher().fetchAll(resources, 4);
+        assertEquals(5, results.size());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(results.get(i).isSuccess());
+            assertArrayEquals(content, Files.readAllBytes(resources.get(i).getTarget()));
+        }
+        assertFalse(results.get(4).isSuccess());
+        assertNotNull(results.get(4).getError());
+    }
+}
@@ -0,0 +1,108 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+import org.monarchinitiative.phenotefx.smallfile.SmallFile;
+import org.monarchinitiative.phenotefx.smallfile.SmallFileEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SmallfileParserTest {
+
+    private static Ontology ontology;
+
+    @TempDir
+    static Path dir;
+
+    private static File smallFile;
+
+    private static File commentedFile;
+
+    @BeforeAll
+    static void init() throws IOException {
+        File hpo = new File(SmallfileParserTest.class.getResource("/hp_small.obo").getFile());
+        ontology = OntologyLoader.loadOntology(hpo, "HP");
+        List<String> lines = Arrays.asList(SmallFileEntry.getHeaderV2(),
+                row("HP:0004322", "Short stature", "HP:0003577", "Congenital onset", "1/3"),
+                row("HP:0001250", "Seizure", "", "", ""),
+                row("HP:0001252", "Hypotonia", "", "", "HP:0040281"));
+        smallFile = Files.write(dir.resolve("OMIM-100000.tab"), lines, StandardCharsets.UTF_8).toFile();
+        List<String> commented = new ArrayList<>(lines);
+        commented.add(2, "#a comment");
+        commentedFile = Files.write(dir.resolve("OMIM-200000.tab"), commented, StandardCharsets.UTF_8).toFile();
+    }
+
+    private static String row(String hpoId, String label, String onsetId, String onsetName, String frequency) {
+        return String.join("\t", "OMIM:100000", "Example disease", hpoId, label, onsetId, onsetName, frequency,
+                "", "", "", "", "PMID:123", "PCS", "HPO:probinson[2020-01-01]");
+    }
+
+    @Test
+    void testParsePathsAgree() throws PhenoteFxException {
+        List<PhenoRow> rows = new SmallfileParser(smallFile, ontology).parse();
+        Optional<SmallFile> opt = new SmallfileParser(smallFile, ontology).parseV2SmallFile();
+        assertTrue(opt.isPresent());
+        List<SmallFileEntry> entries = opt.get().getOriginalEntryList();
+        assertEquals(3, rows.size());
+        assertEquals(3, entries.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(rows.get(i).getPhenotypeID(), entries.get(i).getPhenotypeId().getValue());
+            assertEquals(rows.get(i).getFrequency(), entries.get(i).getFrequencyModifier());
+        }
+        assertEquals("HP:0003577", entries.get(0).getAgeOfOnsetId());
+    }
+
+    @Test
+    void testEarlyExit() throws PhenoteFxException, IOException {
+        List<TermId> seen = new ArrayList<>();
+        new SmallfileParser(smallFile, ontology).read(row -> {
+            seen.add(row.getPhenotypeId());
+            return !row.getPhenotypeName().equals("Seizure");
+        });
+        assertEquals(Arrays.asList(TermId.of("HP:0004322"), TermId.of("HP:0001250")), seen);
+    }
+
+    @Test
+    void testCommentLines() throws PhenoteFxException {
+        Optional<SmallFile> opt = new SmallfileParser(commentedFile, ontology).parseV2SmallFile();
+        assertTrue(opt.isPresent());
+        assertEquals(3, opt.get().getNumberOfAnnotations());
+        assertThrows(PhenoteFxException.class, () -> new SmallfileParser(commentedFile, ontology).parse());
+    }
+}
@@ -0,0 +1,64 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TabTokenizerTest {
+
+    private final TabTokenizer tokenizer = new TabTokenizer(4, 0, 2);
+
+    @Test
+    void testSameFieldsAsSplit() {
+        String[] lines = {"a\tb\tc\td", "a\t\tc\td", "a\tb\t\t", "\t\t\td", "", "a", "a\tb\tc\td\te\tf"};
+        for (String line : lines) {
+            String[] expected = line.split("\t");
+            String[] fields = new String[4];
+            int n = tokenizer.tokenize(line, fields);
+            assertEquals(expected.length, n, line);
+            for (int i = 0; i < Math.min(n, fields.length); i++) {
+                assertEquals(expected[i], fields[i], line);
+            }
+        }
+    }
+
+    @Test
+    void testInterning() {
+        String[] first = new String[4];
+        String[] second = new String[4];
+        tokenizer.tokenize("OMIM:600123\tdescription\tTAS\t", first);
+        tokenizer.tokenize(new String("OMIM:600123\tdescription\tTAS\t"), second);
+        assertSame(first[0], second[0]);
+        assertSame(first[2], second[2]);
+        // empty fields share one canonical String object
+        assertSame(first[3], second[3]);
+        assertEquals(Arrays.asList("OMIM:600123", "description", "TAS", ""), Arrays.asList(second));
+    }
+
+    @Test
+    void testTermIdsAreShared() {
+        assertSame(TabTokenizer.termId("HP:0001250"), TabTokenizer.termId(new String("HP:0001250")));
+    }
+}
@@ -0,0 +1,84 @@
+package org.monarchinitiative.phenotefx.model;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FractionIndexTest {
+
+    private static List<String> strings(List<FractionIndex.Fraction> fractions) {
+        return fractions.stream().map(FractionIndex.Fraction::toString).collect(Collectors.toList());
+    }
+
+    @Test
+    void testNearest() {
+        FractionIndex index = FractionIndex.factory();
+        // exact matches first (smaller denominator first), then the closest fractions
+        assertEquals(Arrays.asList("27/50", "54/100", "47/87"), strings(index.nearest(54, 3, 3)));
+        assertTrue(index.nearest(54, 3, 1000).stream().allMatch(f -> Math.abs(f.getPercentage() - 54) <= 3));
+        assertTrue(index.nearest(54, 0.001, 10).size() >= 2);
+    }
+
+    @Test
+    void testNearestEqualsBruteForce() {
+        FractionIndex index = new FractionIndex(40, Collections.emptyList());
+        assertEquals(40 * 41 / 2, index.size());
+        for (double p : new double[]{0.5, 12.5, 33.3, 66.7, 99.9}) {
+            Set<String> expected = new HashSet<>();
+            for (int m = 1; m <= 40; m++) {
+                for (int n = 1; n <= m; n++) {
+                    if (Math.abs(100.0 * n / m - p) <= 2) expected.add(n + "/" + m);
+                }
+            }
+            assertEquals(expected, new HashSet<>(strings(index.nearest(p, 2, Integer.MAX_VALUE))));
+        }
+    }
+
+    @Test
+    void testListedFractionsAboveBound() {
+        List<FractionIndex.Fraction> listed = Arrays.asList(new FractionIndex.Fraction(70, 130),
+                new FractionIndex.Fraction(70, 130), new FractionIndex.Fraction(1, 2));
+        FractionIndex index = new FractionIndex(10, listed);
+        assertEquals(56, index.size());
+        assertEquals("70/130", index.nearest(53.85, 0.01, 1).get(0).toString());
+    }
+
+    @Test
+    void testNearestForDenominator() {
+        assertEquals("20/37", FractionIndex.nearest(54, 37).toString());
+        assertEquals("0/37", FractionIndex.nearest(0.1, 37).toString());
+        assertEquals("1234/2000", FractionIndex.nearest(61.7, 2000).toString());
+    }
+
+    @Test
+    void testParsePercentage() {
+        assertEquals(Optional.of(54.0), FractionIndex.parsePercentage("54%"));
+        assertEquals(Optional.of(54.5), FractionIndex.parsePercentage(" 54.5 % "));
+        assertFalse(FractionIndex.parsePercentage("7/13").isPresent());
+        assertFalse(FractionIndex.parsePercentage("HP:0040283").isPresent());
+        assertFalse(FractionIndex.parsePercentage("120%").isPresent());
+    }
+}
@@ -0,0 +1,116 @@
+package org.monarchinitiative.phenotefx.model;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.io.OntologySnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.getDescendents;
+
+public class OntologyClosureTest {
+
+    @TempDir
+    static Path tempDir;
+
+    private static File obo;
+
+    private static Ontology ontology;
+
+    private static final TermId SHORT_STATURE = TermId.of("HP:0004322");
+    private static final TermId NERVOUS_SYSTEM = TermId.of("HP:0000707");
+    private static final TermId PHENOTYPIC_ABNORMALITY = TermId.of("HP:0000118");
+    private static final TermId CLINICAL_MODIFIER = TermId.of("HP:0012823");
+
+    /** Give Short stature a second parent, so that the hierarchy is not a tree. */
+    @BeforeAll
+    static void init() throws Exception {
+        Path source = Paths.get(OntologyClosureTest.class.getResource("/hp_small.obo").toURI());
+        String text = new String(Files.readAllBytes(source), StandardCharsets.UTF_8)
+                .replace("is_a: HP:0001507 ! Growth abnormality",
+                        "is_a: HP:0001507 ! Growth abnormality\nis_a: HP:0000707 ! Abnormality of the nervous system");
+        obo = Files.write(tempDir.resolve("hp.obo"), text.getBytes(StandardCharsets.UTF_8)).toFile();
+        ontology = OntologyLoader.loadOntology(obo, "HP");
+    }
+
+    /** The closure must agree with a graph traversal for every pair of terms. */
+    @Test
+    void testAgreesWithGraphTraversal() {
+        OntologyClosure closure = OntologyClosure.of(ontology);
+        assertEquals(15, closure.size());
+        for (TermId ancestor : ontology.getNonObsoleteTermIds()) {
+            Set<TermId> expected = new HashSet<>(getDescendents(ontology, ancestor));
+            expected.remove(ancestor);
+            assertEquals(expected, new HashSet<>(closure.getDescendants(ancestor)), ancestor.getValue());
+            for (TermId descendant : ontology.getNonObsoleteTermIds()) {
+                assertEquals(expected.contains(descendant), closure.isAncestorOf(ancestor, descendant),
+                        ancestor.getValue() + " " + descendant.getValue());
+            }
+        }
+    }
+
+    @Test
+    void testQueries() {
+        OntologyClosure closure = OntologyClosure.of(ontology);
+        assertTrue(closure.isAncestorOf(NERVOUS_SYSTEM, SHORT_STATURE));
+        assertTrue(closure.isAncestorOf(PHENOTYPIC_ABNORMALITY, SHORT_STATURE));
+        assertFalse(closure.isAncestorOf(SHORT_STATURE, SHORT_STATURE));
+        assertTrue(closure.isInSubtree(SHORT_STATURE, SHORT_STATURE));
+        assertFalse(closure.isInSubtree(SHORT_STATURE, CLINICAL_MODIFIER));
+        // the alt_id of Short stature
+        assertTrue(closure.isAncestorOf(NERVOUS_SYSTEM, TermId.of("HP:0003498")));
+        assertEquals(4, closure.getAncestors(SHORT_STATURE).size());
+        assertThrows(IllegalArgumentException.class, () -> closure.isAncestorOf(TermId.of("HP:9999999"), SHORT_STATURE));
+    }
+
+    @Test
+    void testClosureIsPersistedWithSnapshot() throws IOException {
+        File snapshotFile = tempDir.resolve("hp.obo.snapshot").toFile();
+        OntologyClosure closure = OntologyClosure.of(ontology);
+        new OntologySnapshot(obo, snapshotFile).saveClosure(closure);
+        OntologySnapshot snapshot = new OntologySnapshot(obo, snapshotFile);
+        Optional<OntologyClosure> restored = snapshot.loadClosure();
+        assertTrue(restored.isPresent());
+        assertTrue(snapshot.isClosureCurrent());
+        for (TermId t : ontology.getNonObsoleteTermIds()) {
+            assertEquals(closure.getAncestors(t), restored.get().getAncestors(t));
+            assertEquals(closure.getDescendants(t), restored.get().getDescendants(t));
+        }
+        assertTrue(restored.get().isAncestorOf(NERVOUS_SYSTEM, TermId.of("HP:0003498")));
+        assertTrue(obo.setLastModified(obo.lastModified() - 60_000));
+        assertFalse(new OntologySnapshot(obo, snapshotFile).loadClosure().isPresent());
+    }
+}
@@ -0,0 +1,90 @@
+package org.monarchinitiative.phenotefx.search;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiseaseIndexTest {
+
+    private static DiseaseIndex index;
+
+    @BeforeAll
+    static void setup() {
+        Map<String, String> omim = new HashMap<>();
+        omim.put("ACTIVATED PI3K-DELTA SYNDROME", "MIM:615513");
+        omim.put("Cleidocranial dysplasia", "MIM:119600");
+        omim.put("Marfan syndrome", "MIM:154700");
+        Map<String, String> mondo = new HashMap<>();
+        mondo.put("cleidocranial dysplasia", "MONDO:0007336");
+        mondo.put("Marfan syndrome", "MONDO:0007947");
+        mondo.put("neonatal Marfan syndrome", "MONDO:0000001");
+        index = new DiseaseIndex(Arrays.asList(omim, mondo, omim));
+    }
+
+    private static List<String> ids(List<DiseaseIndex.Entry> entries) {
+        return entries.stream().map(DiseaseIndex.Entry::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void testLookups() {
+        assertEquals(6, index.size());
+        assertEquals("Marfan syndrome", index.getName("OMIM:154700").orElse(null));
+        assertEquals("Marfan syndrome", index.getName("MIM:154700").orElse(null));
+        assertEquals("Marfan syndrome", index.getName("154700").orElse(null));
+        assertFalse(index.getName("OMIM:1").isPresent());
+        assertEquals(new HashSet<>(Arrays.asList("OMIM:119600", "MONDO:0007336")),
+                new HashSet<>(index.getIds("CLEIDOCRANIAL DYSPLASIA")));
+        assertTrue(index.getIds("Cleidocranial").isEmpty());
+    }
+
+    @Test
+    void testPrefixAndSubstringSearch() {
+        assertEquals(Arrays.asList("OMIM:119600", "MONDO:0007336"), ids(index.prefixSearch("cleido", 10)));
+        assertEquals(Collections.singletonList("OMIM:615513"), ids(index.prefixSearch("Activated", 10)));
+        assertEquals(4, index.substringSearch("syndrome", 10).size());
+        assertEquals(1, index.substringSearch("syndrome", 1).size());
+        // the separator between names must not let a query span two names
+        assertTrue(index.substringSearch("syndrome\nmarfan", 10).isEmpty());
+    }
+
+    @Test
+    void testSearchRanksIdThenPrefixThenSubstring() {
+        List<String> marfan = ids(index.search("marfan", 10));
+        assertEquals(3, marfan.size());
+        assertEquals("MONDO:0000001", marfan.get(2), "the substring match comes after the prefix matches");
+        assertEquals("OMIM:154700", ids(index.search("154700", 10)).get(0));
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    void testAnnotationFileName() {
+        assertEquals("OMIM-615513.tab", DiseaseIndex.annotationFileName("MIM:615513"));
+        assertEquals("MONDO-0007947.tab", index.getIds("marfan syndrome").stream()
+                .filter(id -> id.startsWith("MONDO")).map(DiseaseIndex::annotationFileName).findFirst().orElse(null));
+        assertEquals(0, DiseaseIndex.empty().size());
+    }
+}
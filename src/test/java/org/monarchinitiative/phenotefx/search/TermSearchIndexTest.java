@@ -0,0 +1,145 @@
+package org.monarchinitiative.phenotefx.search;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TermSearchIndexTest {
+
+    private static TermSearchIndex index;
+
+    @BeforeAll
+    static void init() {
+        Map<String, String> synonym2label = new HashMap<>();
+        for (String label : Arrays.asList("Seizure", "Short stature", "Hypotonia", "Generalized hypotonia",
+                "Abnormal heart morphology", "Abnormality of the nervous system", "Focal seizure")) {
+            synonym2label.put(label, label);
+        }
+        synonym2label.put("Seizures", "Seizure");
+        synonym2label.put("Muscle hypotonia", "Hypotonia");
+        synonym2label.put("Small stature", "Short stature");
+        synonym2label.put("Decreased body height", "Short stature");
+        index = new TermSearchIndex(synonym2label);
+    }
+
+    @Test
+    void testRanking() {
+        // exact label, then label prefix, then other label matches, then synonyms
+        assertEquals(Arrays.asList("Seizure", "Focal seizure", "Seizures"), index.search("seizur", 10));
+        assertEquals(Collections.singletonList("Seizures"), index.search("seizures", 10));
+        assertEquals(Arrays.asList("Hypotonia", "Generalized hypotonia", "Muscle hypotonia"), index.search("hypo", 10));
+    }
+
+    @Test
+    void testAllWordsMustMatch() {
+        assertEquals(Collections.singletonList("Abnormal heart morphology"), index.search("abn hea", 10));
+        assertEquals(Arrays.asList("Abnormal heart morphology", "Abnormality of the nervous system"),
+                index.search("Abnorm", 10));
+        assertTrue(index.search("abn xyz", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    void testOfLabels() {
+        TermSearchIndex diseases = TermSearchIndex.ofLabels(Arrays.asList("Marfan syndrome", "Marfanoid habitus",
+                "Loeys-Dietz syndrome"));
+        assertEquals(3, diseases.size());
+        assertEquals(Arrays.asList("Marfan syndrome", "Loeys-Dietz syndrome"), diseases.search("synd", 10));
+        assertEquals(Collections.singletonList("Loeys-Dietz syndrome"), diseases.search("dietz", 10));
+        assertTrue(TermSearchIndex.empty().suggest("marfan", 10).isEmpty());
+    }
+
+    @Test
+    void testLimit() {
+        assertEquals(Collections.singletonList("Hypotonia"), index.search("hypo", 1));
+    }
+
+    @Test
+    void testEqualsLinearScan() {
+        // every result of a naive scan over all entries for a one-word prefix must be found
+        List<String> all = Arrays.asList("Seizure", "Short stature", "Hypotonia", "Generalized hypotonia",
+                "Abnormal heart morphology", "Abnormality of the nervous system", "Focal seizure",
+                "Seizures", "Muscle hypotonia", "Small stature", "Decreased body height");
+        for (String q : Arrays.asList("s", "st", "h", "ab", "of")) {
+            Set<String> expected = new HashSet<>();
+            for (String s : all) {
+                for (String w : s.toLowerCase().split(" ")) {
+                    if (w.startsWith(q)) expected.add(s);
+                }
+            }
+            assertEquals(expected, new HashSet<>(index.search(q, 100)), q);
+        }
+    }
+
+    @Test
+    void testFuzzySearch() {
+        assertEquals(Arrays.asList("Hypotonia", "Generalized hypotonia", "Muscle hypotonia"),
+                index.fuzzySearch("hypotonai", 10));
+        assertEquals(Collections.singletonList("Short stature"), index.fuzzySearch("shrt statue", 10));
+        // short words must match exactly
+        assertTrue(index.fuzzySearch("xy", 10).isEmpty());
+        assertTrue(index.search("hypotonai", 10).isEmpty());
+    }
+
+    @Test
+    void testSuggestAddsFuzzyMatches() {
+        List<String> suggestions = index.suggest("seizur", 10);
+        // exact prefix matches first, then labels with a similar word
+        assertEquals(Arrays.asList("Seizure", "Focal seizure", "Seizures"), suggestions.subList(0, 3));
+        assertEquals(Arrays.asList("Hypotonia", "Generalized hypotonia", "Muscle hypotonia"), index.suggest("hypotonai", 10));
+    }
+
+    @Test
+    void testLevenshtein() {
+        assertEquals(0, TermSearchIndex.levenshtein("seizure", "seizure"));
+        assertEquals(2, TermSearchIndex.levenshtein("hypotonai", "hypotonia"));
+        assertEquals(3, TermSearchIndex.levenshtein("kitten", "sitting"));
+        assertEquals(4, TermSearchIndex.levenshtein("", "abcd"));
+    }
+
+    @Test
+    void testFuzzySearchEqualsBruteForce() {
+        Random random = new Random(17);
+        Map<String, String> synonym2label = new HashMap<>();
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int len = 3 + random.nextInt(6);
+            for (int j = 0; j < len; j++) sb.append((char) ('a' + random.nextInt(6)));
+            labels.add(sb.toString());
+            synonym2label.put(sb.toString(), sb.toString());
+        }
+        TermSearchIndex randomIndex = new TermSearchIndex(synonym2label);
+        for (String q : Arrays.asList("abcdef", "fedcba", "aaaa", "cab", "bbbbbbbb")) {
+            int radius = q.length() <= 4 ? 1 : 2;
+            Set<String> expected = new HashSet<>();
+            for (String label : labels) {
+                if (TermSearchIndex.levenshtein(q, label) <= radius || label.startsWith(q)) expected.add(label);
+            }
+            assertEquals(expected, new HashSet<>(randomIndex.fuzzySearch(q, 10000)), q);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.monarchinitiative.phenotefx.smallfile;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CorpusIndexTest {
+
+    private static Ontology ontology;
+
+    @TempDir
+    Path corpusDir;
+
+    @TempDir
+    Path indexDir;
+
+    private File indexFile;
+
+    @BeforeAll
+    static void loadOntology() {
+        File hpo = new File(CorpusIndexTest.class.getResource("/hp_small.obo").getFile());
+        ontology = OntologyLoader.loadOntology(hpo, "HP");
+    }
+
+    @BeforeEach
+    void init() throws IOException {
+        indexFile = indexDir.resolve("corpus.index").toFile();
+        writeSmallFile("OMIM:100000", "HP:0004322", "Short stature");
+        writeSmallFile("OMIM:200000", "HP:0001250", "Seizure");
+        writeSmallFile("OMIM:300000", "HP:0001252", "Hypotonia");
+    }
+
+    private void writeSmallFile(String diseaseId, String hpoId, String label) throws IOException {
+        SyntheticCorpus.writeSmallFile(corpusDir, diseaseId,
+                Collections.singletonList(SyntheticCorpus.row(diseaseId, hpoId, label, "1/2", "TAS")));
+    }
+
+    private SmallFileIngestor ingest() {
+        return new SmallFileIngestor(corpusDir.toString(), ontology, 2, new CorpusIndex(corpusDir.toFile(), ontology, indexFile));
+    }
+
+    private static List<String> rows(SmallFileIngestor ingestor) {
+        return ingestor.getSmallFileEntries().stream()
+                .flatMap(sf -> sf.getOriginalEntryList().stream())
+                .map(SmallFileEntry::getRow)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void testUnchangedFilesAreReused() {
+        SmallFileIngestor first = ingest();
+        assertEquals(0, first.getReusedFileCount());
+        assertTrue(indexFile.exists());
+        SmallFileIngestor second = ingest();
+        assertEquals(3, second.getReusedFileCount());
+        assertEquals(rows(first), rows(second));
+        assertEquals(first.getTotalAnnotationLines(), second.getTotalAnnotationLines());
+    }
+
+    @Test
+    void testModifiedAddedAndDeletedFiles() throws IOException {
+        ingest();
+        Files.write(corpusDir.resolve("OMIM-100000.tab"),
+                Collections.singletonList("OMIM:100000\tDisease OMIM:100000\tHP:0001250\tSeizure\t\t\t\t\t\t\t\tOMIM:100000\tTAS\tHPO:probinson[2020-01-01]"),
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        writeSmallFile("OMIM:400000", "HP:0000707", "Abnormality of the nervous system");
+        Files.delete(corpusDir.resolve("OMIM-300000.tab"));
+        SmallFileIngestor ingestor = ingest();
+        assertEquals(1, ingestor.getReusedFileCount());
+        assertEquals(3, ingestor.getSmallFileEntries().size());
+        assertEquals(4, ingestor.getTotalAnnotationLines());
+        CorpusIndex index = new CorpusIndex(corpusDir.toFile(), ontology, indexFile);
+        index.load();
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void testTouchedFileIsRecognizedByHash() throws IOException {
+        ingest();
+        File f = corpusDir.resolve("OMIM-200000.tab").toFile();
+        assertTrue(f.setLastModified(f.lastModified() - 60_000));
+        assertEquals(3, ingest().getReusedFileCount());
+    }
+}
@@ -0,0 +1,95 @@
+package org.monarchinitiative.phenotefx.smallfile;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CorpusStoreTest {
+
+    private static List<SmallFile> smallFiles;
+
+    private static CorpusStore store;
+
+    @BeforeAll
+    static void init() {
+        smallFiles = new ArrayList<>();
+        smallFiles.add(smallFile("OMIM:100000", "HP:0004322", "HP:0001250"));
+        smallFiles.add(new SmallFile("OMIM-150000.tab", Collections.emptyList()));
+        smallFiles.add(smallFile("OMIM:200000", "HP:0001250", "HP:0001252", "HP:0000707"));
+        store = CorpusStore.of(smallFiles);
+    }
+
+    private static SmallFile smallFile(String diseaseId, String... hpoIds) {
+        List<SmallFileEntry> entries = new ArrayList<>();
+        for (String id : hpoIds) {
+            entries.add(new SmallFileEntry.Builder(diseaseId, "Disease " + diseaseId, TermId.of(id), "label " + id,
+                    "TAS", diseaseId, "HPO:probinson[2020-01-01]")
+                    .frequencyString(id.endsWith("0") ? "1/2" : "")
+                    .build());
+        }
+        return new SmallFile(diseaseId.replace(':', '-') + ".tab", entries);
+    }
+
+    @Test
+    void testRowsMatchEntries() {
+        assertEquals(5, store.size());
+        int row = 0;
+        for (SmallFile sf : smallFiles) {
+            for (SmallFileEntry entry : sf.getOriginalEntryList()) {
+                SmallFileEntry restored = store.row(row++).toSmallFileEntry();
+                assertEquals(entry.getRow(), restored.getRow());
+            }
+        }
+        for (int f = 0; f < smallFiles.size(); f++) {
+            assertEquals(smallFiles.get(f).getBasename(), store.getSmallFile(f).getBasename());
+            assertEquals(smallFiles.get(f).getNumberOfAnnotations(), store.getRowCount(f));
+        }
+    }
+
+    @Test
+    void testDictionaryEncoding() {
+        assertEquals(2, store.getCardinality(CorpusStore.Column.DISEASE_NAME));
+        assertEquals(1, store.getCardinality(CorpusStore.Column.EVIDENCE));
+        assertEquals(4, store.getTermCount());
+        int[] counts = store.countRowsByTerm();
+        assertEquals(2, counts[store.getTermCode(1)]);
+        assertEquals(TermId.of("HP:0001250"), store.getTerm(store.getTermCode(1)));
+        // the two rows of the first disease share one code for the disease name
+        assertEquals(store.getCode(CorpusStore.Column.DISEASE_NAME, 0), store.getCode(CorpusStore.Column.DISEASE_NAME, 1));
+    }
+
+    @Test
+    void testFileOfRow() {
+        assertEquals(Arrays.asList(0, 0, 2, 2, 2),
+                Arrays.asList(store.getFileOfRow(0), store.getFileOfRow(1), store.getFileOfRow(2),
+                        store.getFileOfRow(3), store.getFileOfRow(4)));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.row(5));
+    }
+}
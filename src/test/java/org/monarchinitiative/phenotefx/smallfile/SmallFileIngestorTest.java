@@ -0,0 +1,146 @@
+package org.monarchinitiative.phenotefx.smallfile;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SmallFileIngestorTest {
+
+    private static Ontology ontology;
+
+    @TempDir
+    static Path corpusDir;
+
+    @BeforeAll
+    static void init() throws IOException {
+        File hpo = new File(SmallFileIngestorTest.class.getResource("/hp_small.obo").getFile());
+        ontology = OntologyLoader.loadOntology(hpo, "HP");
+        writeSmallFile("OMIM:300000", 3);
+        writeSmallFile("OMIM:100000", 2);
+        writeSmallFile("OMIM:200000", 1);
+        writeSmallFile("OMIM:400000", 5);
+        // omitted via omit-list.txt
+        writeSmallFile("OMIM:500000", 4);
+        Files.write(corpusDir.resolve("omit-list.txt"),
+                Arrays.asList("#DiseaseId\tReason", "OMIM:500000\ttrait"), StandardCharsets.UTF_8);
+        // malformed: wrong number of fields
+        Files.write(corpusDir.resolve("OMIM-150000.tab"),
+                Arrays.asList(SmallFileEntry.getHeaderV2(), "OMIM:150000\tbad line"), StandardCharsets.UTF_8);
+    }
+
+    private static void writeSmallFile(String diseaseId, int n) throws IOException {
+        writeSmallFile(corpusDir, diseaseId, n);
+    }
+
+    private static void writeSmallFile(Path dir, String diseaseId, int n) throws IOException {
+        String[] hpoIds = {"HP:0004322", "HP:0001252", "HP:0001250", "HP:0000007", "HP:0001507"};
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            rows.add(SyntheticCorpus.row(diseaseId, hpoIds[i], "label", "", "TAS"));
+        }
+        SyntheticCorpus.writeSmallFile(dir, diseaseId, rows);
+    }
+
+    private static List<String> basenames(SmallFileIngestor ingestor) {
+        return ingestor.getSmallFileEntries().stream().map(SmallFile::getBasename).collect(Collectors.toList());
+    }
+
+    @Test
+    void testSequentialIngestion() {
+        SmallFileIngestor ingestor = new SmallFileIngestor(corpusDir.toString(), ontology, 1);
+        assertEquals(Arrays.asList("OMIM-100000.tab", "OMIM-200000.tab", "OMIM-300000.tab", "OMIM-400000.tab"),
+                basenames(ingestor));
+        assertEquals(11, ingestor.getTotalAnnotationLines());
+        assertEquals(1, ingestor.getErrors().size());
+    }
+
+    @Test
+    void testParallelIngestionIsDeterministic() {
+        SmallFileIngestor sequential = new SmallFileIngestor(corpusDir.toString(), ontology, 1);
+        for (int i = 0; i < 5; i++) {
+            SmallFileIngestor parallel = new SmallFileIngestor(corpusDir.toString(), ontology, 4);
+            assertEquals(basenames(sequential), basenames(parallel));
+            assertEquals(sequential.getErrors(), parallel.getErrors());
+            assertEquals(sequential.getTotalAnnotationLines(), parallel.getTotalAnnotationLines());
+        }
+    }
+
+    /** An unexpected exception while reading one small file must not drop the files that come after it. */
+    @Test
+    void testUnexpectedExceptionOnlySkipsOneFile(@TempDir Path indexDir) {
+        CorpusIndex failing = new CorpusIndex(corpusDir.toFile(), ontology, indexDir.resolve("corpus.index").toFile()) {
+            @Override
+            Optional<Entry> lookup(Path path) throws IOException {
+                if (path.getFileName().toString().equals("OMIM-200000.tab")) {
+                    throw new IllegalStateException("boom");
+                }
+                return super.lookup(path);
+            }
+        };
+        SmallFileIngestor ingestor = new SmallFileIngestor(corpusDir.toString(), ontology, 2, failing);
+        assertEquals(Arrays.asList("OMIM-100000.tab", "OMIM-300000.tab", "OMIM-400000.tab"), basenames(ingestor));
+        assertEquals(2, ingestor.getErrors().size());
+        assertTrue(ingestor.getErrors().stream().anyMatch(e -> e.contains("OMIM-200000.tab") && e.contains("boom")));
+    }
+
+    /** After an interruption, the summary counts only the annotations of the small files that were returned. */
+    @Test
+    void testInterruptedIngestionCountsOnlyCollectedFiles() {
+        Thread.currentThread().interrupt();
+        SmallFileIngestor ingestor;
+        try {
+            ingestor = new SmallFileIngestor(corpusDir.toString(), ontology, 2);
+        } finally {
+            // the interrupt status is kept (and cleared here for the other tests)
+            assertTrue(Thread.interrupted());
+        }
+        int annotations = ingestor.getSmallFileEntries().stream().mapToInt(SmallFile::getNumberOfAnnotations).sum();
+        assertEquals(annotations, ingestor.getTotalAnnotationLines());
+    }
+
+    /** A directory without omit-list.txt has no omitted entries, which is not an error. */
+    @Test
+    void testMissingOmitListIsNotAnError() throws IOException {
+        Path dir = Files.createDirectory(corpusDir.resolve("without-omit-list"));
+        writeSmallFile(dir, "OMIM:100000", 2);
+        SmallFileIngestor ingestor = new SmallFileIngestor(dir.toString(), ontology, 1);
+        assertEquals(Arrays.asList("OMIM-100000.tab"), basenames(ingestor));
+        assertTrue(ingestor.getErrors().isEmpty());
+    }
+}
@@ -0,0 +1,100 @@
+package org.monarchinitiative.phenotefx.smallfile;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes a directory of V2 small files with random annotations to HPO terms of a given ontology, for benchmarks
+ * of the ingestion of the small file corpus. The corpus is reproducible (the random generator is seeded). The
+ * tests use {@link #writeSmallFile(Path, String, List)} and {@link #row(String, String, String, String, String)}
+ * to write small files with given annotations.
+ */
+public final class SyntheticCorpus {
+
+    private SyntheticCorpus() {
+    }
+
+    /**
+     * @param dir directory to write to
+     * @param ontology the HPO terms of the annotations are taken from this ontology
+     * @param files number of small files
+     * @param annotationsPerFile number of annotation lines per small file
+     * @param omitted number of additional small files that are listed in omit-list.txt
+     */
+    public static void write(Path dir, Ontology ontology, int files, int annotationsPerFile, int omitted)
+            throws IOException {
+        List<TermId> terms = new ArrayList<>(ontology.getNonObsoleteTermIds());
+        terms.sort(TermId::compareTo);
+        Random random = new Random(42);
+        List<String> omitList = new ArrayList<>();
+        omitList.add("#DiseaseId\tReason");
+        for (int f = 0; f < files + omitted; f++) {
+            String diseaseId = "OMIM:" + (100000 + f);
+            if (f >= files) {
+                omitList.add(diseaseId + "\tsynthetic");
+            }
+            Path path = dir.resolve("OMIM-" + (100000 + f) + ".tab");
+            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                writer.write(SmallFileEntry.getHeaderV2());
+                writer.write('\n');
+                for (int i = 0; i < annotationsPerFile; i++) {
+                    TermId tid = terms.get(random.nextInt(terms.size()));
+                    writer.write(String.join("\t", diseaseId, "Synthetic disease " + f, tid.getValue(),
+                            ontology.getTermMap().get(tid).getName(), "", "", "", "", "", "", "",
+                            "PMID:" + (1000 + i), "PCS", "HPO:probinson[2020-01-01]"));
+                    writer.write('\n');
+                }
+            }
+        }
+        Files.write(dir.resolve("omit-list.txt"), omitList, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return a V2 annotation line of a disease (with the disease id as publication and a fixed biocuration)
+     */
+    public static String row(String diseaseId, String hpoId, String label, String frequency, String evidence) {
+        return String.join("\t", diseaseId, "Disease " + diseaseId, hpoId, label, "", "", frequency,
+                "", "", "", "", diseaseId, evidence, "HPO:probinson[2020-01-01]");
+    }
+
+    /**
+     * Write the small file of a disease (e.g., OMIM-100000.tab for OMIM:100000) with the V2 header.
+     * @param rows annotation lines, see {@link #row(String, String, String, String, String)}
+     * @return path of the small file
+     */
+    public static Path writeSmallFile(Path dir, String diseaseId, List<String> rows) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(SmallFileEntry.getHeaderV2());
+        lines.addAll(rows);
+        return Files.write(dir.resolve(diseaseId.replace(':', '-') + ".tab"), lines, StandardCharsets.UTF_8);
+    }
+}
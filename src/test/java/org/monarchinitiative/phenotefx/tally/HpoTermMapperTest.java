@@ -0,0 +1,124 @@
+package org.monarchinitiative.phenotefx.tally;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenotefx.search.TermSearchIndex;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HpoTermMapperTest {
+
+    private HpoTermMapper mapper;
+
+    @BeforeEach
+    void init() {
+        Map<String, String> synonym2label = new HashMap<>();
+        Map<String, String> label2id = new HashMap<>();
+        synonym2label.put("Seizure", "Seizure");
+        synonym2label.put("Seizures", "Seizure");
+        synonym2label.put("Epilepsy", "Seizure");
+        synonym2label.put("Hypotonia", "Hypotonia");
+        synonym2label.put("Ptosis", "Ptosis");
+        label2id.put("Seizure", "HP:0001250");
+        label2id.put("Hypotonia", "HP:0001252");
+        label2id.put("Ptosis", "HP:0000508");
+        mapper = new HpoTermMapper(synonym2label, label2id, new TermSearchIndex(synonym2label));
+    }
+
+    @Test
+    void testMapping() {
+        HpoTermMapper.Mapping seizure = mapper.map(" EPILEPSY").orElseThrow(AssertionError::new);
+        assertEquals("HP:0001250", seizure.getTermId());
+        assertTrue(seizure.isExact());
+        HpoTermMapper.Mapping typo = mapper.map("hypotonai").orElseThrow(AssertionError::new);
+        assertEquals("Hypotonia", typo.getLabel());
+        assertFalse(typo.isExact());
+        assertFalse(mapper.map("macrocephaly").isPresent());
+        assertFalse(mapper.map("abc").isPresent());
+        // lookups are cached after normalization
+        mapper.map("epilepsy");
+        assertEquals(4, mapper.getCacheSize());
+    }
+
+    @Test
+    void testTallyColumns() {
+        List<Set<String>> columns = Arrays.asList(
+                new LinkedHashSet<>(Arrays.asList("seizures", "epilepsy", "ptosis")),
+                new LinkedHashSet<>(Arrays.asList("seizures", "macrocephaly")),
+                new LinkedHashSet<>(Collections.singletonList("hypotonia")));
+        HpoTermTally tally = mapper.tallyColumns(columns);
+        List<HpoTermTally.Entry> entries = tally.getEntries();
+        assertEquals(3, entries.size());
+        // a term is counted once per column even if several of its synonyms are listed
+        assertEquals("Seizure", entries.get(0).getLabel());
+        assertEquals("2/3", entries.get(0).getFrequency());
+        assertEquals(new LinkedHashSet<>(Arrays.asList("seizures", "epilepsy")), entries.get(0).getTokens());
+        assertEquals("1/3", entries.get(1).getFrequency());
+        assertEquals(Collections.singletonMap("macrocephaly", 1), tally.getUnmapped());
+    }
+
+    @Test
+    void testTallySpreadsheet() throws IOException {
+        String tsv = "Feature\tP1\tP2\tP3\tP4\tP5\n" +
+                "Seizures\t+\t-\tn/a\tmild\t+\n" +
+                "Ptosis\tno\tno\t\tno\n" +
+                "Brachydactyly\t+\t+\n";
+        HpoTermTally tally = mapper.tallySpreadsheet(SpreadsheetTally.read(new StringReader(tsv), '\t'));
+        Map<String, HpoTermTally.Entry> byLabel = new HashMap<>();
+        for (HpoTermTally.Entry e : tally.getEntries()) {
+            byLabel.put(e.getLabel(), e);
+        }
+        assertEquals("3/4", byLabel.get("Seizure").getFrequency());
+        assertFalse(byLabel.get("Seizure").isExcluded());
+        assertEquals("0/3", byLabel.get("Ptosis").getFrequency());
+        assertTrue(byLabel.get("Ptosis").isExcluded());
+        assertEquals(Collections.singleton("Brachydactyly"), tally.getUnmapped().keySet());
+    }
+
+    /** Two items that map to the same term describe the same individuals and must not be added up. */
+    @Test
+    void testSpreadsheetItemsWithSameTermAreNotMerged() throws IOException {
+        String tsv = "Feature\tP1\tP2\tP3\n" +
+                "Seizures\t+\t-\t+\n" +
+                "Epilepsy\t+\t-\t-\n" +
+                "Ptosis\t+\t-\t-\n";
+        HpoTermTally tally = mapper.tallySpreadsheet(SpreadsheetTally.read(new StringReader(tsv), '\t'));
+        Map<String, HpoTermTally.Entry> byItem = new HashMap<>();
+        for (HpoTermTally.Entry e : tally.getEntries()) {
+            byItem.put(String.join(";", e.getTokens()), e);
+        }
+        assertEquals(3, byItem.size());
+        assertEquals("2/3", byItem.get("Seizures").getFrequency());
+        assertEquals("1/3", byItem.get("Epilepsy").getFrequency());
+        assertTrue(byItem.get("Seizures").isConflicting());
+        assertTrue(byItem.get("Epilepsy").isConflicting());
+        assertFalse(byItem.get("Ptosis").isConflicting());
+        Map<String, List<HpoTermTally.Entry>> conflicts = HpoTermTally.conflicts(tally.getEntries());
+        assertEquals(Collections.singleton("HP:0001250"), conflicts.keySet());
+        assertEquals(2, conflicts.get("HP:0001250").size());
+    }
+}
@@ -0,0 +1,85 @@
+package org.monarchinitiative.phenotefx.tally;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpreadsheetTallyTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testTallyTsv() throws IOException {
+        String tsv = "Feature\tP1\tP2\tP3\tP4\n" +
+                "Seizures\t+\t-\t+\t+\n" +
+                "Hypotonia\tyes\t\tyes\n" +
+                "Seizures\t-\n" +
+                "only-one-field\n";
+        SpreadsheetTally tally = SpreadsheetTally.read(new StringReader(tsv), '\t');
+        List<SpreadsheetTally.Item> items = tally.getItems();
+        assertEquals(3, items.size());
+        assertEquals("Seizures", items.get(0).getName());
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("+", 3);
+        expected.put("-", 1);
+        assertEquals(expected, items.get(0).getCounts());
+        assertEquals(4, items.get(0).getTotal());
+        // an empty cell between two observations is counted, trailing empty cells are not
+        assertEquals(2, items.get(1).getCount("yes"));
+        assertEquals(1, items.get(1).getCount(""));
+        // duplicate item names are tallied separately
+        assertEquals("Seizures-0", items.get(2).getName());
+        assertEquals(1, tally.getSkippedLines());
+    }
+
+    @Test
+    void testTallyCsvWithQuotes() throws IOException {
+        Path csv = tempDir.resolve("cohort.csv");
+        Files.write(csv, Arrays.asList("Feature,P1,P2,P3",
+                "\"Facial, dysmorphism\",\"hypertelorism, ptosis\",\"hypertelorism, ptosis\",\"say \"\"no\"\"\""),
+                StandardCharsets.UTF_8);
+        SpreadsheetTally tally = SpreadsheetTally.read(csv);
+        SpreadsheetTally.Item item = tally.getItems().get(0);
+        assertEquals("Facial, dysmorphism", item.getName());
+        assertEquals(2, item.getCount("hypertelorism, ptosis"));
+        assertEquals(1, item.getCount("say \"no\""));
+    }
+
+    @Test
+    void testSplitMatchesStringSplitForTabs() {
+        List<String> fields = new ArrayList<>();
+        for (String line : new String[]{"a\tb\tc", "a\t\tc\t\t", "\ta", "a"}) {
+            SpreadsheetTally.split(line, '\t', fields);
+            assertEquals(Arrays.asList(line.split("\t")), fields, line);
+        }
+    }
+}
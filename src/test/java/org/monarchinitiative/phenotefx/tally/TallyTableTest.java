@@ -0,0 +1,84 @@
+package org.monarchinitiative.phenotefx.tally;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2020 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TallyTableTest {
+
+    private TallyTable table;
+
+    @BeforeEach
+    void init() throws IOException {
+        String tsv = "Feature\tP1\tP2\tP3\tP4\n" +
+                "Seizures\t+\t-\t+\t+\n" +
+                "Ptosis\t<b>\t-\n";
+        table = TallyTable.of(SpreadsheetTally.read(new StringReader(tsv), '\t'));
+    }
+
+    @Test
+    void testRows() {
+        assertEquals(4, table.size());
+        assertEquals("Seizures", table.getItem(0));
+        assertEquals("+", table.getValue(0));
+        assertEquals(3, table.getCount(0));
+        assertEquals(75.0, table.getPercentage(0), 1e-9);
+        assertEquals("Ptosis", table.getItem(3));
+    }
+
+    @Test
+    void testWriteTsv() throws IOException {
+        StringWriter writer = new StringWriter();
+        table.writeTsv(writer, Arrays.asList(1, 0));
+        assertEquals("item\tvalue\tcount\tpercentage\nSeizures\t-\t1\t25.0\nSeizures\t+\t3\t75.0\n",
+                writer.toString());
+    }
+
+    @Test
+    void testWriteHtmlGroupsRowsByItem() throws IOException {
+        StringWriter writer = new StringWriter();
+        table.writeHtml(writer, "Tally", Arrays.asList(2, 0, 3, 1));
+        String html = writer.toString();
+        assertEquals(2, html.split("<caption>", -1).length - 1);
+        assertTrue(html.indexOf("<caption>Seizures") < html.indexOf("<caption>Ptosis"));
+        assertTrue(html.contains("&lt;b&gt;"));
+    }
+
+    @Test
+    void testSingleItem() {
+        Map<String, Integer> counted = new LinkedHashMap<>();
+        counted.put("ptosis", 3);
+        counted.put("hypertelorism", 1);
+        TallyTable row = TallyTable.of("Items", counted, 4);
+        assertEquals(2, row.size());
+        assertEquals(75.0, row.getPercentage(0), 1e-9);
+    }
+}